@@ -0,0 +1,82 @@
+package com.longtapcode.identity_service.Util;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+import java.util.StringJoiner;
+
+import com.longtapcode.identity_service.exception.AppException;
+import com.longtapcode.identity_service.exception.ErrorCode;
+
+/**
+ * Token phân trang keyset: khóa sắp xếp của dòng cuối trang trước, mã hóa base64url để client chỉ việc gửi lại
+ * nguyên văn. Trang sau bắt đầu ngay sau khóa đó nên không phải OFFSET qua các dòng đã đọc.
+ */
+public final class PageCursor {
+
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 100;
+
+    private static final String VERSION = "v1";
+    private static final String SEPARATOR = "|";
+
+    private PageCursor() {}
+
+    public static String encode(Object... keys) {
+        StringJoiner joiner = new StringJoiner(SEPARATOR);
+        joiner.add(VERSION);
+        for (Object key : keys) {
+            joiner.add(String.valueOf(key));
+        }
+        byte[] raw = joiner.toString().getBytes(StandardCharsets.UTF_8);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw);
+    }
+
+    /**
+     * Giải mã token thành các khóa, {@code null} nếu là trang đầu.
+     */
+    public static String[] decode(String cursor, int keyCount) {
+        if (cursor == null || cursor.isBlank()) return null;
+        String[] parts;
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            parts = raw.split("\\" + SEPARATOR, -1);
+        } catch (IllegalArgumentException e) {
+            throw new AppException(ErrorCode.INVALID_CURSOR);
+        }
+        if (parts.length != keyCount + 1 || !VERSION.equals(parts[0])) {
+            throw new AppException(ErrorCode.INVALID_CURSOR);
+        }
+        String[] keys = new String[keyCount];
+        System.arraycopy(parts, 1, keys, 0, keyCount);
+        return keys;
+    }
+
+    public static Long parseLong(String key) {
+        try {
+            return Long.valueOf(key);
+        } catch (NumberFormatException e) {
+            throw new AppException(ErrorCode.INVALID_CURSOR);
+        }
+    }
+
+    public static LocalDateTime parseDateTime(String key) {
+        try {
+            return LocalDateTime.parse(key);
+        } catch (RuntimeException e) {
+            throw new AppException(ErrorCode.INVALID_CURSOR);
+        }
+    }
+
+    public static int pageSize(int size) {
+        return Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+    }
+
+    /**
+     * Query đọc {@code size + 1} dòng để biết còn trang sau; bỏ dòng thừa trước khi trả về.
+     */
+    public static <T> List<T> trim(List<T> rows, int size) {
+        return rows.size() > size ? rows.subList(0, size) : rows;
+    }
+}
@@ -0,0 +1,41 @@
+package com.longtapcode.identity_service.Util;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Chuẩn hóa chuỗi cho cột tìm kiếm: bỏ khoảng trắng đầu cuối, bỏ dấu tiếng Việt, chữ thường. Giá trị đã chuẩn hóa
+ * được lưu sẵn và đánh index nên truy vấn chỉ cần so tiền tố, không phải bọc cột trong LOWER(...).
+ */
+public final class SearchText {
+
+    // Ký tự escape dùng trong "LIKE ... ESCAPE '!'"
+    public static final char LIKE_ESCAPE = '!';
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+    private SearchText() {}
+
+    public static String normalize(String text) {
+        if (text == null) return null;
+        String stripped = COMBINING_MARKS
+                .matcher(Normalizer.normalize(text.trim(), Normalizer.Form.NFD))
+                .replaceAll("");
+        return stripped.replace('đ', 'd').replace('Đ', 'D').toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Mẫu LIKE tìm theo tiền tố, {@code null} nếu không lọc. Ký tự đại diện người dùng gõ vào được escape.
+     */
+    public static String prefixPattern(String text) {
+        String normalized = normalize(text);
+        if (normalized == null || normalized.isEmpty()) return null;
+        StringBuilder pattern = new StringBuilder(normalized.length() + 1);
+        for (char c : normalized.toCharArray()) {
+            if (c == '%' || c == '_' || c == LIKE_ESCAPE) pattern.append(LIKE_ESCAPE);
+            pattern.append(c);
+        }
+        return pattern.append('%').toString();
+    }
+}
@@ -11,6 +11,7 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.ApplicationRunner;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
@@ -20,6 +21,7 @@ import com.longtapcode.identity_service.entity.User;
 import com.longtapcode.identity_service.repository.BookingRepository;
 import com.longtapcode.identity_service.repository.RoleRepository;
 import com.longtapcode.identity_service.repository.UserRepository;
+import com.longtapcode.identity_service.service.SeatStateService;
 
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
@@ -30,6 +32,8 @@ import lombok.experimental.NonFinal;
 @RequiredArgsConstructor
 @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
 public class ApplicationInitConfig {
+    private static final int USER_NAME_BACKFILL_BATCH = 500;
+
     UserRepository userRepository;
     RoleRepository roleRepository;
     PasswordEncoder passwordEncoder;
@@ -69,6 +73,20 @@ public class ApplicationInitConfig {
         };
     }
 
+    // Điền user_name_normalized cho user có sẵn trước khi thêm cột; @PreUpdate tính giá trị khi lưu lại
+    @Bean
+    public ApplicationRunner backfillNormalizedUserNames() {
+        return args -> {
+            List<User> users;
+            do {
+                users = userRepository.findByUserNameIsNotNullAndUserNameNormalizedIsNull(
+                        PageRequest.of(0, USER_NAME_BACKFILL_BATCH));
+                users.forEach(User::normalizeUserName);
+                userRepository.saveAll(users);
+            } while (users.size() == USER_NAME_BACKFILL_BATCH);
+        };
+    }
+
     @Bean
     public ApplicationRunner initBookedSeats() {
         return args -> {
@@ -76,6 +94,12 @@ public class ApplicationInitConfig {
             for (Object[] redisData : redisDataList) {
                 String key = "booked:" + redisData[1] + ":" + redisData[2];
                 redisTemplate.opsForValue().setIfAbsent(key, redisData[0].toString());
+                redisTemplate
+                        .opsForHash()
+                        .put(
+                                SeatStateService.stateKey((Long) redisData[1]),
+                                redisData[2].toString(),
+                                "BOOKED:" + redisData[0]);
             }
         };
     }
@@ -44,7 +44,7 @@ public class ConfigSecurity {
                 .permitAll()
                 .requestMatchers(HttpMethod.GET, PUBLIC_GET_ENDPOINTS)
                 .permitAll()
-                .requestMatchers("/ws/**")
+                .requestMatchers("/ws/**", "/ws-native/**")
                 .permitAll()
                 .requestMatchers("/actuator/**")
                 .permitAll()
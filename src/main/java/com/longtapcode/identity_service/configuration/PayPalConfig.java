@@ -1,5 +1,7 @@
 package com.longtapcode.identity_service.configuration;
 
+import java.math.BigDecimal;
+
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -28,19 +30,48 @@ public class PayPalConfig {
     @Value("${paypal.cancel-url}")
     private String cancelUrl;
 
+    // Trỏ sang server khác (ví dụ fake PayPal khi benchmark); để trống thì dùng sandbox / live theo mode
+    @Value("${paypal.base-url:}")
+    private String baseUrl;
+
+    // Tỉ giá quy đổi giá vé (VND) sang USD cho PayPal
+    @Value("${paypal.vnd-per-usd:25000}")
+    private BigDecimal vndPerUsd;
+
+    @Value("${paypal.http.connect-timeout-ms:3000}")
+    private int connectTimeoutMillis;
+
+    @Value("${paypal.http.read-timeout-ms:15000}")
+    private int readTimeoutMillis;
+
+    @Value("${paypal.http.max-connections:20}")
+    private int maxConnections;
+
     /**
      * PayPal HTTP Client Bean
+     * <p>
+     * SDK dùng HttpURLConnection nên pool keep-alive là của JDK, chỉ chỉnh được qua {@code http.maxConnections}
+     * (mặc định 5 connection rảnh mỗi host).
      */
     @Bean
     public PayPalHttpClient payPalHttpClient() {
         PayPalEnvironment environment;
 
-        if ("live".equals(mode)) {
+        if (!baseUrl.isBlank()) {
+            environment = new PayPalEnvironment(clientId, clientSecret, baseUrl, baseUrl);
+        } else if ("live".equals(mode)) {
             environment = new PayPalEnvironment.Live(clientId, clientSecret);
         } else {
             environment = new PayPalEnvironment.Sandbox(clientId, clientSecret);
         }
 
-        return new PayPalHttpClient(environment);
+        if (System.getProperty("http.maxConnections") == null) {
+            System.setProperty("http.maxConnections", String.valueOf(maxConnections));
+        }
+
+        PayPalHttpClient client = new PayPalHttpClient(environment);
+        client.setConnectTimeout(connectTimeoutMillis);
+        client.setReadTimeout(readTimeoutMillis);
+        return client;
     }
 }
@@ -1,13 +1,17 @@
 package com.longtapcode.identity_service.configuration;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
 import org.springframework.data.redis.listener.PatternTopic;
 import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 
+import com.longtapcode.identity_service.listener.CacheInvalidationListener;
 import com.longtapcode.identity_service.listener.RedisExpiredListener;
+import com.longtapcode.identity_service.service.SeatCatalogService;
 
 @Configuration
 public class RedisConfig {
@@ -18,11 +22,19 @@ public class RedisConfig {
 
     @Bean
     public RedisMessageListenerContainer redisMessageListenerContainer(
-            RedisConnectionFactory connectionFactory, RedisExpiredListener expiredListener) {
+            RedisConnectionFactory connectionFactory,
+            RedisExpiredListener expiredListener,
+            CacheInvalidationListener cacheInvalidationListener,
+            @Value("${seat.hold-expiry.keyspace-events:false}") boolean keyspaceEvents) {
         RedisMessageListenerContainer container = new RedisMessageListenerContainer();
         container.setConnectionFactory(connectionFactory);
 
-        container.addMessageListener(expiredListener, new PatternTopic("__keyevent@*__:expired"));
+        // Hết hạn giữ ghế do HoldExpirySweeper xử lý, keyspace notification chỉ là tùy chọn
+        if (keyspaceEvents) {
+            container.addMessageListener(expiredListener, new PatternTopic("__keyevent@*__:expired"));
+        }
+        container.addMessageListener(
+                cacheInvalidationListener, new ChannelTopic(SeatCatalogService.INVALIDATION_CHANNEL));
 
         return container;
     }
@@ -0,0 +1,65 @@
+package com.longtapcode.identity_service.configuration;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.longtapcode.identity_service.dto.response.SeatMapResponse;
+import com.longtapcode.identity_service.service.CompactSeatFrameEncoder;
+import com.longtapcode.identity_service.service.SeatBroadcastService;
+import com.longtapcode.identity_service.service.SeatHoldService;
+import com.longtapcode.identity_service.service.ShowSubscriptionRegistry;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Gửi snapshot ghế (kèm version) tới đúng một subscription qua {@code clientOutboundChannel}, theo định dạng của
+ * topic: JSON cho {@code /topic/show/{showId}}, nhị phân cho {@code /topic/show/{showId}/compact}.
+ */
+@Component
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@Slf4j
+public class SeatSnapshotSender {
+
+    // Đánh dấu frame snapshot để SlowConsumerInterceptor không bỏ nó như một delta
+    public static final String SNAPSHOT_HEADER = "seatSnapshot";
+
+    // Nằm cùng vòng phụ thuộc với cấu hình WebSocket → lấy lười
+    ObjectProvider<SeatHoldService> seatHoldService;
+    ObjectMapper objectMapper;
+    CompactSeatFrameEncoder compactSeatFrameEncoder;
+
+    public boolean send(MessageChannel channel, String sessionId, String subscriptionId, String destination) {
+        if (!SeatBroadcastService.isSeatTopic(destination)) return false;
+        Long showId = ShowSubscriptionRegistry.showIdOf(destination);
+        try {
+            SeatMapResponse snapshot = seatHoldService.getObject().getSeatSnapshot(showId);
+            boolean compact = destination.equals(SeatBroadcastService.compactTopic(showId));
+            byte[] payload = compact
+                    ? compactSeatFrameEncoder.encode(snapshot.getVersion(), true, snapshot.getSeats())
+                    : objectMapper.writeValueAsBytes(snapshot);
+
+            SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+            accessor.setSessionId(sessionId);
+            accessor.setSubscriptionId(subscriptionId);
+            accessor.setDestination(destination);
+            accessor.setContentType(compact ? MimeTypeUtils.APPLICATION_OCTET_STREAM : MimeTypeUtils.APPLICATION_JSON);
+            accessor.setHeader(SNAPSHOT_HEADER, true);
+            accessor.setLeaveMutable(true);
+
+            return channel.send(MessageBuilder.createMessage(payload, accessor.getMessageHeaders()));
+        } catch (Exception e) {
+            log.error("Failed to send seat snapshot to session {} for show {}", sessionId, showId, e);
+            return false;
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.longtapcode.identity_service.configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import com.longtapcode.identity_service.service.SeatBroadcastService;
+import com.longtapcode.identity_service.service.ShowSubscriptionRegistry;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.MultiGauge;
+import io.micrometer.core.instrument.Tags;
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Chống subscriber chậm trên {@code clientOutboundChannel}.
+ * <p>
+ * Đếm số frame đang chờ gửi cho từng session. Khi một session vượt {@code seat.ws.max-pending-per-session}, các
+ * delta của {@code /topic/show/...} gửi cho nó bị bỏ và subscription bị đánh dấu "snapshot-needed"; khi hàng đợi của
+ * session đã rút hết, session nhận đúng một snapshot ghế mới (kèm version) thay cho các delta đã bỏ.
+ */
+@Component
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@Slf4j
+public class SlowConsumerInterceptor implements ExecutorChannelInterceptor {
+
+    SeatSnapshotSender seatSnapshotSender;
+    ObjectProvider<ShowSubscriptionRegistry> subscriptionRegistry;
+
+    Map<String, AtomicInteger> pendingBySession = new ConcurrentHashMap<>();
+    Map<Long, AtomicInteger> pendingByShow = new ConcurrentHashMap<>();
+    // sessionId → (subscriptionId → destination) cần gửi snapshot
+    Map<String, Map<String, String>> snapshotNeeded = new ConcurrentHashMap<>();
+
+    Counter droppedCounter;
+    Counter snapshotCounter;
+    MultiGauge subscribersGauge;
+    MultiGauge pendingGauge;
+
+    int maxPendingPerSession;
+
+    public SlowConsumerInterceptor(
+            SeatSnapshotSender seatSnapshotSender,
+            ObjectProvider<ShowSubscriptionRegistry> subscriptionRegistry,
+            MeterRegistry meterRegistry,
+            @Value("${seat.ws.max-pending-per-session:64}") int maxPendingPerSession) {
+        this.seatSnapshotSender = seatSnapshotSender;
+        this.subscriptionRegistry = subscriptionRegistry;
+        this.maxPendingPerSession = maxPendingPerSession;
+        this.droppedCounter = Counter.builder("seat.ws.deltas.dropped")
+                .description("Seat deltas dropped for slow subscribers")
+                .register(meterRegistry);
+        this.snapshotCounter = Counter.builder("seat.ws.snapshots.sent")
+                .description("Seat snapshots sent to subscribers that fell behind")
+                .register(meterRegistry);
+        this.subscribersGauge = MultiGauge.builder("seat.ws.subscribers")
+                .description("Local STOMP subscribers per show")
+                .register(meterRegistry);
+        this.pendingGauge = MultiGauge.builder("seat.ws.outbound.pending")
+                .description("Outbound frames queued per show")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        if (sessionId == null) return message;
+
+        String destination = SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+        Long showId = ShowSubscriptionRegistry.showIdOf(destination);
+        boolean delta = SeatBroadcastService.isSeatTopic(destination)
+                && SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) == SimpMessageType.MESSAGE
+                && message.getHeaders().get(SeatSnapshotSender.SNAPSHOT_HEADER) == null;
+
+        AtomicInteger pending = pendingBySession.computeIfAbsent(sessionId, id -> new AtomicInteger());
+        if (delta) {
+            String subscriptionId = SimpMessageHeaderAccessor.getSubscriptionId(message.getHeaders());
+            Map<String, String> marked = snapshotNeeded.get(sessionId);
+            boolean alreadyMarked = marked != null && marked.containsKey(subscriptionId);
+            if (alreadyMarked || pending.get() >= maxPendingPerSession) {
+                if (!alreadyMarked && subscriptionId != null) {
+                    snapshotNeeded
+                            .computeIfAbsent(sessionId, id -> new ConcurrentHashMap<>())
+                            .put(subscriptionId, destination);
+                    log.info("Session {} is falling behind on show {}, switching to snapshot", sessionId, showId);
+                }
+                droppedCounter.increment();
+                return null;
+            }
+        }
+
+        pending.incrementAndGet();
+        if (showId != null) {
+            pendingByShow.computeIfAbsent(showId, id -> new AtomicInteger()).incrementAndGet();
+        }
+        return message;
+    }
+
+    /**
+     * Frame đã qua {@link #preSend} nhưng không tới được executor (hàng đợi đầy → task bị từ chối, hoặc một interceptor
+     * phía sau chặn frame) sẽ không bao giờ có {@link #afterMessageHandled}, nên phải trả lại bộ đếm ở đây.
+     */
+    @Override
+    public void afterSendCompletion(Message<?> message, MessageChannel channel, boolean sent, Exception ex) {
+        if (sent && ex == null) return;
+        release(message, channel);
+    }
+
+    @Override
+    public void afterMessageHandled(
+            Message<?> message, MessageChannel channel, MessageHandler handler, Exception ex) {
+        release(message, channel);
+    }
+
+    private void release(Message<?> message, MessageChannel channel) {
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        if (sessionId == null) return;
+
+        Long showId = ShowSubscriptionRegistry.showIdOf(SimpMessageHeaderAccessor.getDestination(message.getHeaders()));
+        if (showId != null) {
+            AtomicInteger showPending = pendingByShow.get(showId);
+            if (showPending != null) showPending.decrementAndGet();
+        }
+
+        AtomicInteger pending = pendingBySession.get(sessionId);
+        if (pending == null || pending.decrementAndGet() > 0) return;
+
+        // Session đã bắt kịp → gửi snapshot cho các subscription đã bị bỏ delta
+        Map<String, String> marked = snapshotNeeded.remove(sessionId);
+        if (marked == null) return;
+        marked.forEach((subscriptionId, destination) -> sendSnapshot(channel, sessionId, subscriptionId, destination));
+    }
+
+    private void sendSnapshot(MessageChannel channel, String sessionId, String subscriptionId, String destination) {
+        if (seatSnapshotSender.send(channel, sessionId, subscriptionId, destination)) {
+            snapshotCounter.increment();
+        }
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        pendingBySession.remove(event.getSessionId());
+        snapshotNeeded.remove(event.getSessionId());
+    }
+
+    @Scheduled(fixedDelayString = "${seat.ws.metrics-interval-ms:5000}")
+    public void refreshMetrics() {
+        List<MultiGauge.Row<?>> subscriberRows = new ArrayList<>();
+        subscriptionRegistry.getObject().localSubscriberCounts().forEach((showId, count) -> {
+            subscriberRows.add(MultiGauge.Row.of(showTag(showId), count));
+        });
+        subscribersGauge.register(subscriberRows, true);
+
+        List<MultiGauge.Row<?>> pendingRows = new ArrayList<>();
+        pendingByShow.forEach((showId, pending) -> {
+            int value = pending.get();
+            if (value > 0) pendingRows.add(MultiGauge.Row.of(showTag(showId), value));
+        });
+        pendingGauge.register(pendingRows, true);
+    }
+
+    private static Tags showTag(Long showId) {
+        return Tags.of("show", showId.toString());
+    }
+}
@@ -0,0 +1,57 @@
+package com.longtapcode.identity_service.configuration;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+import org.springframework.stereotype.Component;
+
+import com.longtapcode.identity_service.service.SeatBroadcastService;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+
+/**
+ * Trả snapshot ghế ngay trên session vừa SUBSCRIBE {@code /topic/show/{showId}} (hoặc {@code .../compact}), thay cho
+ * lời gọi REST {@code /seat/occupied/{showId}}.
+ * <p>
+ * Chạy sau khi simple broker đã đăng ký subscription, nên mọi thay đổi sau thời điểm đọc snapshot đều tới qua stream;
+ * client bỏ các delta có version ≤ version của snapshot. Gửi header {@code snapshot: false} khi SUBSCRIBE để tắt.
+ */
+@Component
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class SubscribeSnapshotInterceptor implements ExecutorChannelInterceptor {
+
+    static final String SNAPSHOT_NATIVE_HEADER = "snapshot";
+
+    SeatSnapshotSender seatSnapshotSender;
+    MessageChannel clientOutboundChannel;
+
+    public SubscribeSnapshotInterceptor(
+            SeatSnapshotSender seatSnapshotSender,
+            @Lazy @Qualifier("clientOutboundChannel") MessageChannel clientOutboundChannel) {
+        this.seatSnapshotSender = seatSnapshotSender;
+        this.clientOutboundChannel = clientOutboundChannel;
+    }
+
+    @Override
+    public void afterMessageHandled(
+            Message<?> message, MessageChannel channel, MessageHandler handler, Exception ex) {
+        if (ex != null || !(handler instanceof SimpleBrokerMessageHandler)) return;
+        if (SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) != SimpMessageType.SUBSCRIBE) return;
+
+        String destination = SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+        if (!SeatBroadcastService.isSeatTopic(destination)) return;
+
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+        if ("false".equalsIgnoreCase(accessor.getFirstNativeHeader(SNAPSHOT_NATIVE_HEADER))) return;
+
+        seatSnapshotSender.send(
+                clientOutboundChannel, accessor.getSessionId(), accessor.getSubscriptionId(), destination);
+    }
+}
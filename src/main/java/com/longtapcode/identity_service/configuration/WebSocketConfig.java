@@ -1,6 +1,8 @@
 package com.longtapcode.identity_service.configuration;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
 import org.springframework.web.socket.config.annotation.*;
 
@@ -11,6 +13,27 @@ import lombok.RequiredArgsConstructor;
 @RequiredArgsConstructor
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    private final SlowConsumerInterceptor slowConsumerInterceptor;
+    private final SubscribeSnapshotInterceptor subscribeSnapshotInterceptor;
+
+    @Value("${seat.ws.send-time-limit-ms:10000}")
+    private int sendTimeLimit;
+
+    @Value("${seat.ws.send-buffer-size-limit:524288}")
+    private int sendBufferSizeLimit;
+
+    @Value("${seat.ws.inbound.pool-size:8}")
+    private int inboundPoolSize;
+
+    @Value("${seat.ws.inbound.queue-capacity:10000}")
+    private int inboundQueueCapacity;
+
+    @Value("${seat.ws.outbound.pool-size:32}")
+    private int outboundPoolSize;
+
+    @Value("${seat.ws.outbound.queue-capacity:10000}")
+    private int outboundQueueCapacity;
+
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
         // Prefix cho các message từ server → client
@@ -23,5 +46,36 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
         registry.addEndpoint("/ws").setAllowedOriginPatterns("*").withSockJS();
+        // WebSocket thuần, không qua SockJS framing (cũng dùng được cho topic compact)
+        registry.addEndpoint("/ws-native").setAllowedOriginPatterns("*");
+    }
+
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        // Giới hạn bộ đệm gửi của từng session: client quá chậm sẽ bị ngắt thay vì làm phình heap
+        registration.setSendTimeLimit(sendTimeLimit).setSendBufferSizeLimit(sendBufferSizeLimit);
+    }
+
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        registration.interceptors(subscribeSnapshotInterceptor);
+        registration
+                .taskExecutor()
+                .corePoolSize(inboundPoolSize)
+                .maxPoolSize(inboundPoolSize)
+                .queueCapacity(inboundQueueCapacity);
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        registration.interceptors(slowConsumerInterceptor);
+        // Pool riêng, có giới hạn: một session chậm chỉ giữ một thread tối đa sendTimeLimit, không chặn cả broker.
+        // Không bật preservePublishOrder vì nó xếp hàng frame bên ngoài channel, SlowConsumerInterceptor sẽ không thấy;
+        // thứ tự đã có version trên từng frame.
+        registration
+                .taskExecutor()
+                .corePoolSize(outboundPoolSize)
+                .maxPoolSize(outboundPoolSize)
+                .queueCapacity(outboundQueueCapacity);
     }
 }
@@ -51,7 +51,7 @@ public class PaymentController {
 
         return ApiResponse.<PaymentCallbackResponse>builder()
                 .code(1000)
-                .message("Booking confirmed successfully")
+                .message(callbackMessage(response))
                 .result(response)
                 .build();
     }
@@ -66,8 +66,14 @@ public class PaymentController {
 
         return ApiResponse.<PaymentCallbackResponse>builder()
                 .code(1000)
-                .message("Booking confirmed successfully")
+                .message(callbackMessage(response))
                 .result(response)
                 .build();
     }
+
+    private static String callbackMessage(PaymentCallbackResponse response) {
+        return Boolean.TRUE.equals(response.getSuccess())
+                ? "Booking confirmed successfully"
+                : "Seats are no longer held, payment is pending refund";
+    }
 }
@@ -5,11 +5,16 @@ import java.util.List;
 import org.springframework.web.bind.annotation.*;
 
 import com.longtapcode.identity_service.dto.request.ApiResponse;
+import com.longtapcode.identity_service.dto.request.SeatHoldBatchRequest;
 import com.longtapcode.identity_service.dto.request.SeatHoldRequest;
 import com.longtapcode.identity_service.dto.request.SeatRequest;
+import com.longtapcode.identity_service.dto.response.PresenceResponse;
+import com.longtapcode.identity_service.dto.response.SeatHoldBatchResponse;
+import com.longtapcode.identity_service.dto.response.SeatMapResponse;
 import com.longtapcode.identity_service.dto.response.SeatResponse;
 import com.longtapcode.identity_service.dto.response.SeatUpdateResponse;
 import com.longtapcode.identity_service.dto.response.SeatUpdateSuccess;
+import com.longtapcode.identity_service.service.PresenceService;
 import com.longtapcode.identity_service.service.SeatHoldService;
 import com.longtapcode.identity_service.service.SeatService;
 
@@ -24,6 +29,7 @@ import lombok.experimental.FieldDefaults;
 public class SeatController {
     SeatService seatService;
     SeatHoldService seatHoldService;
+    PresenceService presenceService;
 
     @GetMapping("/getAllSeat")
     public ApiResponse<List<SeatResponse>> getAllSeat() {
@@ -32,6 +38,13 @@ public class SeatController {
                 .build();
     }
 
+    @GetMapping("/catalog")
+    public ApiResponse<List<SeatResponse>> getSeatCatalog() {
+        return ApiResponse.<List<SeatResponse>>builder()
+                .result(seatService.getSeatCatalog())
+                .build();
+    }
+
     @PostMapping("/createSeat")
     public ApiResponse<SeatResponse> createSeat(@RequestBody SeatRequest seatRequest) {
         return ApiResponse.<SeatResponse>builder()
@@ -53,6 +66,13 @@ public class SeatController {
                 .build();
     }
 
+    @PostMapping("/hold-batch")
+    public ApiResponse<SeatHoldBatchResponse> holdSeats(@RequestBody SeatHoldBatchRequest request) {
+        return ApiResponse.<SeatHoldBatchResponse>builder()
+                .result(seatHoldService.holdSeats(request))
+                .build();
+    }
+
     // ==================== RELEASE GHẾ ====================
     @PostMapping("/release")
     public ApiResponse<SeatUpdateSuccess> releaseSeat(@RequestBody SeatHoldRequest request) {
@@ -67,4 +87,22 @@ public class SeatController {
                 .result(seatHoldService.getOccupiedSeats(showId))
                 .build();
     }
+
+    @GetMapping("/changes/{showId}")
+    public ApiResponse<SeatMapResponse> getSeatChanges(
+            @PathVariable("showId") Long showId, @RequestParam(value = "since", defaultValue = "0") long since) {
+        return ApiResponse.<SeatMapResponse>builder()
+                .result(seatHoldService.getSeatChanges(showId, since))
+                .build();
+    }
+
+    @GetMapping("/presence/{showId}")
+    public ApiResponse<PresenceResponse> getPresence(@PathVariable("showId") Long showId) {
+        return ApiResponse.<PresenceResponse>builder()
+                .result(PresenceResponse.builder()
+                        .showId(showId)
+                        .viewers(presenceService.getViewers(showId))
+                        .build())
+                .build();
+    }
 }
@@ -50,6 +50,27 @@ public class AdminBookingController {
         return ApiResponse.<Page<BookingResponse>>builder().result(bookings).build();
     }
 
+    // Phân trang keyset: gửi lại nextCursor của trang trước, không có cursor là trang đầu
+    @GetMapping("/getAllBookings")
+    public ApiResponse<CursorPageResponse<BookingResponse>> getBookingsByCursor(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String userName,
+            @RequestParam(required = false) Long showId,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fromDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate toDate,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
+
+        LocalDateTime fromDateTime = fromDate != null ? fromDate.atStartOfDay() : null;
+        LocalDateTime toDateTime = toDate != null ? toDate.atTime(LocalTime.MAX) : null;
+
+        return ApiResponse.<CursorPageResponse<BookingResponse>>builder()
+                .result(bookingService.getBookingsForAdminByCursor(
+                        cursor, size, userName, showId, status, fromDateTime, toDateTime, includeTotal))
+                .build();
+    }
+
     @GetMapping("/{bookingId}")
     public ApiResponse<BookingResponse> getBookingById(@PathVariable Long bookingId) {
         return ApiResponse.<BookingResponse>builder()
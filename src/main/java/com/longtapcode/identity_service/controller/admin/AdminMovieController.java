@@ -6,6 +6,7 @@ import org.springframework.web.bind.annotation.*;
 import com.longtapcode.identity_service.dto.request.ApiResponse;
 import com.longtapcode.identity_service.dto.request.admin.MovieRequest;
 import com.longtapcode.identity_service.dto.request.admin.UpdateMovieRequest;
+import com.longtapcode.identity_service.dto.response.CursorPageResponse;
 import com.longtapcode.identity_service.dto.response.MovieResponse;
 import com.longtapcode.identity_service.service.MovieService;
 
@@ -31,6 +32,17 @@ public class AdminMovieController {
                 .build();
     }
 
+    @GetMapping("/getAllMovies")
+    public ApiResponse<CursorPageResponse<MovieResponse>> getMoviesByCursor(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String search,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
+        return ApiResponse.<CursorPageResponse<MovieResponse>>builder()
+                .result(movieService.getMoviesForAdminByCursor(cursor, size, search, includeTotal))
+                .build();
+    }
+
     @PostMapping
     public ApiResponse<MovieResponse> createMovie(@RequestBody MovieRequest request) {
         return ApiResponse.<MovieResponse>builder()
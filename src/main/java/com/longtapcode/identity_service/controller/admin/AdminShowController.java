@@ -72,6 +72,7 @@ import org.springframework.web.bind.annotation.*;
 import com.longtapcode.identity_service.dto.request.ApiResponse;
 import com.longtapcode.identity_service.dto.request.ShowRequest;
 import com.longtapcode.identity_service.dto.request.UpdateShowRequest;
+import com.longtapcode.identity_service.dto.response.CursorPageResponse;
 import com.longtapcode.identity_service.dto.response.ShowResponse;
 import com.longtapcode.identity_service.service.ShowService;
 
@@ -99,6 +100,19 @@ public class AdminShowController {
                 .build();
     }
 
+    @GetMapping("/getAllShows")
+    public ApiResponse<CursorPageResponse<ShowResponse>> getShowsByCursor(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) Long movieId,
+            @RequestParam(required = false) LocalDateTime startDate,
+            @RequestParam(required = false) LocalDateTime endDate,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
+        return ApiResponse.<CursorPageResponse<ShowResponse>>builder()
+                .result(showService.getShowsForAdminByCursor(cursor, size, movieId, startDate, endDate, includeTotal))
+                .build();
+    }
+
     @PostMapping
     public ApiResponse<String> createShow(@RequestBody ShowRequest request) {
         showService.createShow(request);
@@ -6,6 +6,7 @@ import org.springframework.web.bind.annotation.*;
 import com.longtapcode.identity_service.dto.request.ApiResponse;
 import com.longtapcode.identity_service.dto.request.CreationUserRequest;
 import com.longtapcode.identity_service.dto.request.admin.AdminUpdateUserRequest;
+import com.longtapcode.identity_service.dto.response.CursorPageResponse;
 import com.longtapcode.identity_service.dto.response.UserResponse;
 import com.longtapcode.identity_service.service.UserService;
 
@@ -29,6 +30,16 @@ public class AdminUserController {
                 .build();
     }
 
+    @GetMapping("/getAllUsers")
+    public ApiResponse<CursorPageResponse<UserResponse>> getUsersByCursor(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
+        return ApiResponse.<CursorPageResponse<UserResponse>>builder()
+                .result(userService.getUsersForAdminByCursor(cursor, size, includeTotal))
+                .build();
+    }
+
     @GetMapping("/{userId}")
     public ApiResponse<UserResponse> getUserById(@PathVariable String userId) {
         return ApiResponse.<UserResponse>builder()
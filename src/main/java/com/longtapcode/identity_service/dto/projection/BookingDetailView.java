@@ -0,0 +1,5 @@
+package com.longtapcode.identity_service.dto.projection;
+
+import java.math.BigDecimal;
+
+public record BookingDetailView(Long bookingId, Long id, String seatNumber, BigDecimal price) {}
@@ -0,0 +1,21 @@
+package com.longtapcode.identity_service.dto.projection;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Một dòng booking cho trang admin, đọc sẵn cột của user / show / movie trong cùng câu truy vấn.
+ */
+public record BookingSummaryView(
+        Long id,
+        String orderId,
+        String userId,
+        String userName,
+        String userEmail,
+        Long showId,
+        String movieTitle,
+        LocalDateTime showDateTime,
+        String paymentMethod,
+        BigDecimal totalPrice,
+        String status,
+        LocalDateTime bookingDate) {}
@@ -0,0 +1,19 @@
+package com.longtapcode.identity_service.dto.request;
+
+import java.util.List;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class SeatHoldBatchRequest {
+    Long showId;
+    List<String> seatNumbers;
+    String userId;
+}
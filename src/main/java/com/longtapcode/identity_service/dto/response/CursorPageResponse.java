@@ -0,0 +1,21 @@
+package com.longtapcode.identity_service.dto.response;
+
+import java.util.List;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class CursorPageResponse<T> {
+    List<T> content;
+    int size;
+    boolean hasNext;
+    // Gửi lại qua tham số cursor để lấy trang sau, null khi đã hết
+    String nextCursor;
+    // Chỉ đếm khi client yêu cầu includeTotal
+    Long totalElements;
+}
@@ -1,5 +1,9 @@
 package com.longtapcode.identity_service.dto.response;
 
+import java.util.Map;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import lombok.*;
 import lombok.experimental.FieldDefaults;
 
@@ -13,4 +17,8 @@ public class PaymentCallbackResponse {
     Long bookingId;
     String orderId;
     String message;
+
+    // Ghế không còn được giữ → lý do (BOOKED, HELD_BY_OTHER, NOT_HELD)
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    Map<String, String> conflicts;
 }
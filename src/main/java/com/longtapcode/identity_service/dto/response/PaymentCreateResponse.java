@@ -16,6 +16,7 @@ public class PaymentCreateResponse {
     Set<String> seatNumbers;
     String status;
     Long expiresAt;
+    Long version;
     String paymentUrl;
     String orderId;
     Long amount;
@@ -0,0 +1,18 @@
+package com.longtapcode.identity_service.dto.response;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class PresenceResponse {
+    @Builder.Default
+    String type = "PRESENCE";
+
+    Long showId;
+    // Tổng số người đang xem sơ đồ ghế trên mọi node
+    long viewers;
+}
@@ -0,0 +1,23 @@
+package com.longtapcode.identity_service.dto.response;
+
+import java.util.List;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class SeatBatchUpdateResponse {
+    @Builder.Default
+    String type = "BATCH";
+
+    Long showId;
+    // Version của thay đổi cuối cùng trong batch
+    Long version;
+    // Thời điểm server gửi batch (epoch millis), để client / load test đo độ trễ
+    Long sentAt;
+    List<SeatUpdateResponse> updates;
+}
@@ -0,0 +1,18 @@
+package com.longtapcode.identity_service.dto.response;
+
+import java.util.List;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class SeatHoldBatchResponse {
+    boolean success;
+    String message;
+    Long expiresAt;
+    List<SeatHoldResult> seats;
+}
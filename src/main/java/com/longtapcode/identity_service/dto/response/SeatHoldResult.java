@@ -0,0 +1,15 @@
+package com.longtapcode.identity_service.dto.response;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class SeatHoldResult {
+    String seatNumber;
+    boolean success;
+    String status;
+}
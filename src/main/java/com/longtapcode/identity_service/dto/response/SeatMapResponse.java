@@ -0,0 +1,19 @@
+package com.longtapcode.identity_service.dto.response;
+
+import java.util.List;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class SeatMapResponse {
+    Long showId;
+    Long version;
+    // true: seats là toàn bộ ghế đang giữ / đã đặt; false: seats chỉ là các thay đổi sau version client gửi lên
+    boolean snapshot;
+    List<SeatUpdateResponse> seats;
+}
@@ -1,5 +1,7 @@
 package com.longtapcode.identity_service.dto.response;
 
+import java.util.Set;
+
 import lombok.*;
 import lombok.experimental.FieldDefaults;
 
@@ -15,4 +17,7 @@ public class SeatUpdateResponse {
     int seatType;
     String status;
     Long expiresAt;
+    Long version;
+    // Chỉ có khi một frame gom nhiều ghế (vd. giữ ghế theo lô)
+    Set<String> seatNumbers;
 }
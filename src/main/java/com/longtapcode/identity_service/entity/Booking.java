@@ -15,7 +15,13 @@ import lombok.experimental.FieldDefaults;
 @Data
 @Builder
 @FieldDefaults(level = AccessLevel.PRIVATE)
-@Table(name = "bookings")
+@Table(
+        name = "bookings",
+        indexes = {
+            @Index(name = "idx_bookings_status_booking_date", columnList = "status, booking_date"),
+            // Keyset của trang admin sắp theo (booking_date, id); InnoDB đã kèm khóa chính trong index phụ
+            @Index(name = "idx_bookings_booking_date", columnList = "booking_date")
+        })
 @NoArgsConstructor
 @AllArgsConstructor
 public class Booking {
@@ -13,7 +13,9 @@ import lombok.*;
 import lombok.experimental.FieldDefaults;
 
 @Entity
-@Table(name = "bookingdetails")
+@Table(
+        name = "bookingdetails",
+        indexes = @Index(name = "idx_bookingdetails_booking_id", columnList = "BookingID"))
 @Data
 @Builder
 @FieldDefaults(level = AccessLevel.PRIVATE)
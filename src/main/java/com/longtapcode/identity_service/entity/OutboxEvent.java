@@ -0,0 +1,53 @@
+package com.longtapcode.identity_service.entity;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.*;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+/**
+ * Sự kiện chờ gửi Kafka, được ghi cùng transaction với thay đổi nghiệp vụ (transactional outbox).
+ * {@code publishedAt == null} nghĩa là chưa gửi; relay lấy theo thứ tự {@code id}.
+ */
+@Entity
+@Data
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@Table(
+        name = "outbox_events",
+        indexes = @Index(name = "idx_outbox_events_published_id", columnList = "published_at, id"))
+@NoArgsConstructor
+@AllArgsConstructor
+public class OutboxEvent {
+    @Id
+    @Column(name = "id", nullable = false)
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    Long id;
+
+    @Column(name = "aggregate_id", nullable = false, length = 64)
+    String aggregateId;
+
+    @Column(name = "event_type", nullable = false, length = 64)
+    String eventType;
+
+    @Column(name = "topic", nullable = false)
+    String topic;
+
+    @Column(name = "message_key")
+    String messageKey;
+
+    @Lob
+    @Column(name = "payload", nullable = false, columnDefinition = "TEXT")
+    String payload;
+
+    @Column(name = "created_at", nullable = false)
+    LocalDateTime createdAt;
+
+    @Column(name = "published_at")
+    LocalDateTime publishedAt;
+
+    @Column(name = "attempts", nullable = false)
+    int attempts;
+}
@@ -13,7 +13,7 @@ import lombok.*;
 import lombok.experimental.FieldDefaults;
 
 @Entity
-@Table(name = "shows")
+@Table(name = "shows", indexes = @Index(name = "idx_shows_show_date_time", columnList = "ShowDateTime"))
 @Data
 @Builder
 @FieldDefaults(level = AccessLevel.PRIVATE)
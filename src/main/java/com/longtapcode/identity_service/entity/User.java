@@ -8,10 +8,13 @@ import jakarta.persistence.*;
 import org.hibernate.annotations.OnDelete;
 import org.hibernate.annotations.OnDeleteAction;
 
+import com.longtapcode.identity_service.Util.SearchText;
+
 import lombok.*;
 import lombok.experimental.FieldDefaults;
 
 @Entity
+@Table(indexes = @Index(name = "idx_user_user_name_normalized", columnList = "user_name_normalized"))
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -23,6 +26,11 @@ public class User {
     String id;
 
     String userName;
+
+    // userName đã chuẩn hóa (SearchText.normalize), dùng cho tìm kiếm theo tiền tố qua index
+    @Column(name = "user_name_normalized")
+    String userNameNormalized;
+
     String password;
     String firstName;
     String lastName;
@@ -49,4 +57,10 @@ public class User {
     public void toggleLock() {
         this.isLock = !this.isLock();
     }
+
+    @PrePersist
+    @PreUpdate
+    public void normalizeUserName() {
+        this.userNameNormalized = SearchText.normalize(userName);
+    }
 }
@@ -48,7 +48,14 @@ public enum ErrorCode {
     SEAT_HOLD_EXPIRED(
             1434,
             "Your seat reservation has expired. Please select seats again to continue payment!!!",
-            HttpStatus.BAD_REQUEST);
+            HttpStatus.BAD_REQUEST),
+    PAYMENT_CALLBACK_IN_PROGRESS(
+            1435, "Payment is still being processed, please check again shortly", HttpStatus.CONFLICT),
+    PAYMENT_PROVIDER_UNAVAILABLE(
+            1436,
+            "Payment provider is temporarily unavailable, please try again later",
+            HttpStatus.SERVICE_UNAVAILABLE),
+    INVALID_CURSOR(1437, "Invalid page cursor", HttpStatus.BAD_REQUEST);
     final int code;
     final String message;
     final HttpStatus statusCode;
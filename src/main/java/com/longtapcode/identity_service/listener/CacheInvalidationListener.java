@@ -0,0 +1,32 @@
+package com.longtapcode.identity_service.listener;
+
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.stereotype.Component;
+
+import com.longtapcode.identity_service.service.PricingService;
+import com.longtapcode.identity_service.service.SeatCatalogService;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CacheInvalidationListener implements MessageListener {
+
+    private final SeatCatalogService seatCatalogService;
+    private final PricingService pricingService;
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String cacheName = new String(message.getBody());
+        log.info("Cache invalidation received: {}", cacheName);
+
+        if (SeatCatalogService.SEAT_CATALOG.equals(cacheName)) {
+            seatCatalogService.invalidate();
+        } else if (cacheName.startsWith(PricingService.SHOW_PRICES_PREFIX)) {
+            pricingService.evictLocal(Long.valueOf(cacheName.substring(PricingService.SHOW_PRICES_PREFIX.length())));
+        }
+    }
+}
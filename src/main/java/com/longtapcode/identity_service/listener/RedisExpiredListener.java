@@ -1,26 +1,24 @@
 package com.longtapcode.identity_service.listener;
 
-import java.util.Arrays;
-import java.util.Map;
-import java.util.Set;
-
 import org.springframework.data.redis.connection.Message;
 import org.springframework.data.redis.connection.MessageListener;
-import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Component;
 
-import com.longtapcode.identity_service.constant.SeatInstanceStatus;
-import com.longtapcode.identity_service.dto.response.SeatUpdateResponse;
+import com.longtapcode.identity_service.service.SeatHoldService;
+import com.longtapcode.identity_service.service.SeatStateService;
 
 import lombok.RequiredArgsConstructor;
 
+/**
+ * Dự phòng cho {@code HoldExpirySweeper}: chỉ được đăng ký khi bật {@code seat.hold-expiry.keyspace-events}
+ * (cần {@code notify-keyspace-events Ex} trên Redis).
+ */
 @Component
 @RequiredArgsConstructor
 public class RedisExpiredListener implements MessageListener {
 
-    private final SimpMessagingTemplate messagingTemplate;
-    private final RedisTemplate<String, String> redisTemplate;
+    private final SeatStateService seatStateService;
+    private final SeatHoldService seatHoldService;
 
     @Override
     public void onMessage(Message message, byte[] pattern) {
@@ -34,29 +32,7 @@ public class RedisExpiredListener implements MessageListener {
         Long showId = Long.parseLong(parts[1]);
         String seatNumber = parts[2];
 
-        Set<String> paymentKeys = redisTemplate.keys("paypal_metadata:*");
-        if (paymentKeys != null) {
-            for (String key : paymentKeys) {
-                Map<Object, Object> meta = redisTemplate.opsForHash().entries(key);
-
-                String seats = (String) meta.get("seats");
-                String paypalOrderId = (String) meta.get("paypalOrderId");
-
-                if (seats != null && Arrays.asList(seats.split(",")).contains(seatNumber)) {
-
-                    // 🔥 ĐÁNH DẤU PAYMENT SESSION BỊ HỦY
-                    String paymentSessionKey = "payment_session:" + paypalOrderId;
-                    redisTemplate.opsForValue().set(paymentSessionKey, "EXPIRED");
-                }
-            }
-        }
-        SeatUpdateResponse msg = SeatUpdateResponse.builder()
-                .showId(showId)
-                .seatNumber(seatNumber)
-                .status(SeatInstanceStatus.AVAILABLE.getStatus())
-                .expiresAt(0L)
-                .build();
-
-        messagingTemplate.convertAndSend("/topic/show/" + showId, msg);
+        long version = seatStateService.expireHold(showId, seatNumber);
+        seatHoldService.onHoldExpired(showId, seatNumber, version);
     }
 }
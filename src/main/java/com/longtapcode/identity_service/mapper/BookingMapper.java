@@ -5,6 +5,8 @@ import java.util.Set;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 
+import com.longtapcode.identity_service.dto.projection.BookingDetailView;
+import com.longtapcode.identity_service.dto.projection.BookingSummaryView;
 import com.longtapcode.identity_service.dto.response.BookingDetailResponse;
 import com.longtapcode.identity_service.dto.response.BookingResponse;
 import com.longtapcode.identity_service.entity.Booking;
@@ -27,6 +29,11 @@ public interface BookingMapper {
     @Mapping(target = "price", source = "price")
     BookingDetailResponse toBookingDetailResponse(BookingDetail bookingDetail);
 
+    BookingDetailResponse toBookingDetailResponse(BookingDetailView bookingDetailView);
+
+    BookingResponse toBookingResponse(
+            BookingSummaryView bookingSummaryView, Set<BookingDetailResponse> bookingDetails);
+
     default Set<BookingDetailResponse> mapBookingDetails(Booking booking) {
         if (booking == null) return null;
 
@@ -1,9 +1,27 @@
 package com.longtapcode.identity_service.repository;
 
+import java.util.Collection;
+import java.util.List;
+
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import com.longtapcode.identity_service.dto.projection.BookingDetailView;
 import com.longtapcode.identity_service.entity.BookingDetail;
 
+import io.lettuce.core.dynamic.annotation.Param;
+
 @Repository
-public interface BookingDetailRepository extends JpaRepository<BookingDetail, Long> {}
+public interface BookingDetailRepository extends JpaRepository<BookingDetail, Long> {
+
+    // Tra theo index BookingID, chỉ lấy cột cần dùng
+    @Query("SELECT bd.seatNumber FROM BookingDetail bd WHERE bd.bookingID.id = :bookingId")
+    List<String> findSeatNumbersByBookingId(@Param("bookingId") Long bookingId);
+
+    // Chi tiết của cả một trang booking trong một câu IN
+    @Query("SELECT new com.longtapcode.identity_service.dto.projection.BookingDetailView("
+            + "bd.bookingID.id, bd.id, bd.seatNumber, bd.price) "
+            + "FROM BookingDetail bd WHERE bd.bookingID.id IN :bookingIds")
+    List<BookingDetailView> findViewsByBookingIds(@Param("bookingIds") Collection<Long> bookingIds);
+}
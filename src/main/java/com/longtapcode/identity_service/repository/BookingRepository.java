@@ -95,15 +95,19 @@
 package com.longtapcode.identity_service.repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import com.longtapcode.identity_service.dto.projection.BookingSummaryView;
 import com.longtapcode.identity_service.entity.Booking;
 import com.longtapcode.identity_service.entity.Show;
 
@@ -111,19 +115,67 @@ import io.lettuce.core.dynamic.annotation.Param;
 
 @Repository
 public interface BookingRepository extends JpaRepository<Booking, Long> {
-    @Query("SELECT b FROM Booking b WHERE "
-            + "(:userName IS NULL OR LOWER(b.id1.userName) LIKE LOWER(CONCAT('%', :userName, '%'))) AND "
+    // Trang admin: user / show / movie đọc trong cùng câu SELECT, không nạp quan hệ lazy theo từng dòng.
+    // Lọc user theo tiền tố trên cột userNameNormalized đã đánh index (mẫu lấy từ SearchText.prefixPattern)
+    @Query(
+            value = "SELECT new com.longtapcode.identity_service.dto.projection.BookingSummaryView("
+                    + "b.id, b.orderId, u.id, u.userName, u.emailAddress, s.id, m.title, s.showDateTime, "
+                    + "b.paymentMethod, b.totalPrice, b.status, b.bookingDate) "
+                    + "FROM Booking b LEFT JOIN b.id1 u LEFT JOIN b.showID s LEFT JOIN s.movieID m WHERE "
+                    + "(:userNamePrefix IS NULL OR u.userNameNormalized LIKE :userNamePrefix ESCAPE '!') AND "
+                    + "(:showId IS NULL OR s.id = :showId) AND "
+                    + "(:status IS NULL OR b.status = :status) AND "
+                    + "(:fromDate IS NULL OR b.bookingDate >= :fromDate) AND "
+                    + "(:toDate IS NULL OR b.bookingDate <= :toDate)",
+            countQuery = "SELECT COUNT(b) FROM Booking b LEFT JOIN b.id1 u WHERE "
+                    + "(:userNamePrefix IS NULL OR u.userNameNormalized LIKE :userNamePrefix ESCAPE '!') AND "
+                    + "(:showId IS NULL OR b.showID.id = :showId) AND "
+                    + "(:status IS NULL OR b.status = :status) AND "
+                    + "(:fromDate IS NULL OR b.bookingDate >= :fromDate) AND "
+                    + "(:toDate IS NULL OR b.bookingDate <= :toDate)")
+    Page<BookingSummaryView> findSummariesWithFilters(
+            @Param("userNamePrefix") String userNamePrefix,
+            @Param("showId") Long showId,
+            @Param("status") String status,
+            @Param("fromDate") LocalDateTime fromDate,
+            @Param("toDate") LocalDateTime toDate,
+            Pageable pageable);
+
+    // Keyset theo (booking_date, id) giảm dần: trang sau bắt đầu ngay sau dòng cuối trang trước, không OFFSET
+    @Query("SELECT new com.longtapcode.identity_service.dto.projection.BookingSummaryView("
+            + "b.id, b.orderId, u.id, u.userName, u.emailAddress, s.id, m.title, s.showDateTime, "
+            + "b.paymentMethod, b.totalPrice, b.status, b.bookingDate) "
+            + "FROM Booking b LEFT JOIN b.id1 u LEFT JOIN b.showID s LEFT JOIN s.movieID m WHERE "
+            + "(:userNamePrefix IS NULL OR u.userNameNormalized LIKE :userNamePrefix ESCAPE '!') AND "
+            + "(:showId IS NULL OR s.id = :showId) AND "
+            + "(:status IS NULL OR b.status = :status) AND "
+            + "(:fromDate IS NULL OR b.bookingDate >= :fromDate) AND "
+            + "(:toDate IS NULL OR b.bookingDate <= :toDate) AND "
+            + "(:afterDate IS NULL OR b.bookingDate < :afterDate "
+            + "OR (b.bookingDate = :afterDate AND b.id < :afterId)) "
+            + "ORDER BY b.bookingDate DESC, b.id DESC")
+    List<BookingSummaryView> findSummariesAfter(
+            @Param("userNamePrefix") String userNamePrefix,
+            @Param("showId") Long showId,
+            @Param("status") String status,
+            @Param("fromDate") LocalDateTime fromDate,
+            @Param("toDate") LocalDateTime toDate,
+            @Param("afterDate") LocalDateTime afterDate,
+            @Param("afterId") Long afterId,
+            Pageable limit);
+
+    @Query("SELECT COUNT(b) FROM Booking b LEFT JOIN b.id1 u WHERE "
+            + "(:userNamePrefix IS NULL OR u.userNameNormalized LIKE :userNamePrefix ESCAPE '!') AND "
             + "(:showId IS NULL OR b.showID.id = :showId) AND "
             + "(:status IS NULL OR b.status = :status) AND "
             + "(:fromDate IS NULL OR b.bookingDate >= :fromDate) AND "
             + "(:toDate IS NULL OR b.bookingDate <= :toDate)")
-    Page<Booking> findAllWithFilters(
-            @Param("userName") String userName,
+    long countWithFilters(
+            @Param("userNamePrefix") String userNamePrefix,
             @Param("showId") Long showId,
             @Param("status") String status,
             @Param("fromDate") LocalDateTime fromDate,
-            @Param("toDate") LocalDateTime toDate,
-            Pageable pageable);
+            @Param("toDate") LocalDateTime toDate);
 
     boolean existsByShowID(Show show);
 
@@ -175,7 +227,37 @@ public interface BookingRepository extends JpaRepository<Booking, Long> {
 
     Optional<Booking> findByOrderId(String orderId);
 
-    List<Booking> findByStatusAndBookingDateBefore(String status, LocalDateTime date);
+    // Quét khoảng (status, booking_date) theo index, cũ nhất trước. Mỗi dòng: id, showId, userId
+    @Query("SELECT b.id, b.showID.id, b.id1.id FROM Booking b "
+            + "WHERE b.status = :status AND b.bookingDate < :before "
+            + "ORDER BY b.bookingDate")
+    List<Object[]> findStaleByStatus(
+            @Param("status") String status, @Param("before") LocalDateTime before, Pageable pageable);
+
+    // Điều kiện status / booking_date lặp lại để không ghi đè booking vừa được callback xác nhận
+    @Transactional
+    @Modifying
+    @Query("UPDATE Booking b SET b.status = :newStatus "
+            + "WHERE b.id IN :ids AND b.status = :status AND b.bookingDate < :before")
+    int updateStaleStatus(
+            @Param("ids") Collection<Long> ids,
+            @Param("status") String status,
+            @Param("before") LocalDateTime before,
+            @Param("newStatus") String newStatus);
+
+    @Query("SELECT b.id FROM Booking b WHERE b.id IN :ids AND b.status = :status")
+    List<Long> findIdsByStatus(@Param("ids") Collection<Long> ids, @Param("status") String status);
 
     List<Booking> findTop10ById1_IdOrderByBookingDateDesc(String userId);
+
+    @Query("SELECT b.id FROM Booking b WHERE b.status = :status AND b.paymentMethod = :paymentMethod ORDER BY b.id")
+    List<Long> findIdsByStatusAndPaymentMethod(
+            @Param("status") String status, @Param("paymentMethod") String paymentMethod, Pageable pageable);
+
+    // Chỉ đổi trạng thái khi booking vẫn ở trạng thái mong đợi; trả về 0 nếu node khác đã đổi trước
+    @Transactional
+    @Modifying
+    @Query("UPDATE Booking b SET b.status = :newStatus WHERE b.id = :id AND b.status = :status")
+    int updateStatusIfCurrent(
+            @Param("id") Long id, @Param("status") String status, @Param("newStatus") String newStatus);
 }
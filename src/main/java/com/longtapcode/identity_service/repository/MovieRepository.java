@@ -37,4 +37,15 @@ public interface MovieRepository extends JpaRepository<Movie, Long> {
     List<Movie> findFavoriteMoviesByUserId(@Param("userId") String userId);
 
     Page<Movie> findByTitleContainingIgnoreCase(String title, Pageable pageable);
+
+    // Keyset theo khóa chính
+    @Query("SELECT m FROM Movie m "
+            + "WHERE (:title IS NULL OR LOWER(m.title) LIKE LOWER(CONCAT('%', :title, '%'))) "
+            + "AND (:afterId IS NULL OR m.id > :afterId) "
+            + "ORDER BY m.id")
+    List<Movie> findMoviesAfter(@Param("title") String title, @Param("afterId") Long afterId, Pageable limit);
+
+    @Query("SELECT COUNT(m) FROM Movie m "
+            + "WHERE (:title IS NULL OR LOWER(m.title) LIKE LOWER(CONCAT('%', :title, '%')))")
+    long countByTitle(@Param("title") String title);
 }
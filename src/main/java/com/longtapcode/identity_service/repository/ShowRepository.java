@@ -52,6 +52,7 @@
 
 package com.longtapcode.identity_service.repository;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
@@ -69,6 +70,13 @@ import io.lettuce.core.dynamic.annotation.Param;
 
 @Repository
 public interface ShowRepository extends JpaRepository<Show, Long> {
+    @Query("SELECT s.price FROM Show s WHERE s.id = :showId")
+    Optional<BigDecimal> findPriceById(@Param("showId") Long showId);
+
+    // Mỗi dòng: giờ chiếu, thời lượng phim (phút)
+    @Query("SELECT s.showDateTime, m.runtime FROM Show s JOIN s.movieID m WHERE s.id = :showId")
+    List<Object[]> findScheduleById(@Param("showId") Long showId);
+
     Optional<List<Show>> findByMovieID(Movie movieID);
 
     Page<Show> findByMovieID(Long movieId, Pageable pageable);
@@ -90,6 +98,37 @@ public interface ShowRepository extends JpaRepository<Show, Long> {
             @Param("endDate") LocalDateTime endDate,
             Pageable pageable);
 
+    // Keyset theo (ShowDateTime, id) tăng dần
+    @Query(
+            """
+		SELECT s FROM Show s
+		WHERE (:movieId IS NULL OR s.movieID.id = :movieId)
+		AND (:startDate IS NULL OR s.showDateTime >= :startDate)
+		AND (:endDate IS NULL OR s.showDateTime <= :endDate)
+		AND (:afterTime IS NULL OR s.showDateTime > :afterTime
+			OR (s.showDateTime = :afterTime AND s.id > :afterId))
+		ORDER BY s.showDateTime, s.id
+	""")
+    List<Show> findShowsAfter(
+            @Param("movieId") Long movieId,
+            @Param("startDate") LocalDateTime startDate,
+            @Param("endDate") LocalDateTime endDate,
+            @Param("afterTime") LocalDateTime afterTime,
+            @Param("afterId") Long afterId,
+            Pageable limit);
+
+    @Query(
+            """
+		SELECT COUNT(s) FROM Show s
+		WHERE (:movieId IS NULL OR s.movieID.id = :movieId)
+		AND (:startDate IS NULL OR s.showDateTime >= :startDate)
+		AND (:endDate IS NULL OR s.showDateTime <= :endDate)
+	""")
+    long countShowsWithFilters(
+            @Param("movieId") Long movieId,
+            @Param("startDate") LocalDateTime startDate,
+            @Param("endDate") LocalDateTime endDate);
+
     @Query(
             value =
                     """
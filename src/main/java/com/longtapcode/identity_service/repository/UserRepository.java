@@ -1,12 +1,17 @@
 package com.longtapcode.identity_service.repository;
 
+import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import com.longtapcode.identity_service.entity.User;
 
+import io.lettuce.core.dynamic.annotation.Param;
+
 @Repository
 public interface UserRepository extends JpaRepository<User, String> {
     Optional<User> findByUserName(String userName);
@@ -14,4 +19,11 @@ public interface UserRepository extends JpaRepository<User, String> {
     boolean existsByUserName(String userName);
 
     boolean existsByIdAndFavoriteMovies_Id(String userId, Long movieId);
+
+    // User tạo trước khi có cột userNameNormalized, cần điền lại
+    List<User> findByUserNameIsNotNullAndUserNameNormalizedIsNull(Pageable pageable);
+
+    // Keyset theo khóa chính
+    @Query("SELECT u FROM User u WHERE (:afterId IS NULL OR u.id > :afterId) ORDER BY u.id")
+    List<User> findUsersAfter(@Param("afterId") String afterId, Pageable limit);
 }
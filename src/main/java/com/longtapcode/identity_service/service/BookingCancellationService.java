@@ -3,19 +3,15 @@ package com.longtapcode.identity_service.service;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.HashSet;
-import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
-import org.springframework.data.redis.core.StringRedisTemplate;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.longtapcode.identity_service.constant.SeatInstanceStatus;
-import com.longtapcode.identity_service.dto.response.PaymentCreateResponse;
+import com.longtapcode.identity_service.dto.response.SeatUpdateResponse;
 import com.longtapcode.identity_service.entity.Booking;
-import com.longtapcode.identity_service.entity.BookingDetail;
 import com.longtapcode.identity_service.exception.AppException;
 import com.longtapcode.identity_service.exception.ErrorCode;
 import com.longtapcode.identity_service.repository.BookingDetailRepository;
@@ -36,8 +32,8 @@ public class BookingCancellationService {
     BookingDetailRepository bookingDetailRepository;
     PayPalService payPalService;
     VNPayService vnPayService;
-    StringRedisTemplate redisTemplate;
-    SimpMessagingTemplate messagingTemplate;
+    SeatBroadcastService seatBroadcastService;
+    SeatStateService seatStateService;
 
     @Transactional
     public Map<String, Object> cancelBookingWithRefund(Long bookingId) {
@@ -99,14 +95,15 @@ public class BookingCancellationService {
 
     private Map<String, Object> refundPayPal(Booking booking) {
         String transactionId = booking.getTransactionId();
-        BigDecimal amount = booking.getTotalPrice();
+        // Tổng tiền VND, PayPalService quy đổi sang USD như lúc capture
+        BigDecimal amountVnd = booking.getTotalPrice();
 
         if (transactionId == null || transactionId.isEmpty()) {
             throw new RuntimeException("Transaction ID not found for PayPal refund");
         }
 
         log.info("Processing PayPal refund for booking: {}", booking.getId());
-        return payPalService.refundPayPalPayment(transactionId, amount);
+        return payPalService.refundPayPalPayment(transactionId, amountVnd);
     }
 
     private Map<String, Object> refundVNPay(Booking booking) {
@@ -125,34 +122,24 @@ public class BookingCancellationService {
     private void releaseBookedSeats(Booking booking) {
         Long showId = booking.getShowID().getId();
 
-        // Get all booking details
-        List<BookingDetail> details = bookingDetailRepository.findAll().stream()
-                .filter(d -> d.getBookingID().getId().equals(booking.getId()))
-                .toList();
+        // Chỉ đọc số ghế của booking này qua index BookingID, không tải cả bảng bookingdetails
+        Set<String> seatNumbers = new HashSet<>(bookingDetailRepository.findSeatNumbersByBookingId(booking.getId()));
 
-        Set<String> seatNumbers = new HashSet<>();
-
-        for (BookingDetail detail : details) {
-            String seatNumber = detail.getSeatNumber();
-            seatNumbers.add(seatNumber);
-
-            // Remove from Redis
-            String bookedKey = "booked:" + showId + ":" + seatNumber;
-            redisTemplate.delete(bookedKey);
-
-            log.info("Released seat {} for show {}", seatNumber, showId);
-        }
+        // Remove from Redis: một lần gọi script cho mọi ghế
+        long version = seatStateService.releaseBooked(showId, seatNumbers);
+        log.info("Released seats {} for show {}", seatNumbers, showId);
 
         // Broadcast seat release via WebSocket
-        PaymentCreateResponse wsMessage = PaymentCreateResponse.builder()
+        SeatUpdateResponse wsMessage = SeatUpdateResponse.builder()
                 .showId(showId)
                 .userId(booking.getId1().getId())
                 .seatNumbers(seatNumbers)
                 .status(SeatInstanceStatus.AVAILABLE.getStatus())
                 .expiresAt(0L)
+                .version(version)
                 .build();
 
-        messagingTemplate.convertAndSend("/topic/show/" + showId, wsMessage);
+        seatBroadcastService.publish(wsMessage);
         log.info("Broadcasted seat release for show: {}", showId);
     }
 }
@@ -0,0 +1,171 @@
+package com.longtapcode.identity_service.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.longtapcode.identity_service.constant.SeatInstanceStatus;
+import com.longtapcode.identity_service.dto.response.SeatUpdateResponse;
+import com.longtapcode.identity_service.repository.BookingRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Hủy các booking PENDING bị bỏ dở quá {@code booking.expiry.pending-minutes}.
+ * <p>
+ * Mỗi lượt chỉ một node chạy (khóa {@code booking:expiry:lock} trong Redis). Mỗi batch quét khoảng
+ * (status, booking_date) theo index, chuyển sang EXPIRED bằng một câu UPDATE, rồi nhả các hold còn lại của những
+ * booking đó trong một lần pipeline.
+ */
+@Service
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@Slf4j
+public class BookingExpiryService {
+
+    static final String LOCK_KEY = "booking:expiry:lock";
+    static final String PENDING = "PENDING";
+    static final String EXPIRED = "EXPIRED";
+
+    BookingRepository bookingRepository;
+    SeatStateService seatStateService;
+    SeatBroadcastService seatBroadcastService;
+    StringRedisTemplate redisTemplate;
+    RedisLockService redisLockService;
+    Counter expiredCounter;
+    Counter releasedCounter;
+    Timer runTimer;
+
+    @NonFinal
+    @Value("${booking.expiry.pending-minutes:30}")
+    long pendingMinutes;
+
+    @NonFinal
+    @Value("${booking.expiry.batch-size:500}")
+    int batchSize;
+
+    // Giới hạn số batch mỗi lượt để một lượt không giữ khóa quá lâu
+    @NonFinal
+    @Value("${booking.expiry.max-batches:20}")
+    int maxBatches;
+
+    public BookingExpiryService(
+            BookingRepository bookingRepository,
+            SeatStateService seatStateService,
+            SeatBroadcastService seatBroadcastService,
+            StringRedisTemplate redisTemplate,
+            RedisLockService redisLockService,
+            MeterRegistry meterRegistry) {
+        this.bookingRepository = bookingRepository;
+        this.seatStateService = seatStateService;
+        this.seatBroadcastService = seatBroadcastService;
+        this.redisTemplate = redisTemplate;
+        this.redisLockService = redisLockService;
+        this.expiredCounter = Counter.builder("booking.expiry.expired")
+                .description("PENDING bookings moved to EXPIRED")
+                .register(meterRegistry);
+        this.releasedCounter = Counter.builder("booking.expiry.holds.released")
+                .description("Expired bookings whose remaining seat holds were released")
+                .register(meterRegistry);
+        this.runTimer = Timer.builder("booking.expiry.duration")
+                .description("Duration of one booking expiry pass")
+                .register(meterRegistry);
+    }
+
+    public static String pendingSeatsKey(Long bookingId) {
+        return "booking_pending_seats:" + bookingId;
+    }
+
+    /**
+     * Ghi lại ghế của booking PENDING để khi hết hạn chỉ nhả đúng các hold đó.
+     */
+    public void trackPending(Long bookingId, Collection<String> seatNumbers) {
+        redisTemplate
+                .opsForValue()
+                .set(pendingSeatsKey(bookingId), String.join(",", seatNumbers), Duration.ofMinutes(pendingMinutes * 2));
+    }
+
+    @Scheduled(fixedDelayString = "${booking.expiry.interval-ms:60000}")
+    public void expireStaleBookings() {
+        if (!redisLockService.tryLock(LOCK_KEY, Duration.ofMinutes(5))) return;
+
+        Timer.Sample sample = Timer.start();
+        try {
+            LocalDateTime cutoff = LocalDateTime.now().minusMinutes(pendingMinutes);
+            for (int i = 0; i < maxBatches; i++) {
+                if (expireBatch(cutoff) < batchSize) break;
+            }
+        } catch (Exception e) {
+            log.error("Booking expiry failed", e);
+        } finally {
+            sample.stop(runTimer);
+            redisLockService.unlock(LOCK_KEY);
+        }
+    }
+
+    /**
+     * Xử lý một batch, trả về số booking đã đọc.
+     */
+    int expireBatch(LocalDateTime cutoff) {
+        List<Object[]> rows = bookingRepository.findStaleByStatus(PENDING, cutoff, PageRequest.of(0, batchSize));
+        if (rows.isEmpty()) return 0;
+
+        List<Long> ids = rows.stream().map(row -> (Long) row[0]).toList();
+        int updated = bookingRepository.updateStaleStatus(ids, PENDING, cutoff, EXPIRED);
+        expiredCounter.increment(updated);
+        if (updated > 0) log.info("Expired {} pending bookings older than {}", updated, cutoff);
+
+        // Booking được xác nhận giữa lúc đọc và UPDATE thì không nhả hold của nó
+        Set<Long> expired = updated == ids.size()
+                ? new HashSet<>(ids)
+                : new HashSet<>(bookingRepository.findIdsByStatus(ids, EXPIRED));
+        releaseHolds(rows, expired);
+        return rows.size();
+    }
+
+    private void releaseHolds(List<Object[]> rows, Set<Long> expired) {
+        List<String> keys = rows.stream()
+                .map(row -> pendingSeatsKey((Long) row[0]))
+                .toList();
+        List<String> seats = redisTemplate.opsForValue().multiGet(keys);
+        redisTemplate.delete(keys);
+        if (seats == null || expired.isEmpty()) return;
+
+        List<SeatStateService.HoldRelease> releases = new ArrayList<>();
+        for (int i = 0; i < rows.size(); i++) {
+            Object[] row = rows.get(i);
+            String seatList = seats.get(i);
+            if (seatList == null || seatList.isEmpty() || !expired.contains((Long) row[0])) continue;
+            releases.add(new SeatStateService.HoldRelease(
+                    (Long) row[1], (String) row[2], List.of(seatList.split(","))));
+        }
+        if (releases.isEmpty()) return;
+
+        List<Long> versions = seatStateService.releaseAllPipelined(releases);
+        for (int i = 0; i < releases.size(); i++) {
+            long version = versions.get(i);
+            if (version == 0) continue;
+            SeatStateService.HoldRelease release = releases.get(i);
+            releasedCounter.increment();
+            seatBroadcastService.publish(SeatUpdateResponse.builder()
+                    .showId(release.showId())
+                    .userId(release.userId())
+                    .seatNumbers(new HashSet<>(release.seatNumbers()))
+                    .status(SeatInstanceStatus.AVAILABLE.getStatus())
+                    .expiresAt(0L)
+                    .version(version)
+                    .build());
+        }
+    }
+}
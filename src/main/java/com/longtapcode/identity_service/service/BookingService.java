@@ -3,6 +3,7 @@ package com.longtapcode.identity_service.service;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import org.springframework.data.domain.Page;
@@ -12,12 +13,19 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.longtapcode.identity_service.Util.PageCursor;
+import com.longtapcode.identity_service.Util.SearchText;
+import com.longtapcode.identity_service.dto.projection.BookingDetailView;
+import com.longtapcode.identity_service.dto.projection.BookingSummaryView;
+import com.longtapcode.identity_service.dto.response.BookingDetailResponse;
 import com.longtapcode.identity_service.dto.response.BookingResponse;
 import com.longtapcode.identity_service.dto.response.BookingStatisticsResponse;
+import com.longtapcode.identity_service.dto.response.CursorPageResponse;
 import com.longtapcode.identity_service.entity.Booking;
 import com.longtapcode.identity_service.exception.AppException;
 import com.longtapcode.identity_service.exception.ErrorCode;
 import com.longtapcode.identity_service.mapper.BookingMapper;
+import com.longtapcode.identity_service.repository.BookingDetailRepository;
 import com.longtapcode.identity_service.repository.BookingRepository;
 
 import lombok.AccessLevel;
@@ -31,6 +39,7 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class BookingService {
     BookingRepository bookingRepository;
+    BookingDetailRepository bookingDetailRepository;
     BookingMapper bookingMapper;
 
     @PreAuthorize("hasRole('ADMIN')")
@@ -42,10 +51,66 @@ public class BookingService {
             LocalDateTime fromDate,
             LocalDateTime toDate) {
 
-        Page<Booking> bookings =
-                bookingRepository.findAllWithFilters(userName, showId, status, fromDate, toDate, pageable);
+        // 1 câu cho trang (kèm user / show / movie) + 1 câu IN cho chi tiết ghế, không phụ thuộc số dòng
+        String userNamePrefix = SearchText.prefixPattern(userName);
+        Page<BookingSummaryView> bookings =
+                bookingRepository.findSummariesWithFilters(userNamePrefix, showId, status, fromDate, toDate, pageable);
 
-        return bookings.map(bookingMapper::toBookingResponse);
+        Map<Long, Set<BookingDetailResponse>> detailsByBooking = detailsOf(bookings.getContent());
+        return bookings.map(summary -> bookingMapper.toBookingResponse(
+                summary, detailsByBooking.getOrDefault(summary.id(), Set.of())));
+    }
+
+    /**
+     * Bản keyset của {@link #getAllBookingsForAdmin}: mới nhất trước theo (bookingDate, id), chỉ đếm tổng khi được
+     * yêu cầu.
+     */
+    @PreAuthorize("hasRole('ADMIN')")
+    public CursorPageResponse<BookingResponse> getBookingsForAdminByCursor(
+            String cursor,
+            int size,
+            String userName,
+            Long showId,
+            String status,
+            LocalDateTime fromDate,
+            LocalDateTime toDate,
+            boolean includeTotal) {
+        int limit = PageCursor.pageSize(size);
+        String[] after = PageCursor.decode(cursor, 2);
+        LocalDateTime afterDate = after == null ? null : PageCursor.parseDateTime(after[0]);
+        Long afterId = after == null ? null : PageCursor.parseLong(after[1]);
+
+        String userNamePrefix = SearchText.prefixPattern(userName);
+        List<BookingSummaryView> rows = bookingRepository.findSummariesAfter(
+                userNamePrefix, showId, status, fromDate, toDate, afterDate, afterId, PageRequest.of(0, limit + 1));
+        List<BookingSummaryView> content = PageCursor.trim(rows, limit);
+        boolean hasNext = rows.size() > limit;
+        BookingSummaryView last = hasNext ? content.get(content.size() - 1) : null;
+
+        Map<Long, Set<BookingDetailResponse>> detailsByBooking = detailsOf(content);
+        return CursorPageResponse.<BookingResponse>builder()
+                .content(content.stream()
+                        .map(summary -> bookingMapper.toBookingResponse(
+                                summary, detailsByBooking.getOrDefault(summary.id(), Set.of())))
+                        .toList())
+                .size(limit)
+                .hasNext(hasNext)
+                .nextCursor(hasNext ? PageCursor.encode(last.bookingDate(), last.id()) : null)
+                .totalElements(
+                        includeTotal
+                                ? bookingRepository.countWithFilters(userNamePrefix, showId, status, fromDate, toDate)
+                                : null)
+                .build();
+    }
+
+    // Chi tiết ghế của cả trang trong một câu IN, gom theo booking
+    private Map<Long, Set<BookingDetailResponse>> detailsOf(List<BookingSummaryView> summaries) {
+        if (summaries.isEmpty()) return Map.of();
+        List<Long> bookingIds = summaries.stream().map(BookingSummaryView::id).toList();
+        return bookingDetailRepository.findViewsByBookingIds(bookingIds).stream()
+                .collect(Collectors.groupingBy(
+                        BookingDetailView::bookingId,
+                        Collectors.mapping(bookingMapper::toBookingDetailResponse, Collectors.toSet())));
     }
 
     @PreAuthorize("hasRole('ADMIN')")
@@ -0,0 +1,112 @@
+package com.longtapcode.identity_service.service;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import org.springframework.stereotype.Service;
+
+import com.longtapcode.identity_service.constant.SeatInstanceStatus;
+import com.longtapcode.identity_service.dto.response.SeatUpdateResponse;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+/**
+ * Định dạng nhị phân gọn cho {@code /topic/show/{showId}/compact} (big-endian):
+ *
+ * <pre>
+ * u8  format (= 1)
+ * u8  flags (bit 0: snapshot)
+ * i64 version
+ * i64 serverTimeMillis
+ * u16 count
+ * count × { u16 seatIndex, u8 status (0 AVAILABLE, 1 HELD, 2 BOOKED), u16 ttlSeconds, i32 userHash }
+ * </pre>
+ *
+ * seatIndex là chỉ số ghế trong danh mục ({@link SeatCatalogService}, bảng chỉ số → ghế ở {@code GET /seat/catalog}),
+ * userHash là FNV-1a 32 bit của userId (0 nếu không có) để client tự nhận ra ghế mình đang giữ.
+ */
+@Service
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class CompactSeatFrameEncoder {
+
+    public static final byte FORMAT = 1;
+    public static final int HEADER_BYTES = 20;
+    public static final int ENTRY_BYTES = 9;
+
+    static final byte STATUS_AVAILABLE = 0;
+    static final byte STATUS_HELD = 1;
+    static final byte STATUS_BOOKED = 2;
+
+    SeatCatalogService seatCatalogService;
+
+    public byte[] encode(long version, boolean snapshot, List<SeatUpdateResponse> updates) {
+        long now = System.currentTimeMillis();
+        int count = 0;
+        for (SeatUpdateResponse update : updates) {
+            count += seatsOf(update).size();
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + count * ENTRY_BYTES);
+        buffer.put(FORMAT);
+        buffer.put((byte) (snapshot ? 1 : 0));
+        buffer.putLong(version);
+        buffer.putLong(now);
+        int countPosition = buffer.position();
+        buffer.putShort((short) 0);
+
+        int written = 0;
+        for (SeatUpdateResponse update : updates) {
+            byte status = statusOf(update.getStatus());
+            int ttlSeconds = ttlSeconds(update.getExpiresAt(), now);
+            int userHash = userHash(update.getUserId());
+            for (String seatNumber : seatsOf(update)) {
+                int index = seatCatalogService.indexOf(seatNumber);
+                if (index < 0 || index > 0xFFFF) continue;
+                buffer.putShort((short) index);
+                buffer.put(status);
+                buffer.putShort((short) ttlSeconds);
+                buffer.putInt(userHash);
+                written++;
+            }
+        }
+        buffer.putShort(countPosition, (short) written);
+
+        // Ghế không có trong danh mục bị bỏ qua → cắt phần thừa
+        byte[] frame = buffer.array();
+        int length = HEADER_BYTES + written * ENTRY_BYTES;
+        return length == frame.length ? frame : Arrays.copyOf(frame, length);
+    }
+
+    private static Collection<String> seatsOf(SeatUpdateResponse update) {
+        if (update.getSeatNumbers() != null && !update.getSeatNumbers().isEmpty()) return update.getSeatNumbers();
+        return update.getSeatNumber() != null ? Set.of(update.getSeatNumber()) : Set.of();
+    }
+
+    static byte statusOf(String status) {
+        if (SeatInstanceStatus.HELD.getStatus().equals(status)) return STATUS_HELD;
+        if (SeatInstanceStatus.BOOKED.getStatus().equals(status)) return STATUS_BOOKED;
+        return STATUS_AVAILABLE;
+    }
+
+    private static int ttlSeconds(Long expiresAt, long now) {
+        if (expiresAt == null || expiresAt <= now) return 0;
+        return (int) Math.min((expiresAt - now + 999) / 1000, 0xFFFF);
+    }
+
+    public static int userHash(String userId) {
+        if (userId == null) return 0;
+        int hash = 0x811C9DC5;
+        for (byte b : userId.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xFF;
+            hash *= 0x01000193;
+        }
+        return hash;
+    }
+}
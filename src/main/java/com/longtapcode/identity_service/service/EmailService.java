@@ -2,6 +2,8 @@ package com.longtapcode.identity_service.service;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.HashMap;
@@ -11,8 +13,10 @@ import jakarta.mail.MessagingException;
 import jakarta.mail.internet.MimeMessage;
 
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Service;
@@ -30,8 +34,13 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class EmailService {
 
+    static final String SENT_KEY_PREFIX = "email:booking-confirmed:";
+    // Dài hơn mọi khoảng thời gian outbox có thể gửi lại một event
+    static final Duration SENT_KEY_TTL = Duration.ofDays(7);
+
     private final JavaMailSender mailSender;
     private final TemplateEngine templateEngine;
+    private final StringRedisTemplate redisTemplate;
 
     @Value("${spring.mail.from:Cinema Booking <noreply@cinema.com>}")
     private String fromEmail;
@@ -46,7 +55,10 @@ public class EmailService {
             topics = "${spring.kafka.topics.booking-confirmed}",
             groupId = "${spring.kafka.consumer.group-id}",
             containerFactory = "kafkaListenerContainerFactory")
-    public void handleBookingConfirmed(BookingConfirmedEvent event, Acknowledgment acknowledgment) {
+    public void handleBookingConfirmed(
+            BookingConfirmedEvent event,
+            @Header(name = KafkaProducerService.OUTBOX_ID_HEADER, required = false) byte[] outboxId,
+            Acknowledgment acknowledgment) {
         log.info(
                 "📧 Received BookingConfirmedEvent - BookingId: {}, Email: {}",
                 event.getBookingId(),
@@ -59,7 +71,22 @@ public class EmailService {
                 return;
             }
 
-            sendBookingConfirmationEmail(event);
+            // Outbox relay gửi lại cả event đã tới Kafka khi một event trước nó lỗi: mỗi outbox id chỉ gửi mail một lần
+            String sentKey = outboxId == null ? null : SENT_KEY_PREFIX + new String(outboxId, StandardCharsets.UTF_8);
+            if (sentKey != null
+                    && !Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(sentKey, "1", SENT_KEY_TTL))) {
+                log.info("Duplicate outbox event for booking {}, email already sent", event.getBookingId());
+                acknowledgment.acknowledge();
+                return;
+            }
+
+            try {
+                sendBookingConfirmationEmail(event);
+            } catch (Exception e) {
+                // Gửi lỗi thì nhả key để lần retry của Kafka gửi lại được
+                if (sentKey != null) redisTemplate.delete(sentKey);
+                throw e;
+            }
 
             acknowledgment.acknowledge();
             log.info("✅ Email sent successfully for booking: {}", event.getBookingId());
@@ -0,0 +1,72 @@
+package com.longtapcode.identity_service.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Dọn các hold hết hạn theo sorted set {@code seatstate:hold-expiry}, không phụ thuộc keyspace notification.
+ * Script sweep ZREM từng entry nên dù nhiều node cùng chạy, mỗi lần hết hạn chỉ được xử lý và broadcast một lần.
+ */
+@Service
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@Slf4j
+public class HoldExpirySweeper {
+
+    SeatStateService seatStateService;
+    SeatHoldService seatHoldService;
+    Counter expiredCounter;
+    AtomicLong lagMillis = new AtomicLong();
+
+    @NonFinal
+    @Value("${seat.hold-expiry.batch-size:200}")
+    int batchSize;
+
+    // Giới hạn số batch mỗi lượt để một lượt sweep không chiếm scheduler quá lâu
+    @NonFinal
+    @Value("${seat.hold-expiry.max-batches:10}")
+    int maxBatches;
+
+    public HoldExpirySweeper(
+            SeatStateService seatStateService, SeatHoldService seatHoldService, MeterRegistry meterRegistry) {
+        this.seatStateService = seatStateService;
+        this.seatHoldService = seatHoldService;
+        this.expiredCounter = Counter.builder("seat.hold.expired")
+                .description("Seat holds released by the expiry sweeper")
+                .register(meterRegistry);
+        Gauge.builder("seat.hold.expiry.lag", lagMillis, AtomicLong::get)
+                .description("Largest delay between a hold's expiry time and its release in the last sweep")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${seat.hold-expiry.sweep-interval-ms:500}")
+    public void sweep() {
+        long maxLag = 0;
+        try {
+            for (int i = 0; i < maxBatches; i++) {
+                SeatStateService.SweepResult result = seatStateService.sweepExpiredHolds(batchSize);
+                maxLag = Math.max(maxLag, result.maxLagMillis());
+                for (SeatStateService.ExpiredHold hold : result.expired()) {
+                    expiredCounter.increment();
+                    seatHoldService.onHoldExpired(hold.showId(), hold.seatNumber(), hold.version());
+                }
+                if (result.due() < batchSize) break;
+            }
+        } catch (Exception e) {
+            log.error("Hold expiry sweep failed", e);
+        } finally {
+            lagMillis.set(maxLag);
+        }
+    }
+}
@@ -1,13 +1,14 @@
 package com.longtapcode.identity_service.service;
 
+import java.nio.charset.StandardCharsets;
 import java.util.concurrent.CompletableFuture;
 
-import org.springframework.beans.factory.annotation.Value;
+import org.apache.kafka.clients.producer.ProducerRecord;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Service;
 
-import com.longtapcode.identity_service.dto.event.BookingConfirmedEvent;
+import com.longtapcode.identity_service.entity.OutboxEvent;
 
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
@@ -20,38 +21,21 @@ import lombok.extern.slf4j.Slf4j;
 @FieldDefaults(level = AccessLevel.PRIVATE)
 public class KafkaProducerService {
 
-    final KafkaTemplate<String, BookingConfirmedEvent> kafkaTemplate;
-
-    @Value("${spring.kafka.topics.booking-confirmed}")
-    String bookingConfirmedTopic;
-
-    public void publishBookingConfirmed(BookingConfirmedEvent event) {
-        log.info(
-                "Publishing BookingConfirmedEvent to Kafka - BookingId: {}, OrderId: {}",
-                event.getBookingId(),
-                event.getOrderId());
-
-        try {
-            CompletableFuture<SendResult<String, BookingConfirmedEvent>> future =
-                    kafkaTemplate.send(bookingConfirmedTopic, event.getOrderId(), event);
-
-            future.whenComplete((result, ex) -> {
-                if (ex == null) {
-                    log.info(
-                            "✅ Event published successfully - Topic: {}, Partition: {}, Offset: {}",
-                            result.getRecordMetadata().topic(),
-                            result.getRecordMetadata().partition(),
-                            result.getRecordMetadata().offset());
-                } else {
-                    log.error(
-                            "❌ Failed to publish event - BookingId: {}, Error: {}",
-                            event.getBookingId(),
-                            ex.getMessage(),
-                            ex);
-                }
-            });
-        } catch (Exception e) {
-            log.error("❌ Exception while publishing event - BookingId: {}", event.getBookingId(), e);
-        }
+    // Consumer dùng header này để bỏ qua bản gửi lặp (relay gửi lại sau lỗi là at-least-once)
+    public static final String OUTBOX_ID_HEADER = "outbox-id";
+    public static final String EVENT_TYPE_HEADER = "event-type";
+
+    final KafkaTemplate<String, String> kafkaTemplate;
+
+    /**
+     * Gửi payload JSON đã lưu trong outbox nguyên trạng, key giữ nguyên để các sự kiện của cùng một order vào cùng
+     * partition theo đúng thứ tự.
+     */
+    public CompletableFuture<SendResult<String, String>> send(OutboxEvent event) {
+        ProducerRecord<String, String> record =
+                new ProducerRecord<>(event.getTopic(), event.getMessageKey(), event.getPayload());
+        record.headers().add(OUTBOX_ID_HEADER, String.valueOf(event.getId()).getBytes(StandardCharsets.UTF_8));
+        record.headers().add(EVENT_TYPE_HEADER, event.getEventType().getBytes(StandardCharsets.UTF_8));
+        return kafkaTemplate.send(record);
     }
 }
@@ -0,0 +1,31 @@
+package com.longtapcode.identity_service.service;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Service;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+@Service
+@ConditionalOnProperty(name = "seat.broadcast.fanout", havingValue = "local", matchIfMissing = true)
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class LocalShowEventFanout implements ShowEventFanout {
+
+    SimpMessagingTemplate messagingTemplate;
+
+    @Override
+    public void publish(Long showId, Object payload) {
+        messagingTemplate.convertAndSend(SeatBroadcastService.showTopic(showId), payload);
+    }
+
+    @Override
+    public void publishCompact(Long showId, byte[] frame) {
+        messagingTemplate.send(
+                SeatBroadcastService.compactTopic(showId),
+                MessageBuilder.createMessage(frame, SeatBroadcastService.compactHeaders()));
+    }
+}
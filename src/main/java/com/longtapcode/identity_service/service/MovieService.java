@@ -8,8 +8,10 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Service;
 
+import com.longtapcode.identity_service.Util.PageCursor;
 import com.longtapcode.identity_service.dto.request.admin.MovieRequest;
 import com.longtapcode.identity_service.dto.request.admin.UpdateMovieRequest;
+import com.longtapcode.identity_service.dto.response.CursorPageResponse;
 import com.longtapcode.identity_service.dto.response.MovieResponse;
 import com.longtapcode.identity_service.entity.Movie;
 import com.longtapcode.identity_service.exception.AppException;
@@ -96,6 +98,30 @@ public class MovieService {
         return movies.map(movieMapper::toMovieResponse);
     }
 
+    /**
+     * Bản keyset của {@link #getAllMoviesForAdmin}: sắp theo id, chỉ đếm tổng khi được yêu cầu.
+     */
+    @PreAuthorize("hasRole('ADMIN')")
+    public CursorPageResponse<MovieResponse> getMoviesForAdminByCursor(
+            String cursor, int size, String search, boolean includeTotal) {
+        int limit = PageCursor.pageSize(size);
+        String[] after = PageCursor.decode(cursor, 1);
+        Long afterId = after == null ? null : PageCursor.parseLong(after[0]);
+        String title = search != null && !search.isEmpty() ? search : null;
+
+        List<Movie> rows = movieRepository.findMoviesAfter(title, afterId, PageRequest.of(0, limit + 1));
+        List<Movie> movies = PageCursor.trim(rows, limit);
+        boolean hasNext = rows.size() > limit;
+
+        return CursorPageResponse.<MovieResponse>builder()
+                .content(movieMapper.toListMovieResponse(movies))
+                .size(limit)
+                .hasNext(hasNext)
+                .nextCursor(hasNext ? PageCursor.encode(movies.get(movies.size() - 1).getId()) : null)
+                .totalElements(includeTotal ? movieRepository.countByTitle(title) : null)
+                .build();
+    }
+
     @PreAuthorize("hasRole('ADMIN')")
     public MovieResponse createMovie(MovieRequest request) {
         Movie movie = movieMapper.toMovie(request);
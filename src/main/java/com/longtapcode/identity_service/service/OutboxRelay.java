@@ -0,0 +1,166 @@
+package com.longtapcode.identity_service.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.longtapcode.identity_service.entity.OutboxEvent;
+import com.longtapcode.identity_service.repository.OutboxEventRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Chuyển sự kiện từ bảng outbox sang Kafka theo batch.
+ * <p>
+ * Mỗi lượt chỉ một node chạy (khóa {@code outbox:relay:lock} trong Redis) để giữ thứ tự theo {@code id}. Cả batch
+ * được gửi bất đồng bộ để producer gom thành ít request (linger + nén), sau đó phần đầu batch gửi thành công (trước
+ * bản lỗi đầu tiên) được đánh dấu {@code published_at} bằng một câu UPDATE. Bản lỗi và mọi bản sau nó giữ nguyên để
+ * lượt sau gửi lại đúng thứ tự; bản sau đã tới Kafka sẽ bị gửi lặp, consumer bỏ qua theo header
+ * {@link KafkaProducerService#OUTBOX_ID_HEADER}.
+ */
+@Service
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@Slf4j
+public class OutboxRelay {
+
+    static final String LOCK_KEY = "outbox:relay:lock";
+
+    OutboxEventRepository outboxEventRepository;
+    KafkaProducerService kafkaProducerService;
+    RedisLockService redisLockService;
+    Counter publishedCounter;
+    Counter failedCounter;
+    AtomicLong pending = new AtomicLong();
+    AtomicLong lagMillis = new AtomicLong();
+
+    @NonFinal
+    @Value("${outbox.relay.batch-size:200}")
+    int batchSize;
+
+    @NonFinal
+    @Value("${outbox.relay.max-batches:10}")
+    int maxBatches;
+
+    @NonFinal
+    @Value("${outbox.relay.send-timeout-ms:10000}")
+    long sendTimeoutMillis;
+
+    @NonFinal
+    @Value("${outbox.retention-hours:72}")
+    long retentionHours;
+
+    public OutboxRelay(
+            OutboxEventRepository outboxEventRepository,
+            KafkaProducerService kafkaProducerService,
+            RedisLockService redisLockService,
+            MeterRegistry meterRegistry) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.kafkaProducerService = kafkaProducerService;
+        this.redisLockService = redisLockService;
+        this.publishedCounter = Counter.builder("outbox.published")
+                .description("Outbox events delivered to Kafka")
+                .register(meterRegistry);
+        this.failedCounter = Counter.builder("outbox.failed")
+                .description("Outbox sends that failed and will be retried")
+                .register(meterRegistry);
+        Gauge.builder("outbox.pending", pending, AtomicLong::get)
+                .description("Outbox events not yet delivered to Kafka")
+                .register(meterRegistry);
+        Gauge.builder("outbox.lag", lagMillis, AtomicLong::get)
+                .description("Age of the oldest undelivered outbox event")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.relay.interval-ms:500}")
+    public void relay() {
+        if (!redisLockService.tryLock(LOCK_KEY, Duration.ofMillis(sendTimeoutMillis * (maxBatches + 1L)))) return;
+        try {
+            for (int i = 0; i < maxBatches; i++) {
+                if (relayBatch() < batchSize) break;
+            }
+            refreshMetrics();
+        } catch (Exception e) {
+            log.error("Outbox relay failed", e);
+        } finally {
+            redisLockService.unlock(LOCK_KEY);
+        }
+    }
+
+    /**
+     * Gửi một batch, trả về số sự kiện đã đọc. Dừng các batch tiếp theo nếu có bản lỗi để không vượt qua nó.
+     */
+    int relayBatch() {
+        List<OutboxEvent> batch =
+                outboxEventRepository.findByPublishedAtIsNullOrderByIdAsc(PageRequest.of(0, batchSize));
+        if (batch.isEmpty()) return 0;
+
+        List<CompletableFuture<SendResult<String, String>>> futures = new ArrayList<>(batch.size());
+        for (OutboxEvent event : batch) {
+            try {
+                futures.add(kafkaProducerService.send(event));
+            } catch (RuntimeException e) {
+                futures.add(CompletableFuture.failedFuture(e));
+            }
+        }
+
+        // Dừng ở bản lỗi đầu tiên: các bản sau không được đánh dấu dù đã gửi được, để không vượt qua bản lỗi
+        List<Long> published = new ArrayList<>(batch.size());
+        Long failed = null;
+        for (int i = 0; i < batch.size() && failed == null; i++) {
+            Long id = batch.get(i).getId();
+            try {
+                futures.get(i).get(sendTimeoutMillis, TimeUnit.MILLISECONDS);
+                published.add(id);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failed = id;
+            } catch (Exception e) {
+                log.warn("Outbox event {} could not be sent, it and later events will be retried", id, e);
+                failed = id;
+            }
+        }
+
+        if (!published.isEmpty()) {
+            outboxEventRepository.markPublished(published, LocalDateTime.now());
+            publishedCounter.increment(published.size());
+        }
+        if (failed != null) {
+            outboxEventRepository.incrementAttempts(List.of(failed));
+            failedCounter.increment();
+            return 0;
+        }
+        return batch.size();
+    }
+
+    private void refreshMetrics() {
+        pending.set(outboxEventRepository.countByPublishedAtIsNull());
+        lagMillis.set(outboxEventRepository
+                .findFirstByPublishedAtIsNullOrderByIdAsc()
+                .map(oldest -> Duration.between(oldest.getCreatedAt(), LocalDateTime.now())
+                        .toMillis())
+                .orElse(0L));
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.cleanup-interval-ms:3600000}")
+    public void purgePublished() {
+        int deleted = outboxEventRepository.deletePublishedBefore(LocalDateTime.now().minusHours(retentionHours));
+        if (deleted > 0) log.info("Purged {} published outbox events", deleted);
+    }
+}
@@ -0,0 +1,68 @@
+package com.longtapcode.identity_service.service;
+
+import java.time.LocalDateTime;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.longtapcode.identity_service.dto.event.BookingConfirmedEvent;
+import com.longtapcode.identity_service.entity.OutboxEvent;
+import com.longtapcode.identity_service.repository.OutboxEventRepository;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Ghi sự kiện vào bảng outbox trong transaction đang chạy. Sự kiện chỉ tồn tại nếu transaction commit, và
+ * {@link OutboxRelay} mới là nơi gửi Kafka, nên rollback không còn sinh email "ma" và Kafka lỗi không làm mất email.
+ */
+@Service
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@Slf4j
+public class OutboxService {
+
+    public static final String BOOKING_CONFIRMED = "BOOKING_CONFIRMED";
+
+    OutboxEventRepository outboxEventRepository;
+    ObjectMapper objectMapper;
+
+    @NonFinal
+    @Value("${spring.kafka.topics.booking-confirmed}")
+    String bookingConfirmedTopic;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueueBookingConfirmed(BookingConfirmedEvent event) {
+        enqueue(
+                BOOKING_CONFIRMED,
+                String.valueOf(event.getBookingId()),
+                bookingConfirmedTopic,
+                event.getOrderId(),
+                event);
+    }
+
+    private void enqueue(String eventType, String aggregateId, String topic, String key, Object payload) {
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize " + eventType + " for " + aggregateId, e);
+        }
+        outboxEventRepository.save(OutboxEvent.builder()
+                .aggregateId(aggregateId)
+                .eventType(eventType)
+                .topic(topic)
+                .messageKey(key)
+                .payload(json)
+                .createdAt(LocalDateTime.now())
+                .build());
+        log.info("Queued {} for {} in outbox", eventType, aggregateId);
+    }
+}
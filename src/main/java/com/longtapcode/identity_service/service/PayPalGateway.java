@@ -0,0 +1,95 @@
+package com.longtapcode.identity_service.service;
+
+import java.io.IOException;
+import java.time.Duration;
+
+import jakarta.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.paypal.core.PayPalHttpClient;
+import com.paypal.http.exceptions.HttpException;
+import com.paypal.orders.Order;
+import com.paypal.orders.OrdersCaptureRequest;
+import com.paypal.orders.OrdersCreateRequest;
+import com.paypal.payments.CapturesRefundRequest;
+import com.paypal.payments.Refund;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Cổng gọi PayPal duy nhất của ứng dụng: mọi lời gọi create / capture / refund đi qua {@link ProviderCallGuard}
+ * (bulkhead, timeout từng thao tác, circuit breaker, metric) thay vì dùng thẳng {@link PayPalHttpClient}.
+ * <p>
+ * Create và capture gửi kèm header {@code PayPal-Request-Id} để lần gọi lại sau timeout không tạo order / capture
+ * trùng phía PayPal.
+ */
+@Service
+@Slf4j
+public class PayPalGateway {
+
+    static final String PROVIDER = "paypal";
+    static final String REQUEST_ID_HEADER = "PayPal-Request-Id";
+
+    private final PayPalHttpClient payPalHttpClient;
+    private final ProviderCallGuard guard;
+    private final Duration createTimeout;
+    private final Duration captureTimeout;
+    private final Duration refundTimeout;
+
+    public PayPalGateway(
+            PayPalHttpClient payPalHttpClient,
+            MeterRegistry meterRegistry,
+            @Value("${paypal.gateway.max-concurrent-calls:20}") int maxConcurrentCalls,
+            @Value("${paypal.gateway.max-wait-ms:100}") long maxWaitMillis,
+            @Value("${paypal.gateway.create-timeout-ms:10000}") long createTimeoutMillis,
+            @Value("${paypal.gateway.capture-timeout-ms:20000}") long captureTimeoutMillis,
+            @Value("${paypal.gateway.refund-timeout-ms:20000}") long refundTimeoutMillis,
+            @Value("${paypal.gateway.circuit-breaker.window-size:20}") int windowSize,
+            @Value("${paypal.gateway.circuit-breaker.minimum-calls:10}") int minimumCalls,
+            @Value("${paypal.gateway.circuit-breaker.failure-rate-percent:50}") int failureRatePercent,
+            @Value("${paypal.gateway.circuit-breaker.open-ms:30000}") long openMillis) {
+        this.payPalHttpClient = payPalHttpClient;
+        this.createTimeout = Duration.ofMillis(createTimeoutMillis);
+        this.captureTimeout = Duration.ofMillis(captureTimeoutMillis);
+        this.refundTimeout = Duration.ofMillis(refundTimeoutMillis);
+        this.guard = new ProviderCallGuard(
+                PROVIDER,
+                new ProviderCallGuard.Settings(
+                        maxConcurrentCalls, maxWaitMillis, windowSize, minimumCalls, failureRatePercent, openMillis),
+                PayPalGateway::isProviderFailure,
+                meterRegistry);
+    }
+
+    public Order createOrder(OrdersCreateRequest request, String requestId) throws IOException {
+        request.header(REQUEST_ID_HEADER, requestId);
+        return guard.call("create", createTimeout, () -> payPalHttpClient.execute(request).result());
+    }
+
+    public Order captureOrder(String paypalOrderId) throws IOException {
+        OrdersCaptureRequest request = new OrdersCaptureRequest(paypalOrderId);
+        request.header(REQUEST_ID_HEADER, "capture-" + paypalOrderId);
+        return guard.call("capture", captureTimeout, () -> payPalHttpClient.execute(request).result());
+    }
+
+    public Refund refund(CapturesRefundRequest request) throws IOException {
+        return guard.call("refund", refundTimeout, () -> payPalHttpClient.execute(request).result());
+    }
+
+    /**
+     * 4xx (order không hợp lệ, đã capture...) là lỗi nghiệp vụ, không làm mở circuit; 429, 5xx và lỗi mạng thì có.
+     */
+    static boolean isProviderFailure(Throwable error) {
+        if (error instanceof HttpException http) {
+            return http.statusCode() == 429 || http.statusCode() >= 500;
+        }
+        return error instanceof IOException;
+    }
+
+    @PreDestroy
+    public void close() {
+        guard.close();
+    }
+}
@@ -3,23 +3,17 @@ package com.longtapcode.identity_service.service;
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.time.Duration;
 import java.util.*;
-import java.util.concurrent.TimeUnit;
 
 import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 
 import com.longtapcode.identity_service.configuration.PayPalConfig;
-import com.longtapcode.identity_service.constant.SeatInstanceStatus;
 import com.longtapcode.identity_service.dto.request.PaymentCreateRequest;
 import com.longtapcode.identity_service.dto.response.PaymentCreateResponse;
-import com.longtapcode.identity_service.entity.Show;
 import com.longtapcode.identity_service.exception.AppException;
 import com.longtapcode.identity_service.exception.ErrorCode;
-import com.longtapcode.identity_service.repository.ShowRepository;
-import com.paypal.core.PayPalHttpClient;
-import com.paypal.http.HttpResponse;
 import com.paypal.orders.*;
 import com.paypal.payments.CapturesRefundRequest;
 import com.paypal.payments.RefundRequest;
@@ -32,24 +26,18 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class PayPalService {
 
-    private final PayPalHttpClient payPalHttpClient;
+    private final PayPalGateway payPalGateway;
     private final PayPalConfig payPalConfig;
-    private final ShowRepository showRepository;
     private final RedisTemplate<String, String> redisTemplate;
-    private final SimpMessagingTemplate messagingTemplate;
+    private final PaymentSessionService paymentSessionService;
 
-    public PaymentCreateResponse createPayPalOrder(PaymentCreateRequest request, String orderId) {
+    /**
+     * Tạo order cho tổng tiền {@code amountVnd} đã tính ở server, quy đổi sang USD theo {@code paypal.vnd-per-usd}.
+     */
+    public PaymentCreateResponse createPayPalOrder(PaymentCreateRequest request, String orderId, BigDecimal amountVnd) {
         log.info("Creating PayPal order for showId: {}, user: {}", request.getShowId(), request.getUserId());
 
-        // 1. Get show info
-        Show show = showRepository
-                .findById(request.getShowId())
-                .orElseThrow(() -> new AppException(ErrorCode.SHOW_NOT_EXISTED));
-
-        // 2. Calculate amount
-        int seatCount = request.getSeatNumbers().size();
-        BigDecimal pricePerSeat = show.getPrice();
-        BigDecimal totalAmount = request.getAmount();
+        BigDecimal totalAmount = toUsd(amountVnd);
         // ✅ PayPal yêu cầu format: "10.00" (2 decimal places)
         String totalAmountStr = totalAmount.setScale(2, RoundingMode.HALF_UP).toString();
 
@@ -97,14 +85,13 @@ public class PayPalService {
         ordersCreateRequest.requestBody(orderRequest);
 
         try {
-            HttpResponse<Order> response = payPalHttpClient.execute(ordersCreateRequest);
-            Order order = response.result();
+            Order order = payPalGateway.createOrder(ordersCreateRequest, orderId);
 
             log.info("PayPal order created: {}", order.id());
 
             // 6. Lưu metadata vào Redis
-            String paymentSessionKey = "payment_session:" + order.id();
-            redisTemplate.opsForValue().set(paymentSessionKey, "PENDING", 30, TimeUnit.MINUTES);
+            paymentSessionService.register(
+                    order.id(), request.getShowId(), request.getSeatNumbers(), Duration.ofMinutes(30));
             String metadataKey = "paypal_metadata:" + order.id();
             Map<String, String> metadata = new HashMap<>();
             metadata.put("orderId", orderId);
@@ -145,11 +132,7 @@ public class PayPalService {
     public Map<String, Object> capturePayPalOrder(String paypalOrderId) {
         log.info("Capturing PayPal order: {}", paypalOrderId);
 
-        OrdersCaptureRequest ordersCaptureRequest = new OrdersCaptureRequest(paypalOrderId);
-        String paymentSessionKey = "payment_session:" + paypalOrderId;
-        String sessionStatus = redisTemplate.opsForValue().get(paymentSessionKey);
-
-        if (sessionStatus == null || "EXPIRED".equals(sessionStatus)) {
+        if (!paymentSessionService.isActive(paypalOrderId)) {
             throw new AppException(ErrorCode.SEAT_HOLD_EXPIRED);
         }
 
@@ -162,22 +145,8 @@ public class PayPalService {
             throw new AppException(ErrorCode.PAYMENT_NOT_FOUND);
         }
 
-        String userId = (String) rawMetadata.get("userId");
-        Long showId = Long.parseLong((String) rawMetadata.get("showId"));
-        String[] seatNumbers = ((String) rawMetadata.get("seats")).split(",");
-        Set<String> seatNumberSet = Set.of(seatNumbers);
-        PaymentCreateResponse wsMessage = PaymentCreateResponse.builder()
-                .showId(showId)
-                .userId(userId)
-                .seatNumbers(seatNumberSet)
-                .status(SeatInstanceStatus.BOOKED.getStatus())
-                .expiresAt(0L)
-                .build();
-
-        messagingTemplate.convertAndSend("/topic/show/" + showId, wsMessage);
         try {
-            HttpResponse<Order> response = payPalHttpClient.execute(ordersCaptureRequest);
-            Order order = response.result();
+            Order order = payPalGateway.captureOrder(paypalOrderId);
 
             log.info("PayPal order captured: {}, Status: {}", order.id(), order.status());
 
@@ -201,9 +170,11 @@ public class PayPalService {
             result.put("success", "COMPLETED".equals(order.status()));
             result.put("orderId", rawMetadata.get("orderId"));
             result.put("paypalOrderId", paypalOrderId);
-            result.put("showId", Long.parseLong((String) rawMetadata.get("showId")));
+            Long showId = Long.parseLong((String) rawMetadata.get("showId"));
+            String[] seats = ((String) rawMetadata.get("seats")).split(",");
+            result.put("showId", showId);
             result.put("userId", rawMetadata.get("userId"));
-            result.put("seats", ((String) rawMetadata.get("seats")).split(","));
+            result.put("seats", seats);
             result.put("amount", amountCents); // ✅ Return cents (Long)
             result.put("paymentMethod", "PAYPAL");
 
@@ -222,7 +193,7 @@ public class PayPalService {
 
             // Clean up metadata
             redisTemplate.delete(metadataKey);
-            redisTemplate.delete(paymentSessionKey);
+            paymentSessionService.complete(paypalOrderId, showId, Arrays.asList(seats));
             log.info("Deleted metadata from Redis: {}", metadataKey);
 
             return result;
@@ -233,27 +204,36 @@ public class PayPalService {
         }
     }
 
-    // Thêm method refund vào PayPalService.java
-    public Map<String, Object> refundPayPalPayment(String transactionId, BigDecimal amount) {
-        log.info("Processing PayPal refund - Transaction: {}, Amount: {} cents", transactionId, amount);
-
-        try {
+    /**
+     * Quy đổi tiền VND sang USD (2 chữ số) theo {@code paypal.vnd-per-usd}, cùng cách tính số tiền của order.
+     */
+    BigDecimal toUsd(BigDecimal amountVnd) {
+        return amountVnd.divide(payPalConfig.getVndPerUsd(), 2, RoundingMode.HALF_UP);
+    }
 
-            String refundAmountStr = amount.toString();
+    /**
+     * Hoàn tiền capture {@code transactionId} cho tổng tiền booking {@code amountVnd}.
+     * <p>
+     * Capture được tính bằng USD nên số tiền hoàn được quy đổi giống lúc tạo order; đổi {@code paypal.vnd-per-usd}
+     * giữa lúc thanh toán và lúc hoàn sẽ làm lệch số tiền so với capture.
+     */
+    public Map<String, Object> refundPayPalPayment(String transactionId, BigDecimal amountVnd) {
+        BigDecimal amount = toUsd(amountVnd);
+        log.info("Processing PayPal refund - Transaction: {}, Amount: ${} ({} VND)", transactionId, amount, amountVnd);
 
+        try {
             // Build refund request
             RefundRequest refundRequest = new RefundRequest();
             Money money = new Money();
             money.currencyCode("USD");
-            money.value(refundAmountStr);
-            refundRequest.amount();
+            money.value(amount.toString());
+            refundRequest.amount(money);
 
             // Create refund
             CapturesRefundRequest capturesRefundRequest = new CapturesRefundRequest(transactionId);
             capturesRefundRequest.requestBody(refundRequest);
 
-            HttpResponse<com.paypal.payments.Refund> response = payPalHttpClient.execute(capturesRefundRequest);
-            com.paypal.payments.Refund refund = response.result();
+            com.paypal.payments.Refund refund = payPalGateway.refund(capturesRefundRequest);
 
             log.info("PayPal refund successful - Refund ID: {}, Status: {}", refund.id(), refund.status());
 
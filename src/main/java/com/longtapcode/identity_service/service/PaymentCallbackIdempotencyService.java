@@ -0,0 +1,132 @@
+package com.longtapcode.identity_service.service;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.longtapcode.identity_service.dto.response.PaymentCallbackResponse;
+import com.longtapcode.identity_service.exception.AppException;
+import com.longtapcode.identity_service.exception.ErrorCode;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Chống xử lý trùng callback thanh toán ({@code payment_callback:{provider}:{reference}}).
+ * <p>
+ * Callback đầu tiên chiếm key bằng SET NX rồi chạy toàn bộ luồng capture / xác nhận / Kafka; kết quả được lưu lại
+ * trên cùng key. Callback lặp lại (provider retry, người dùng tải lại trang) nhận ngay kết quả đã lưu, callback chạy
+ * song song thì chờ kết quả của lần đầu. Chỉ lỗi nghiệp vụ cuối cùng (thanh toán bị từ chối) được lưu; lỗi khác xóa
+ * key để lần gọi sau chạy lại.
+ */
+@Service
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@Slf4j
+public class PaymentCallbackIdempotencyService {
+
+    static final String PROCESSING = "PROCESSING";
+    static final String RESULT_PREFIX = "OK:";
+    static final String ERROR_PREFIX = "ERROR:";
+    static final long POLL_INTERVAL_MS = 50;
+
+    StringRedisTemplate redisTemplate;
+    ObjectMapper objectMapper;
+
+    @NonFinal
+    @Value("${payment.callback.processing-ttl-seconds:60}")
+    long processingTtlSeconds;
+
+    @NonFinal
+    @Value("${payment.callback.result-ttl-seconds:86400}")
+    long resultTtlSeconds;
+
+    @NonFinal
+    @Value("${payment.callback.wait-ms:5000}")
+    long waitMillis;
+
+    public static String callbackKey(String provider, String reference) {
+        return "payment_callback:" + provider + ":" + reference;
+    }
+
+    public PaymentCallbackResponse process(
+            String provider, String reference, Supplier<PaymentCallbackResponse> pipeline) {
+        if (reference == null || reference.isBlank()) {
+            return pipeline.get();
+        }
+
+        String key = callbackKey(provider, reference);
+        Boolean acquired =
+                redisTemplate.opsForValue().setIfAbsent(key, PROCESSING, Duration.ofSeconds(processingTtlSeconds));
+        if (!Boolean.TRUE.equals(acquired)) {
+            log.info("Duplicate {} callback for {}, returning the first result", provider, reference);
+            return awaitResult(key);
+        }
+
+        PaymentCallbackResponse response;
+        try {
+            response = pipeline.get();
+        } catch (AppException e) {
+            if (e.getErrorCode() == ErrorCode.PAYMENT_FAILED) {
+                store(key, ERROR_PREFIX + e.getErrorCode().name());
+            } else {
+                redisTemplate.delete(key);
+            }
+            throw e;
+        } catch (RuntimeException e) {
+            redisTemplate.delete(key);
+            throw e;
+        }
+
+        try {
+            store(key, RESULT_PREFIX + objectMapper.writeValueAsString(response));
+        } catch (JsonProcessingException e) {
+            // Luồng đã chạy xong: giữ key PROCESSING đến khi hết hạn thay vì mở cho lần chạy thứ hai
+            log.error("Could not cache {} callback result for {}", provider, reference, e);
+        }
+        return response;
+    }
+
+    private void store(String key, String value) {
+        redisTemplate.opsForValue().set(key, value, Duration.ofSeconds(resultTtlSeconds));
+    }
+
+    private PaymentCallbackResponse awaitResult(String key) {
+        long deadline = System.currentTimeMillis() + waitMillis;
+        while (true) {
+            String value = redisTemplate.opsForValue().get(key);
+            if (value != null && value.startsWith(RESULT_PREFIX)) {
+                return readResult(value.substring(RESULT_PREFIX.length()));
+            }
+            if (value != null && value.startsWith(ERROR_PREFIX)) {
+                throw new AppException(ErrorCode.valueOf(value.substring(ERROR_PREFIX.length())));
+            }
+            // value == null: lần đầu lỗi và đã nhả key, provider sẽ gọi lại
+            if (value == null || System.currentTimeMillis() >= deadline) {
+                throw new AppException(ErrorCode.PAYMENT_CALLBACK_IN_PROGRESS);
+            }
+            try {
+                Thread.sleep(POLL_INTERVAL_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AppException(ErrorCode.PAYMENT_CALLBACK_IN_PROGRESS);
+            }
+        }
+    }
+
+    private PaymentCallbackResponse readResult(String json) {
+        try {
+            return objectMapper.readValue(json, PaymentCallbackResponse.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Corrupted cached payment callback result", e);
+        }
+    }
+}
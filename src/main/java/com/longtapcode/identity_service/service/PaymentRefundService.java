@@ -0,0 +1,94 @@
+package com.longtapcode.identity_service.service;
+
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.longtapcode.identity_service.entity.Booking;
+import com.longtapcode.identity_service.repository.BookingRepository;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Hoàn tiền cho booking đã thanh toán nhưng mất ghế lúc xác nhận (status {@code REFUND_REQUIRED}).
+ * <p>
+ * Booking PayPal được hoàn tự động: mỗi booking được nhận bằng một câu UPDATE có điều kiện
+ * (REFUND_REQUIRED → REFUNDING) nên nhiều node chạy cùng lúc cũng không hoàn hai lần; gọi PayPal lỗi thì trả về
+ * REFUND_REQUIRED để lượt sau thử lại. Booking dừng ở REFUNDING (node chết giữa lúc gọi PayPal) cần kiểm tra thủ
+ * công. VNPay chưa có API hoàn tiền nên booking VNPay giữ REFUND_REQUIRED cho bộ phận hỗ trợ xử lý.
+ */
+@Service
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@Slf4j
+public class PaymentRefundService {
+
+    public static final String REFUND_REQUIRED = "REFUND_REQUIRED";
+    static final String REFUNDING = "REFUNDING";
+    static final String REFUNDED = "REFUNDED";
+
+    BookingRepository bookingRepository;
+    PayPalService payPalService;
+
+    @NonFinal
+    @Value("${payment.refund.batch-size:50}")
+    int batchSize;
+
+    public static boolean isRefundStatus(String status) {
+        return REFUND_REQUIRED.equals(status) || REFUNDING.equals(status) || REFUNDED.equals(status);
+    }
+
+    @Scheduled(fixedDelayString = "${payment.refund.interval-ms:60000}")
+    public void refundPending() {
+        List<Long> ids;
+        try {
+            ids = bookingRepository.findIdsByStatusAndPaymentMethod(
+                    REFUND_REQUIRED, "PAYPAL", PageRequest.of(0, batchSize));
+        } catch (Exception e) {
+            log.error("Loading bookings awaiting refund failed", e);
+            return;
+        }
+        ids.forEach(this::refundPayPal);
+    }
+
+    /**
+     * Hoàn tiền một booking PayPal, trả về true nếu PayPal đã nhận lệnh hoàn tiền.
+     */
+    boolean refundPayPal(Long bookingId) {
+        // Node khác đã nhận booking này
+        if (bookingRepository.updateStatusIfCurrent(bookingId, REFUND_REQUIRED, REFUNDING) == 0) return false;
+
+        Booking booking = bookingRepository.findById(bookingId).orElse(null);
+        if (booking == null || booking.getTransactionId() == null || booking.getTransactionId().isEmpty()) {
+            log.error("Booking {} has no capture to refund, left in {} for manual review", bookingId, REFUNDING);
+            return false;
+        }
+
+        Map<String, Object> refund;
+        try {
+            // Tổng tiền VND, PayPalService quy đổi sang USD như lúc capture
+            refund = payPalService.refundPayPalPayment(booking.getTransactionId(), booking.getTotalPrice());
+        } catch (Exception e) {
+            bookingRepository.updateStatusIfCurrent(bookingId, REFUNDING, REFUND_REQUIRED);
+            log.warn("Refund for booking {} failed, will retry", bookingId, e);
+            return false;
+        }
+
+        // Ngoài try: PayPal đã hoàn tiền thì không được trả booking về REFUND_REQUIRED
+        bookingRepository.updateStatusIfCurrent(bookingId, REFUNDING, REFUNDED);
+        log.info(
+                "Refunded booking {} (transaction {}) - refundId: {}",
+                bookingId,
+                booking.getTransactionId(),
+                refund.get("refundId"));
+        return true;
+    }
+}
@@ -7,11 +7,11 @@ import java.util.*;
 import jakarta.servlet.http.HttpServletRequest;
 
 import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import com.longtapcode.identity_service.constant.SeatInstanceStatus;
 import com.longtapcode.identity_service.dto.event.BookingConfirmedEvent;
@@ -19,7 +19,7 @@ import com.longtapcode.identity_service.dto.event.SeatInfoEvent;
 import com.longtapcode.identity_service.dto.request.PaymentCreateRequest;
 import com.longtapcode.identity_service.dto.response.PaymentCallbackResponse;
 import com.longtapcode.identity_service.dto.response.PaymentCreateResponse;
-import com.longtapcode.identity_service.dto.response.SeatResponse;
+import com.longtapcode.identity_service.dto.response.SeatUpdateResponse;
 import com.longtapcode.identity_service.entity.*;
 import com.longtapcode.identity_service.exception.AppException;
 import com.longtapcode.identity_service.exception.ErrorCode;
@@ -38,17 +38,27 @@ public class PaymentService {
     private final BookingRepository bookingRepository;
     private final BookingDetailRepository bookingDetailRepository;
     private final RedisTemplate<String, String> redisTemplate;
-    private final SimpMessagingTemplate messagingTemplate;
+    private final SeatBroadcastService seatBroadcastService;
     private final VNPayService vnPayService;
     private final PayPalService payPalService;
-    private final KafkaProducerService kafkaProducerService;
-    private final SeatRepository seatRepository;
-    private final SeatService seatService;
+    private final OutboxService outboxService;
+    private final PricingService pricingService;
+    private final SeatStateService seatStateService;
+    private final TransactionTemplate transactionTemplate;
+    private final PaymentCallbackIdempotencyService callbackIdempotencyService;
+    private final BookingExpiryService bookingExpiryService;
 
     // ==================== TẠO PAYMENT ====================
 
+    /**
+     * Tạo payment theo 3 pha để không giữ connection MySQL trong lúc gọi cổng thanh toán:
+     * <ol>
+     *   <li>transaction ngắn tạo booking PENDING,</li>
+     *   <li>gọi PayPal / VNPay khi không giữ connection nào,</li>
+     *   <li>ghi kết quả: metadata vào Redis khi thành công, hoặc transaction ngắn hủy booking khi thất bại.</li>
+     * </ol>
+     */
     @PreAuthorize("#request.userId == authentication.principal.claims['userId']")
-    @Transactional
     public PaymentCreateResponse createPayment(PaymentCreateRequest request, HttpServletRequest httpRequest) {
         log.info(
                 "Creating payment - Method: {}, ShowId: {}, User: {}",
@@ -58,6 +68,35 @@ public class PaymentService {
 
         validateSeatsHeld(request);
 
+        // Pha 1: transaction ngắn tạo booking PENDING
+        String orderId = UUID.randomUUID().toString();
+        Booking pendingBooking = transactionTemplate.execute(status -> createPendingBooking(request, orderId));
+
+        // Pha 2: gọi cổng thanh toán, không giữ connection
+        String method = request.getPaymentMethod().toLowerCase();
+        PaymentCreateResponse response;
+        try {
+            response = switch (method) {
+                case "vnpay" -> vnPayService.createVNPayPayment(
+                        request, pendingBooking.getTotalPrice(), httpRequest);
+                case "paypal" -> payPalService.createPayPalOrder(request, orderId, pendingBooking.getTotalPrice());
+                default -> throw new AppException(ErrorCode.PAYMENT_FAILED);
+            };
+        } catch (RuntimeException e) {
+            // Pha 3 (thất bại): transaction ngắn hủy booking
+            cancelPendingBooking(pendingBooking.getId());
+            throw e;
+        }
+
+        // Pha 3 (thành công): lưu bookingId vào metadata
+        String metadataKey = method + "_metadata:" + (method.equals("vnpay") ? orderId : response.getOrderId());
+        redisTemplate.opsForHash().put(metadataKey, "bookingId", String.valueOf(pendingBooking.getId()));
+        bookingExpiryService.trackPending(pendingBooking.getId(), request.getSeatNumbers());
+
+        return response;
+    }
+
+    private Booking createPendingBooking(PaymentCreateRequest request, String orderId) {
         Show show = showRepository
                 .findById(request.getShowId())
                 .orElseThrow(() -> new AppException(ErrorCode.SHOW_NOT_EXISTED));
@@ -66,45 +105,40 @@ public class PaymentService {
             throw new AppException(ErrorCode.SHOW_ALREADY_PASSED);
         }
 
-        String orderId = UUID.randomUUID().toString();
         User user = userRepository
                 .findById(request.getUserId())
                 .orElseThrow(() -> new AppException(ErrorCode.USER_NOT_EXISTED));
 
+        // Giá tính ở server, không dùng amount client gửi lên
+        BigDecimal totalPrice = pricingService.total(show.getId(), request.getSeatNumbers());
+
         Booking pendingBooking = Booking.builder()
                 .id1(user)
                 .showID(show)
                 .orderId(orderId)
-                .totalPrice(request.getAmount())
+                .totalPrice(totalPrice)
                 .paymentMethod(request.getPaymentMethod().toUpperCase())
                 .status("PENDING")
                 .bookingDate(LocalDateTime.now())
                 .build();
 
         bookingRepository.save(pendingBooking);
-        log.info("Created pending booking with ID: {} - Status: PAYMENT_PROCESSING", pendingBooking.getId());
+        log.info("Created pending booking with ID: {} - Status: PENDING", pendingBooking.getId());
+        return pendingBooking;
+    }
 
-        // Tạo payment URL
-        PaymentCreateResponse response;
-        switch (request.getPaymentMethod().toLowerCase()) {
-            case "vnpay":
-                response = vnPayService.createVNPayPayment(request, httpRequest);
-                break;
-            case "paypal":
-                response = payPalService.createPayPalOrder(request, orderId);
-                break;
-            default:
-                pendingBooking.setStatus("CANCELLED");
-                bookingRepository.save(pendingBooking);
-                throw new AppException(ErrorCode.PAYMENT_FAILED);
+    private void cancelPendingBooking(Long bookingId) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> bookingRepository
+                    .findById(bookingId)
+                    .ifPresent(booking -> {
+                        booking.setStatus("CANCELLED");
+                        bookingRepository.save(booking);
+                    }));
+            log.info("Cancelled booking {} after payment provider failure", bookingId);
+        } catch (Exception e) {
+            log.error("Failed to cancel booking {} after payment provider failure", bookingId, e);
         }
-
-        // Lưu bookingId vào metadata
-        String metadataKey = request.getPaymentMethod().toLowerCase() + "_metadata:"
-                + (request.getPaymentMethod().equalsIgnoreCase("vnpay") ? orderId : response.getOrderId());
-        redisTemplate.opsForHash().put(metadataKey, "bookingId", String.valueOf(pendingBooking.getId()));
-
-        return response;
     }
 
     private void validateSeatsHeld(PaymentCreateRequest request) {
@@ -121,18 +155,64 @@ public class PaymentService {
 
     // ==================== XỬ LÝ CALLBACK ====================
 
-    @Transactional
+    // Mỗi callback đi qua PaymentCallbackIdempotencyService: callback lặp lại nhận kết quả của lần đầu
     public PaymentCallbackResponse processVNPayCallback(Map<String, String> params) {
         log.info("Processing VNPay callback");
-        Map<String, Object> result = vnPayService.verifyVNPayPayment(params);
-        return completeBooking(result);
+        return callbackIdempotencyService.process("vnpay", params.get("vnp_TxnRef"), () -> {
+            Map<String, Object> result = vnPayService.verifyVNPayPayment(params);
+            return confirmPayment(result);
+        });
     }
 
-    @Transactional
+    /**
+     * Capture gọi PayPal qua HTTP nên chạy ngoài transaction; chỉ phần ghi booking nằm trong transaction.
+     */
     public PaymentCallbackResponse processPayPalCallback(String paypalOrderId, String token) {
         log.info("Processing PayPal callback - OrderId: {}, Token: {}", paypalOrderId, token);
-        Map<String, Object> result = payPalService.capturePayPalOrder(paypalOrderId);
-        return completeBooking(result);
+        return callbackIdempotencyService.process("paypal", paypalOrderId, () -> {
+            Map<String, Object> result = payPalService.capturePayPalOrder(paypalOrderId);
+            return confirmPayment(result);
+        });
+    }
+
+    private PaymentCallbackResponse confirmPayment(Map<String, Object> paymentResult) {
+        try {
+            return transactionTemplate.execute(status -> completeBooking(paymentResult));
+        } catch (RuntimeException e) {
+            // Tiền đã bị trừ nhưng transaction xác nhận lỗi: booking không được để PENDING chờ hết hạn
+            if (Boolean.TRUE.equals(paymentResult.get("success"))) {
+                markRefundRequired(paymentResult, e);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Ghi REFUND_REQUIRED trong transaction riêng (transaction xác nhận đã rollback) để {@link PaymentRefundService}
+     * hoàn tiền. Booking đã CONFIRMED hoặc đã vào luồng hoàn tiền thì giữ nguyên.
+     */
+    private void markRefundRequired(Map<String, Object> paymentResult, RuntimeException cause) {
+        String orderId = (String) paymentResult.get("orderId");
+        String transactionId = (String) paymentResult.get("transactionId");
+        try {
+            transactionTemplate.executeWithoutResult(status -> bookingRepository
+                    .findByOrderId(orderId)
+                    .filter(booking -> !"CONFIRMED".equals(booking.getStatus())
+                            && !PaymentRefundService.isRefundStatus(booking.getStatus()))
+                    .ifPresent(booking -> {
+                        booking.setStatus(PaymentRefundService.REFUND_REQUIRED);
+                        booking.setTransactionId(transactionId);
+                        bookingRepository.save(booking);
+                    }));
+            log.error(
+                    "Confirming paid order {} (transaction {}) failed, marked {}",
+                    orderId,
+                    transactionId,
+                    PaymentRefundService.REFUND_REQUIRED,
+                    cause);
+        } catch (Exception e) {
+            log.error("Could not mark paid order {} (transaction {}) for refund", orderId, transactionId, e);
+        }
     }
 
     private PaymentCallbackResponse completeBooking(Map<String, Object> paymentResult) {
@@ -144,6 +224,28 @@ public class PaymentService {
                 .findByOrderId(orderId)
                 .orElseThrow(() -> new AppException(ErrorCode.BOOKING_NOT_FOUND));
 
+        // Chốt chặn cuối khi kết quả trong Redis đã hết hạn: booking đã xác nhận thì không ghi lại lần nữa
+        if ("CONFIRMED".equals(booking.getStatus())) {
+            log.info("Booking {} already confirmed, skipping duplicate callback", booking.getId());
+            return PaymentCallbackResponse.builder()
+                    .success(true)
+                    .bookingId(booking.getId())
+                    .orderId(orderId)
+                    .message("Đặt vé thành công!")
+                    .build();
+        }
+
+        // Booking đã vào luồng hoàn tiền (callback trước lỗi sau khi trừ tiền): không xác nhận lại
+        if (PaymentRefundService.isRefundStatus(booking.getStatus())) {
+            log.info("Booking {} is {}, not confirming it", booking.getId(), booking.getStatus());
+            return PaymentCallbackResponse.builder()
+                    .success(false)
+                    .bookingId(booking.getId())
+                    .orderId(orderId)
+                    .message(refundMessage(booking))
+                    .build();
+        }
+
         if (!success) {
             booking.setStatus("CANCELLED");
             bookingRepository.save(booking);
@@ -159,43 +261,69 @@ public class PaymentService {
         Long showId = (Long) paymentResult.get("showId");
         String userId = (String) paymentResult.get("userId");
         String[] seatNumbers = (String[]) paymentResult.get("seats");
-        Long amountCents = (Long) paymentResult.get("amount");
-        BigDecimal amount = BigDecimal.valueOf(amountCents).divide(BigDecimal.valueOf(100));
 
         User user = booking.getId1();
         Show show = booking.getShowID();
 
+        // Kiểm tra mọi hold còn thuộc về user và chuyển sang BOOKED trong một lần gọi Redis
+        SeatStateService.CommitResult commit = seatStateService.commitHolds(showId, List.of(seatNumbers), userId);
+        if (!commit.committed()) {
+            // PaymentRefundService hoàn tiền PayPal tự động; VNPay chờ bộ phận hỗ trợ xử lý
+            booking.setStatus(PaymentRefundService.REFUND_REQUIRED);
+            booking.setTransactionId(transactionId);
+            bookingRepository.save(booking);
+            unlockSeats(showId, seatNumbers, userId);
+            log.error(
+                    "Paid booking {} (transaction {}) lost its seats, marked {} - conflicts: {}",
+                    booking.getId(),
+                    transactionId,
+                    PaymentRefundService.REFUND_REQUIRED,
+                    commit.conflicts());
+
+            return PaymentCallbackResponse.builder()
+                    .success(false)
+                    .bookingId(booking.getId())
+                    .orderId(orderId)
+                    .message(refundMessage(booking))
+                    .conflicts(commit.conflicts())
+                    .build();
+        }
+
+        // Ghế đã BOOKED trong Redis trước khi DB commit: transaction rollback thì trả ghế lại
+        if (commit.version() > 0) {
+            releaseBookedOnRollback(showId, seatNumbers, userId);
+        }
+
         booking.setStatus("CONFIRMED");
-        booking.setTotalPrice(amount);
         booking.setTransactionId(transactionId);
         bookingRepository.save(booking);
         log.info("Updated booking {} to CONFIRMED", booking.getId());
 
+        // version = 0 khi các ghế đã BOOKED từ lần callback trước, không cần phát lại
+        if (commit.version() > 0) {
+            seatBroadcastService.publish(SeatUpdateResponse.builder()
+                    .showId(showId)
+                    .userId(userId)
+                    .seatNumbers(Set.of(seatNumbers))
+                    .status(SeatInstanceStatus.BOOKED.getStatus())
+                    .expiresAt(0L)
+                    .version(commit.version())
+                    .build());
+        }
+
         Set<BookingDetail> bookingDetails = new HashSet<>();
         for (String seatNumber : seatNumbers) {
-            String holdKey = "hold:" + showId + ":" + seatNumber;
-            String bookedKey = "booked:" + showId + ":" + seatNumber;
-
-            redisTemplate.opsForValue().set(bookedKey, userId);
-            redisTemplate.delete(holdKey);
-            SeatResponse seatResponse = seatService.getSeatBySeatNumber(seatNumber);
-            BigDecimal multiplier = seatResponse.getVip() == 1
-                    ? new BigDecimal("1.3")
-                    : seatResponse.getVip() == 2 ? new BigDecimal("1.1") : BigDecimal.ONE;
-
-            BookingDetail bookingDetail = BookingDetail.builder()
+            bookingDetails.add(BookingDetail.builder()
                     .bookingID(booking)
                     .seatNumber(seatNumber)
-                    .price(show.getPrice().multiply(multiplier))
-                    .build();
-
-            bookingDetails.add(bookingDetail);
+                    .price(pricingService.seatPrice(showId, seatNumber))
+                    .build());
         }
 
         bookingDetailRepository.saveAll(bookingDetails);
         log.info("Created {} booking details", bookingDetails.size());
 
-        // Publish Kafka event
+        // Ghi sự kiện vào outbox, relay gửi Kafka sau khi commit
         publishBookingConfirmedEvent(booking, show, user, seatNumbers, paymentResult);
 
         return PaymentCallbackResponse.builder()
@@ -206,77 +334,89 @@ public class PaymentService {
                 .build();
     }
 
+    private static String refundMessage(Booking booking) {
+        return "PAYPAL".equalsIgnoreCase(booking.getPaymentMethod())
+                ? "Một số ghế không còn được giữ cho bạn, giao dịch đang được hoàn tiền qua PayPal"
+                : "Một số ghế không còn được giữ cho bạn, vui lòng liên hệ hỗ trợ để được hoàn tiền";
+    }
+
+    /**
+     * Ghi BookingConfirmedEvent vào outbox trong cùng transaction với booking; {@link OutboxRelay} gửi Kafka sau khi
+     * commit. Lỗi ở đây làm rollback cả booking thay vì xác nhận vé mà không gửi email.
+     */
     private void publishBookingConfirmedEvent(
             Booking booking, Show show, User user, String[] seatNumbers, Map<String, Object> paymentResult) {
-        try {
-            Set<SeatInfoEvent> seats = new HashSet<>();
-            for (String seatNumber : seatNumbers) {
-                seats.add(SeatInfoEvent.builder().seatNumber(seatNumber).build());
-            }
+        Set<SeatInfoEvent> seats = new HashSet<>();
+        for (String seatNumber : seatNumbers) {
+            seats.add(SeatInfoEvent.builder().seatNumber(seatNumber).build());
+        }
 
-            BookingConfirmedEvent event = BookingConfirmedEvent.builder()
-                    .bookingId(booking.getId())
-                    .orderId(booking.getOrderId())
-                    .bookingDate(booking.getBookingDate())
-                    .totalPrice(booking.getTotalPrice())
-                    .paymentMethod(booking.getPaymentMethod())
-                    .transactionId((String) paymentResult.getOrDefault("transactionId", "N/A"))
-                    .userId(user.getId())
-                    .userEmail(user.getEmailAddress())
-                    .userName(user.getUserName())
-                    .showId(show.getId())
-                    .movieTitle(show.getMovieID().getTitle())
-                    .showDateTime(show.getShowDateTime())
-                    .seats(seats)
-                    .roomName(show.getRoomId().getName())
-                    .eventTime(LocalDateTime.now())
-                    .build();
+        BookingConfirmedEvent event = BookingConfirmedEvent.builder()
+                .bookingId(booking.getId())
+                .orderId(booking.getOrderId())
+                .bookingDate(booking.getBookingDate())
+                .totalPrice(booking.getTotalPrice())
+                .paymentMethod(booking.getPaymentMethod())
+                .transactionId((String) paymentResult.getOrDefault("transactionId", "N/A"))
+                .userId(user.getId())
+                .userEmail(user.getEmailAddress())
+                .userName(user.getUserName())
+                .showId(show.getId())
+                .movieTitle(show.getMovieID().getTitle())
+                .showDateTime(show.getShowDateTime())
+                .seats(seats)
+                .roomName(show.getRoomId().getName())
+                .eventTime(LocalDateTime.now())
+                .build();
 
-            kafkaProducerService.publishBookingConfirmed(event);
-            log.info("Published BookingConfirmedEvent for booking: {}", booking.getId());
-        } catch (Exception e) {
-            log.error("Failed to publish BookingConfirmedEvent for booking: {}", booking.getId(), e);
-        }
+        outboxService.enqueueBookingConfirmed(event);
+    }
+
+    private void releaseBookedOnRollback(Long showId, String[] seatNumbers, String userId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) return;
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_ROLLED_BACK) return;
+
+                Set<String> seatNumberSet = Set.of(seatNumbers);
+                try {
+                    long version = seatStateService.releaseBooked(showId, seatNumberSet);
+                    log.warn("Booking transaction rolled back, released seats {} for show {}", seatNumberSet, showId);
+                    if (version == 0) return;
+
+                    seatBroadcastService.publish(SeatUpdateResponse.builder()
+                            .showId(showId)
+                            .userId(userId)
+                            .seatNumbers(seatNumberSet)
+                            .status(SeatInstanceStatus.AVAILABLE.getStatus())
+                            .expiresAt(0L)
+                            .version(version)
+                            .build());
+                } catch (Exception e) {
+                    log.error("Failed to release seats {} for show {} after rollback", seatNumberSet, showId, e);
+                }
+            }
+        });
     }
 
     private void unlockSeats(Long showId, String[] seatNumbers, String userId) {
         log.info("Unlocking seats for failed payment - ShowId: {}, User: {}", showId, userId);
 
-        for (String seatNumber : seatNumbers) {
-            String holdKey = "hold:" + showId + ":" + seatNumber;
-            String heldByUser = redisTemplate.opsForValue().get(holdKey);
-
-            if (userId.equals(heldByUser)) {
-                redisTemplate.delete(holdKey);
-            }
-        }
-
         Set<String> seatNumberSet = Set.of(seatNumbers);
-        PaymentCreateResponse wsMessage = PaymentCreateResponse.builder()
+        long version = seatStateService.releaseAll(showId, seatNumberSet, userId);
+        if (version == 0) return;
+
+        SeatUpdateResponse wsMessage = SeatUpdateResponse.builder()
                 .showId(showId)
                 .userId(userId)
                 .seatNumbers(seatNumberSet)
                 .status(SeatInstanceStatus.AVAILABLE.getStatus())
                 .expiresAt(0L)
+                .version(version)
                 .build();
 
-        messagingTemplate.convertAndSend("/topic/show/" + showId, wsMessage);
-    }
-
-    // ==================== TỰ ĐỘNG HỦY BOOKING HẾT HẠN ====================
-
-    @Scheduled(fixedDelay = 60000) // Chạy mỗi 1 phút
-    @Transactional
-    public void cancelExpiredPaymentProcessing() {
-        LocalDateTime thirtyMinutesAgo = LocalDateTime.now().minusMinutes(30);
-
-        List<Booking> expiredBookings =
-                bookingRepository.findByStatusAndBookingDateBefore("PAYMENT_PROCESSING", thirtyMinutesAgo);
-
-        for (Booking booking : expiredBookings) {
-            log.info("Cancelling expired booking: {}", booking.getId());
-            booking.setStatus("EXPIRED");
-            bookingRepository.save(booking);
-        }
+        seatBroadcastService.publish(wsMessage);
     }
 }
@@ -0,0 +1,118 @@
+package com.longtapcode.identity_service.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.stereotype.Service;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Phiên thanh toán đang chờ ({@code payment_session:{sessionId}}) và chỉ mục ngược ghế → phiên
+ * ({@code payment_seat:{showId}:{seatNumber}}, một SET các sessionId), để khi một hold hết hạn có thể hủy đúng các
+ * phiên đang dùng ghế thay vì quét toàn bộ metadata thanh toán. Cùng một ghế có thể có nhiều phiên (user tạo lại
+ * đơn PayPal / VNPay khi phiên trước chưa xong), nên chỉ mục không được ghi đè lên nhau.
+ */
+@Service
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@Slf4j
+public class PaymentSessionService {
+
+    public static final String PENDING = "PENDING";
+    public static final String EXPIRED = "EXPIRED";
+
+    // Số sessionId lấy ra mỗi lần SPOP khi một ghế hết hạn giữ
+    private static final int EXPIRE_POP_BATCH = 16;
+
+    StringRedisTemplate redisTemplate;
+
+    public static String sessionKey(String sessionId) {
+        return "payment_session:" + sessionId;
+    }
+
+    public static String seatKey(Long showId, String seatNumber) {
+        return "payment_seat:" + showId + ":" + seatNumber;
+    }
+
+    /**
+     * Ghi phiên PENDING và thêm phiên vào chỉ mục của từng ghế trong một lần pipeline. TTL của chỉ mục được gia hạn
+     * theo phiên mới nhất.
+     */
+    public void register(String sessionId, Long showId, Collection<String> seatNumbers, Duration ttl) {
+        Expiration expiration = Expiration.from(ttl);
+        RedisStringCommands.SetOption upsert = RedisStringCommands.SetOption.upsert();
+        byte[] session = bytes(sessionId);
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            connection.stringCommands().set(bytes(sessionKey(sessionId)), bytes(PENDING), expiration, upsert);
+            for (String seatNumber : seatNumbers) {
+                byte[] seatKey = bytes(seatKey(showId, seatNumber));
+                connection.setCommands().sAdd(seatKey, session);
+                connection.keyCommands().expire(seatKey, ttl.toSeconds());
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Hủy mọi phiên đang dùng ghế (nếu có) khi hold của ghế hết hạn. SPOP lấy và xóa sessionId trong cùng một lệnh
+     * nên mỗi phiên chỉ bị một node xử lý.
+     */
+    public void expireBySeat(Long showId, String seatNumber) {
+        String seatKey = seatKey(showId, seatNumber);
+        List<String> sessionIds;
+        do {
+            sessionIds = redisTemplate.opsForSet().pop(seatKey, EXPIRE_POP_BATCH);
+            if (sessionIds == null) return;
+            for (String sessionId : sessionIds) {
+                expireSession(sessionId, showId, seatNumber);
+            }
+        } while (sessionIds.size() == EXPIRE_POP_BATCH);
+    }
+
+    private void expireSession(String sessionId, Long showId, String seatNumber) {
+        // SET XX KEEPTTL: chỉ ghi đè khi phiên vẫn còn và giữ nguyên TTL của phiên
+        Boolean updated = redisTemplate.execute((RedisCallback<Boolean>) connection -> connection
+                .stringCommands()
+                .set(
+                        bytes(sessionKey(sessionId)),
+                        bytes(EXPIRED),
+                        Expiration.keepTtl(),
+                        RedisStringCommands.SetOption.ifPresent()));
+        if (Boolean.TRUE.equals(updated)) {
+            log.info("Payment session {} expired because hold on {}:{} ended", sessionId, showId, seatNumber);
+        }
+    }
+
+    public boolean isActive(String sessionId) {
+        return PENDING.equals(redisTemplate.opsForValue().get(sessionKey(sessionId)));
+    }
+
+    /**
+     * Xóa phiên và bỏ riêng phiên này khỏi chỉ mục của từng ghế sau khi thanh toán đã được xử lý. Các phiên khác trên
+     * cùng ghế vẫn được giữ lại trong chỉ mục.
+     */
+    public void complete(String sessionId, Long showId, Collection<String> seatNumbers) {
+        byte[] session = bytes(sessionId);
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            connection.keyCommands().del(bytes(sessionKey(sessionId)));
+            for (String seatNumber : seatNumbers) {
+                connection.setCommands().sRem(bytes(seatKey(showId, seatNumber)), session);
+            }
+            return null;
+        });
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
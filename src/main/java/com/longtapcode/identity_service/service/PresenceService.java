@@ -0,0 +1,183 @@
+package com.longtapcode.identity_service.service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.longtapcode.identity_service.dto.response.PresenceResponse;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Bộ đếm "N người đang chọn ghế" theo suất chiếu.
+ * <p>
+ * Mỗi node đếm cục bộ từ sự kiện STOMP ({@link ShowSubscriptionRegistry}), định kỳ ghi số của mình vào hash
+ * {@code presence:{showId}} (field = nodeId) và heartbeat vào {@code presence:nodes}, rồi cộng số của các node còn
+ * sống và gửi cho client đang subscribe {@code /topic/show/{showId}/presence} trên node đó. Chi phí mỗi chu kỳ là
+ * O(số suất chiếu), không phụ thuộc số session.
+ * <p>
+ * Node chết không kịp chạy {@link #leave()} sẽ bị node khác dọn (heartbeat và field của nó trong từng
+ * {@code presence:{showId}}) khi gộp số, vì TTL của {@code presence:{showId}} được node còn sống gia hạn liên tục.
+ */
+@Service
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@Slf4j
+public class PresenceService {
+
+    public static final String NODES_KEY = "presence:nodes";
+
+    // Node còn được cộng nếu có heartbeat trong 3 chu kỳ gần nhất, bị xóa hẳn khi heartbeat cũ hơn 10 chu kỳ
+    // (bằng TTL của presence:{showId}), đủ xa để không xóa nhầm heartbeat vừa được ghi lại
+    private static final int ALIVE_INTERVALS = 3;
+    private static final int EVICT_INTERVALS = 10;
+
+    StringRedisTemplate redisTemplate;
+    ShowSubscriptionRegistry subscriptionRegistry;
+    SimpMessagingTemplate messagingTemplate;
+
+    String nodeId = UUID.randomUUID().toString();
+    // Các suất chiếu node này đã ghi ở chu kỳ trước, để xóa field khi không còn người xem
+    Set<Long> reportedShows = ConcurrentHashMap.newKeySet();
+    Map<Long, Long> lastBroadcast = new ConcurrentHashMap<>();
+
+    @NonFinal
+    @Value("${presence.interval-ms:5000}")
+    long intervalMillis;
+
+    public static String presenceKey(Long showId) {
+        return "presence:" + showId;
+    }
+
+    public static String presenceTopic(Long showId) {
+        return SeatBroadcastService.showTopic(showId) + "/presence";
+    }
+
+    @Scheduled(fixedDelayString = "${presence.interval-ms:5000}")
+    public void sync() {
+        try {
+            Map<Long, Long> local = subscriptionRegistry.localViewerCounts();
+            writeLocalCounts(local);
+            broadcast(local.keySet());
+        } catch (Exception e) {
+            log.warn("Presence sync failed", e);
+        }
+    }
+
+    public long getViewers(Long showId) {
+        return aggregate(List.of(showId)).getOrDefault(showId, 0L);
+    }
+
+    private void writeLocalCounts(Map<Long, Long> local) {
+        Set<Long> stale = new HashSet<>(reportedShows);
+        stale.removeAll(local.keySet());
+        long ttlSeconds = TimeUnit.MILLISECONDS.toSeconds(intervalMillis * EVICT_INTERVALS);
+
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection redis = (StringRedisConnection) connection;
+            redis.hSet(NODES_KEY, nodeId, String.valueOf(System.currentTimeMillis()));
+            local.forEach((showId, count) -> {
+                redis.hSet(presenceKey(showId), nodeId, String.valueOf(count));
+                redis.expire(presenceKey(showId), ttlSeconds);
+            });
+            stale.forEach(showId -> redis.hDel(presenceKey(showId), nodeId));
+            return null;
+        });
+
+        reportedShows.clear();
+        reportedShows.addAll(local.keySet());
+        stale.forEach(lastBroadcast::remove);
+    }
+
+    private void broadcast(Collection<Long> showIds) {
+        if (showIds.isEmpty()) return;
+        aggregate(showIds).forEach((showId, viewers) -> {
+            Long previous = lastBroadcast.put(showId, viewers);
+            if (viewers.equals(previous)) return;
+            messagingTemplate.convertAndSend(
+                    presenceTopic(showId),
+                    PresenceResponse.builder().showId(showId).viewers(viewers).build());
+        });
+    }
+
+    /**
+     * Cộng số người xem của các node còn heartbeat trong 3 chu kỳ gần nhất, đồng thời dọn các node đã chết.
+     */
+    private Map<Long, Long> aggregate(Collection<Long> showIds) {
+        List<Long> shows = new ArrayList<>(showIds);
+        List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection redis = (StringRedisConnection) connection;
+            redis.hGetAll(NODES_KEY);
+            shows.forEach(showId -> redis.hGetAll(presenceKey(showId)));
+            return null;
+        });
+
+        long now = System.currentTimeMillis();
+        long aliveAfter = now - intervalMillis * ALIVE_INTERVALS;
+        long evictBefore = now - intervalMillis * EVICT_INTERVALS;
+        Map<?, ?> heartbeats = (Map<?, ?>) results.get(0);
+        Set<String> deadNodes = new HashSet<>();
+        heartbeats.forEach((node, heartbeat) -> {
+            if (Long.parseLong(heartbeat.toString()) < evictBefore) deadNodes.add(node.toString());
+        });
+
+        Map<Long, Long> viewers = new HashMap<>();
+        Map<Long, List<String>> deadFields = new HashMap<>();
+        for (int i = 0; i < shows.size(); i++) {
+            long total = 0;
+            Map<?, ?> counts = (Map<?, ?>) results.get(i + 1);
+            for (Map.Entry<?, ?> entry : counts.entrySet()) {
+                Object heartbeat = heartbeats.get(entry.getKey());
+                if (heartbeat != null && Long.parseLong(heartbeat.toString()) >= aliveAfter) {
+                    total += Long.parseLong(entry.getValue().toString());
+                } else if (heartbeat == null || deadNodes.contains(entry.getKey().toString())) {
+                    deadFields
+                            .computeIfAbsent(shows.get(i), id -> new ArrayList<>())
+                            .add(entry.getKey().toString());
+                }
+            }
+            viewers.put(shows.get(i), total);
+        }
+        evict(deadNodes, deadFields);
+        return viewers;
+    }
+
+    private void evict(Set<String> deadNodes, Map<Long, List<String>> deadFields) {
+        if (deadNodes.isEmpty() && deadFields.isEmpty()) return;
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection redis = (StringRedisConnection) connection;
+            if (!deadNodes.isEmpty()) redis.hDel(NODES_KEY, deadNodes.toArray(String[]::new));
+            deadFields.forEach((showId, nodes) -> redis.hDel(presenceKey(showId), nodes.toArray(String[]::new)));
+            return null;
+        });
+        log.info("Removed presence of dead nodes {} from {} shows", deadNodes, deadFields.size());
+    }
+
+    @PreDestroy
+    public void leave() {
+        try {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection redis = (StringRedisConnection) connection;
+                redis.hDel(NODES_KEY, nodeId);
+                reportedShows.forEach(showId -> redis.hDel(presenceKey(showId), nodeId));
+                return null;
+            });
+        } catch (Exception e) {
+            log.warn("Could not remove presence of node {}", nodeId, e);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.longtapcode.identity_service.service;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.longtapcode.identity_service.exception.AppException;
+import com.longtapcode.identity_service.exception.ErrorCode;
+import com.longtapcode.identity_service.repository.ShowRepository;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+/**
+ * Nguồn giá vé duy nhất cho cả tạo payment, PayPal / VNPay và ghi BookingDetail.
+ * <p>
+ * Mỗi suất chiếu có một bảng giá theo hạng ghế (chỉ số = giá trị VIP của ghế), tính một lần từ giá suất chiếu rồi
+ * giữ trong bộ nhớ. Khi giá suất chiếu đổi, bảng bị bỏ trên node này và các node khác được báo qua kênh
+ * {@link SeatCatalogService#INVALIDATION_CHANNEL}.
+ */
+@Service
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class PricingService {
+
+    public static final String SHOW_PRICES_PREFIX = "show-prices:";
+
+    // Hệ số theo giá trị VIP của ghế (0, 1, 2), giống cách tính trước đây trong completeBooking
+    private static final BigDecimal[] TIER_MULTIPLIERS = {
+        BigDecimal.ONE, new BigDecimal("1.3"), new BigDecimal("1.1")
+    };
+
+    ShowRepository showRepository;
+    SeatCatalogService seatCatalogService;
+    StringRedisTemplate redisTemplate;
+    ConcurrentMap<Long, BigDecimal[]> priceTables = new ConcurrentHashMap<>();
+    // Tăng trước mỗi lần bỏ bảng giá, để lượt nạp đang chạy biết bảng nó vừa tính có thể đã cũ
+    AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Tổng tiền của một tập ghế: đếm ghế theo hạng rồi nhân một lần mỗi hạng.
+     */
+    public BigDecimal total(Long showId, Collection<String> seatNumbers) {
+        BigDecimal[] prices = priceTable(showId);
+        int[] counts = new int[prices.length];
+        for (String seatNumber : seatNumbers) {
+            counts[tierOf(seatNumber)]++;
+        }
+        BigDecimal total = BigDecimal.ZERO;
+        for (int tier = 0; tier < counts.length; tier++) {
+            if (counts[tier] > 0) {
+                total = total.add(prices[tier].multiply(BigDecimal.valueOf(counts[tier])));
+            }
+        }
+        return total;
+    }
+
+    public BigDecimal seatPrice(Long showId, String seatNumber) {
+        return priceTable(showId)[tierOf(seatNumber)];
+    }
+
+    /**
+     * Bỏ bảng giá của suất chiếu. Trong transaction thì bỏ thêm lần nữa và báo các node khác sau khi commit, để bảng
+     * nạp lại giữa chừng từ giá cũ không còn sót.
+     */
+    public void invalidate(Long showId) {
+        evict(showId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evictAndBroadcast(showId);
+                }
+            });
+        } else {
+            evictAndBroadcast(showId);
+        }
+    }
+
+    public void evictLocal(Long showId) {
+        evict(showId);
+    }
+
+    private void evictAndBroadcast(Long showId) {
+        evict(showId);
+        redisTemplate.convertAndSend(SeatCatalogService.INVALIDATION_CHANNEL, SHOW_PRICES_PREFIX + showId);
+    }
+
+    private void evict(Long showId) {
+        evictions.incrementAndGet();
+        priceTables.remove(showId);
+    }
+
+    private BigDecimal[] priceTable(Long showId) {
+        BigDecimal[] prices = priceTables.get(showId);
+        if (prices != null) return prices;
+        long generation = evictions.get();
+        BigDecimal basePrice =
+                showRepository.findPriceById(showId).orElseThrow(() -> new AppException(ErrorCode.SHOW_NOT_EXISTED));
+        BigDecimal[] table = new BigDecimal[TIER_MULTIPLIERS.length];
+        for (int tier = 0; tier < table.length; tier++) {
+            table[tier] = basePrice.multiply(TIER_MULTIPLIERS[tier]);
+        }
+        // Có lần bỏ bảng giá trong lúc đọc giá thì bảng này có thể tính từ giá cũ: vẫn dùng cho lần gọi này nhưng
+        // không giữ lại trong bộ nhớ
+        if (priceTables.putIfAbsent(showId, table) == null && evictions.get() != generation) {
+            priceTables.remove(showId, table);
+        }
+        return table;
+    }
+
+    private int tierOf(String seatNumber) {
+        int vip = seatCatalogService.tierOf(seatNumber);
+        if (vip < 0) throw new AppException(ErrorCode.SEAT_NOT_EXISTED);
+        return vip < TIER_MULTIPLIERS.length ? vip : 0;
+    }
+}
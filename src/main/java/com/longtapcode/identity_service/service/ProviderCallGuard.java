@@ -0,0 +1,262 @@
+package com.longtapcode.identity_service.service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+import com.longtapcode.identity_service.exception.AppException;
+import com.longtapcode.identity_service.exception.ErrorCode;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Lớp bảo vệ cho lời gọi tới một cổng thanh toán: bulkhead giới hạn số lời gọi đồng thời, timeout theo từng thao
+ * tác, circuit breaker đếm theo cửa sổ N lời gọi gần nhất và metric {@code payment.provider.calls}.
+ * <p>
+ * Khi bulkhead đầy hoặc circuit đang mở, lời gọi bị từ chối ngay với {@link ErrorCode#PAYMENT_PROVIDER_UNAVAILABLE}
+ * thay vì giữ thread Tomcat chờ provider. Lời gọi chạy trên pool riêng nên timeout trả thread về cho request ngay cả
+ * khi socket còn treo; permit của bulkhead chỉ được trả khi lời gọi thật sự kết thúc.
+ */
+@Slf4j
+public class ProviderCallGuard implements AutoCloseable {
+
+    @FunctionalInterface
+    public interface ProviderCall<T> {
+        T execute() throws IOException;
+    }
+
+    public record Settings(
+            int maxConcurrentCalls,
+            long maxWaitMillis,
+            int windowSize,
+            int minimumCalls,
+            int failureRatePercent,
+            long openMillis) {}
+
+    private final String provider;
+    private final Settings settings;
+    // Lỗi nào được tính là provider hỏng (5xx, timeout, mất kết nối), lỗi nghiệp vụ 4xx thì không
+    private final Predicate<Throwable> countsAsFailure;
+    private final MeterRegistry meterRegistry;
+    private final Semaphore bulkhead;
+    private final ExecutorService executor;
+    private final CircuitBreaker circuitBreaker;
+
+    public ProviderCallGuard(
+            String provider, Settings settings, Predicate<Throwable> countsAsFailure, MeterRegistry meterRegistry) {
+        this.provider = provider;
+        this.settings = settings;
+        this.countsAsFailure = countsAsFailure;
+        this.meterRegistry = meterRegistry;
+        this.bulkhead = new Semaphore(settings.maxConcurrentCalls());
+        this.circuitBreaker = new CircuitBreaker(settings);
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(settings.maxConcurrentCalls(), runnable -> {
+            Thread thread = new Thread(runnable, provider + "-call-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Gauge.builder("payment.provider.circuit.state", circuitBreaker, breaker -> breaker.state().ordinal())
+                .description("0 = closed, 1 = open, 2 = half-open")
+                .tag("provider", provider)
+                .register(meterRegistry);
+        Gauge.builder("payment.provider.bulkhead.available", bulkhead, Semaphore::availablePermits)
+                .description("Free slots for concurrent calls to the payment provider")
+                .tag("provider", provider)
+                .register(meterRegistry);
+    }
+
+    public <T> T call(String operation, Duration timeout, ProviderCall<T> call) throws IOException {
+        long start = System.nanoTime();
+        if (!circuitBreaker.tryAcquire()) {
+            record(operation, "short_circuited", start);
+            throw new AppException(ErrorCode.PAYMENT_PROVIDER_UNAVAILABLE);
+        }
+        if (!acquireBulkhead()) {
+            circuitBreaker.onIgnored();
+            record(operation, "rejected", start);
+            throw new AppException(ErrorCode.PAYMENT_PROVIDER_UNAVAILABLE);
+        }
+
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                try {
+                    return call.execute();
+                } finally {
+                    bulkhead.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            bulkhead.release();
+            circuitBreaker.onIgnored();
+            record(operation, "rejected", start);
+            throw new AppException(ErrorCode.PAYMENT_PROVIDER_UNAVAILABLE);
+        }
+
+        try {
+            T result = future.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+            circuitBreaker.onSuccess();
+            record(operation, "success", start);
+            return result;
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            circuitBreaker.onFailure();
+            record(operation, "timeout", start);
+            log.warn("{} {} timed out after {} ms", provider, operation, timeout.toMillis());
+            throw new AppException(ErrorCode.PAYMENT_PROVIDER_UNAVAILABLE);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            circuitBreaker.onIgnored();
+            record(operation, "interrupted", start);
+            throw new AppException(ErrorCode.PAYMENT_PROVIDER_UNAVAILABLE);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (countsAsFailure.test(cause)) {
+                circuitBreaker.onFailure();
+                record(operation, "failure", start);
+            } else {
+                // Provider vẫn trả lời (lỗi nghiệp vụ) → tính như lời gọi thành công với circuit breaker
+                circuitBreaker.onSuccess();
+                record(operation, "rejected_by_provider", start);
+            }
+            if (cause instanceof IOException io) throw io;
+            if (cause instanceof RuntimeException runtime) throw runtime;
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    CircuitBreaker.State circuitState() {
+        return circuitBreaker.state();
+    }
+
+    private boolean acquireBulkhead() {
+        try {
+            return bulkhead.tryAcquire(settings.maxWaitMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void record(String operation, String outcome, long startNanos) {
+        Timer.builder("payment.provider.calls")
+                .description("Calls to the payment provider by operation and outcome")
+                .tag("provider", provider)
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Circuit breaker đếm theo cửa sổ {@code windowSize} lời gọi gần nhất. Mở khi tỉ lệ lỗi vượt ngưỡng (sau tối
+     * thiểu {@code minimumCalls} lời gọi), sau {@code openMillis} cho đúng một lời gọi thử: thành công thì đóng lại,
+     * lỗi thì mở tiếp.
+     */
+    static final class CircuitBreaker {
+
+        enum State {
+            CLOSED,
+            OPEN,
+            HALF_OPEN
+        }
+
+        private final Settings settings;
+        private final boolean[] window;
+        private int position;
+        private int calls;
+        private int failures;
+        private State state = State.CLOSED;
+        private long openUntil;
+        private boolean probeInFlight;
+
+        CircuitBreaker(Settings settings) {
+            this.settings = settings;
+            this.window = new boolean[settings.windowSize()];
+        }
+
+        synchronized State state() {
+            return state;
+        }
+
+        synchronized boolean tryAcquire() {
+            if (state == State.OPEN) {
+                if (System.currentTimeMillis() < openUntil) return false;
+                state = State.HALF_OPEN;
+                probeInFlight = false;
+            }
+            if (state == State.HALF_OPEN) {
+                if (probeInFlight) return false;
+                probeInFlight = true;
+            }
+            return true;
+        }
+
+        synchronized void onSuccess() {
+            if (state == State.HALF_OPEN) {
+                close();
+                return;
+            }
+            record(false);
+        }
+
+        synchronized void onFailure() {
+            if (state == State.HALF_OPEN) {
+                open();
+                return;
+            }
+            record(true);
+            if (calls >= settings.minimumCalls() && failures * 100 >= settings.failureRatePercent() * calls) {
+                open();
+            }
+        }
+
+        // Lời gọi không tới được provider (bulkhead đầy, bị ngắt): không tính vào cửa sổ, chỉ nhả lượt thử nếu có
+        synchronized void onIgnored() {
+            if (state == State.HALF_OPEN) probeInFlight = false;
+        }
+
+        private void record(boolean failure) {
+            if (calls == window.length) {
+                if (window[position]) failures--;
+            } else {
+                calls++;
+            }
+            window[position] = failure;
+            if (failure) failures++;
+            position = (position + 1) % window.length;
+        }
+
+        private void open() {
+            state = State.OPEN;
+            openUntil = System.currentTimeMillis() + settings.openMillis();
+            reset();
+        }
+
+        private void close() {
+            state = State.CLOSED;
+            reset();
+        }
+
+        private void reset() {
+            calls = 0;
+            failures = 0;
+            position = 0;
+            probeInFlight = false;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.longtapcode.identity_service.service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Service;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+/**
+ * Khóa Redis cho các job định kỳ chỉ được chạy trên một node mỗi lượt.
+ * <p>
+ * Giá trị khóa là id của node nên chỉ node đang giữ mới xóa được khóa; khóa hết hạn theo TTL nếu node chết giữa lượt.
+ */
+@Service
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class RedisLockService {
+
+    // Chỉ xóa khóa nếu vẫn là của node này
+    private static final DefaultRedisScript<Long> UNLOCK_SCRIPT = new DefaultRedisScript<>(
+            """
+			if redis.call("get", KEYS[1]) == ARGV[1] then
+				return redis.call("del", KEYS[1])
+			end
+			return 0
+			""",
+            Long.class);
+
+    StringRedisTemplate redisTemplate;
+    String nodeId = UUID.randomUUID().toString();
+
+    public boolean tryLock(String key, Duration ttl) {
+        return Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(key, nodeId, ttl));
+    }
+
+    public void unlock(String key) {
+        redisTemplate.execute(UNLOCK_SCRIPT, List.of(key), nodeId);
+    }
+}
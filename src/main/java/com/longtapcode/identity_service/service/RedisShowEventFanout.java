@@ -0,0 +1,116 @@
+package com.longtapcode.identity_service.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Service;
+import org.springframework.util.MimeTypeUtils;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Fan-out nhiều node: node phát sinh sự kiện serialize JSON đúng một lần rồi PUBLISH lên {@code ws:show:{showId}}.
+ * Mỗi node chỉ subscribe kênh của những suất chiếu đang có client kết nối tới nó (theo
+ * {@link ShowSubscriptionRegistry}) và chuyển nguyên bytes nhận được cho simple broker cục bộ, không serialize lại.
+ */
+@Service
+@ConditionalOnProperty(name = "seat.broadcast.fanout", havingValue = "redis")
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@Slf4j
+public class RedisShowEventFanout implements ShowEventFanout, MessageListener {
+
+    static final String CHANNEL_PREFIX = "ws:show:";
+    static final String COMPACT_SUFFIX = ":compact";
+
+    StringRedisTemplate redisTemplate;
+    SimpMessagingTemplate messagingTemplate;
+    ObjectMapper objectMapper;
+    // Container nằm cùng vòng phụ thuộc với các listener → lấy lười
+    ObjectProvider<RedisMessageListenerContainer> listenerContainer;
+
+    public static String channel(Long showId) {
+        return CHANNEL_PREFIX + showId;
+    }
+
+    public static String compactChannel(Long showId) {
+        return CHANNEL_PREFIX + showId + COMPACT_SUFFIX;
+    }
+
+    @Override
+    public void publish(Long showId, Object payload) {
+        byte[] json;
+        try {
+            json = objectMapper.writeValueAsBytes(payload);
+        } catch (JsonProcessingException e) {
+            log.error("Cannot serialize seat event for show {}", showId, e);
+            return;
+        }
+        publishRaw(channel(showId), json);
+    }
+
+    @Override
+    public void publishCompact(Long showId, byte[] frame) {
+        publishRaw(compactChannel(showId), frame);
+    }
+
+    private void publishRaw(String channel, byte[] body) {
+        byte[] rawChannel = channel.getBytes(StandardCharsets.UTF_8);
+        redisTemplate.execute((RedisCallback<Long>) connection -> connection.publish(rawChannel, body));
+    }
+
+    @Override
+    public void onLocalSubscribed(Long showId) {
+        listenerContainer
+                .getObject()
+                .addMessageListener(
+                        this, List.of(new ChannelTopic(channel(showId)), new ChannelTopic(compactChannel(showId))));
+    }
+
+    @Override
+    public void onLocalUnsubscribed(Long showId) {
+        listenerContainer
+                .getObject()
+                .removeMessageListener(
+                        this, List.of(new ChannelTopic(channel(showId)), new ChannelTopic(compactChannel(showId))));
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String channel = new String(message.getChannel(), StandardCharsets.UTF_8);
+        if (!channel.startsWith(CHANNEL_PREFIX)) return;
+        if (channel.endsWith(COMPACT_SUFFIX)) {
+            Long showId = Long.parseLong(
+                    channel.substring(CHANNEL_PREFIX.length(), channel.length() - COMPACT_SUFFIX.length()));
+            messagingTemplate.send(
+                    SeatBroadcastService.compactTopic(showId),
+                    MessageBuilder.createMessage(message.getBody(), SeatBroadcastService.compactHeaders()));
+            return;
+        }
+        Long showId = Long.parseLong(channel.substring(CHANNEL_PREFIX.length()));
+
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create();
+        accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        accessor.setLeaveMutable(true);
+        messagingTemplate.send(
+                SeatBroadcastService.showTopic(showId),
+                MessageBuilder.createMessage(message.getBody(), accessor.getMessageHeaders()));
+    }
+}
@@ -0,0 +1,130 @@
+package com.longtapcode.identity_service.service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.MimeTypeUtils;
+
+import com.longtapcode.identity_service.dto.response.SeatBatchUpdateResponse;
+import com.longtapcode.identity_service.dto.response.SeatUpdateResponse;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Gom các thay đổi ghế của cùng một suất chiếu trong một khoảng ngắn ({@code seat.broadcast.window-ms}) rồi gửi một
+ * frame {@link SeatBatchUpdateResponse} duy nhất tới {@code /topic/show/{showId}} qua {@link ShowEventFanout}, giữ
+ * đúng thứ tự version.
+ * Tắt {@code seat.broadcast.coalesce} để gửi từng frame ngay như trước.
+ */
+@Service
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@Slf4j
+public class SeatBroadcastService {
+
+    ShowEventFanout showEventFanout;
+    CompactSeatFrameEncoder compactSeatFrameEncoder;
+    Map<Long, Queue<SeatUpdateResponse>> pending = new ConcurrentHashMap<>();
+
+    @NonFinal
+    @Value("${seat.broadcast.coalesce:true}")
+    boolean coalesce;
+
+    @NonFinal
+    @Value("${seat.broadcast.compact:false}")
+    boolean compact;
+
+    public static String showTopic(Long showId) {
+        return "/topic/show/" + showId;
+    }
+
+    /**
+     * Client muốn nhận frame nhị phân thì subscribe topic này thay cho topic JSON (chỉ dùng được với WebSocket thuần,
+     * vd. {@code /ws/websocket}; SockJS chỉ truyền text).
+     */
+    public static String compactTopic(Long showId) {
+        return showTopic(showId) + "/compact";
+    }
+
+    /**
+     * Topic sơ đồ ghế (JSON hoặc compact), không tính các topic phụ như {@code /presence}.
+     */
+    public static boolean isSeatTopic(String destination) {
+        Long showId = ShowSubscriptionRegistry.showIdOf(destination);
+        return showId != null && (destination.equals(showTopic(showId)) || destination.equals(compactTopic(showId)));
+    }
+
+    public static MessageHeaders compactHeaders() {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create();
+        accessor.setContentType(MimeTypeUtils.APPLICATION_OCTET_STREAM);
+        accessor.setLeaveMutable(true);
+        return accessor.getMessageHeaders();
+    }
+
+    public void publish(SeatUpdateResponse update) {
+        if (!coalesce) {
+            showEventFanout.publish(update.getShowId(), update);
+            publishCompact(update.getShowId(), List.of(update));
+            return;
+        }
+        pending.compute(update.getShowId(), (showId, queue) -> {
+            Queue<SeatUpdateResponse> target = queue != null ? queue : new ConcurrentLinkedQueue<>();
+            target.add(update);
+            return target;
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${seat.broadcast.window-ms:50}")
+    public void flush() {
+        for (Long showId : pending.keySet()) {
+            List<SeatUpdateResponse> updates = drain(showId);
+            if (updates.isEmpty()) continue;
+
+            // Các thread có thể enqueue lệch thứ tự version, sắp lại (ổn định) trước khi gửi
+            updates.sort(Comparator.comparing(
+                    SeatUpdateResponse::getVersion, Comparator.nullsFirst(Comparator.naturalOrder())));
+            SeatBatchUpdateResponse batch = SeatBatchUpdateResponse.builder()
+                    .showId(showId)
+                    .version(updates.get(updates.size() - 1).getVersion())
+                    .sentAt(System.currentTimeMillis())
+                    .updates(updates)
+                    .build();
+            try {
+                showEventFanout.publish(showId, batch);
+                publishCompact(showId, updates);
+            } catch (Exception e) {
+                log.error("Failed to broadcast {} seat updates for show {}", updates.size(), showId, e);
+            }
+        }
+    }
+
+    private void publishCompact(Long showId, List<SeatUpdateResponse> updates) {
+        if (!compact) return;
+        Long version = updates.get(updates.size() - 1).getVersion();
+        showEventFanout.publishCompact(
+                showId, compactSeatFrameEncoder.encode(version != null ? version : 0L, false, updates));
+    }
+
+    private List<SeatUpdateResponse> drain(Long showId) {
+        List<SeatUpdateResponse> updates = new ArrayList<>();
+        // compute() khóa theo key nên không mất update nào khi queue rỗng bị gỡ ra khỏi map
+        pending.computeIfPresent(showId, (id, queue) -> {
+            SeatUpdateResponse update;
+            while ((update = queue.poll()) != null) {
+                updates.add(update);
+            }
+            return null;
+        });
+        return updates;
+    }
+}
@@ -0,0 +1,165 @@
+package com.longtapcode.identity_service.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import com.longtapcode.identity_service.dto.response.SeatResponse;
+import com.longtapcode.identity_service.entity.Seat;
+import com.longtapcode.identity_service.repository.SeatRepository;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Danh mục ghế nạp sẵn trong bộ nhớ (bảng Seat rất nhỏ và gần như không đổi).
+ * <p>
+ * Snapshot là bất biến: số ghế → chỉ số, rồi mảng seatId / VIP theo chỉ số. Khi có ghế mới, snapshot được dựng lại
+ * và các node khác được báo qua kênh {@link #INVALIDATION_CHANNEL}.
+ * <p>
+ * Chỉ số là vị trí của ghế khi sắp theo seatId, nên mọi node và mọi lần khởi động đều ra cùng một thứ tự, và ghế mới
+ * (seatId lớn hơn) chỉ nối thêm vào cuối. Frame compact ({@link CompactSeatFrameEncoder}) dùng chỉ số này; client lấy
+ * bảng chỉ số → ghế từ {@code GET /seat/catalog} (phần tử thứ i là ghế có chỉ số i).
+ */
+@Service
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@Slf4j
+public class SeatCatalogService {
+
+    public static final String INVALIDATION_CHANNEL = "cache:invalidate";
+    public static final String SEAT_CATALOG = "seat-catalog";
+
+    // Thứ tự cố định của chỉ số ghế
+    private static final Sort CATALOG_ORDER = Sort.by("seatId");
+
+    SeatRepository seatRepository;
+    StringRedisTemplate redisTemplate;
+
+    @NonFinal
+    volatile Snapshot snapshot;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void preload() {
+        reload();
+    }
+
+    public SeatResponse find(String seatNumber) {
+        Snapshot current = current();
+        int index = current.indexOf(seatNumber);
+        if (index < 0) return null;
+        return new SeatResponse(current.seatIds[index], current.seatNumbers[index], (int) current.vips[index]);
+    }
+
+    /**
+     * Chỉ số của ghế trong snapshot hiện tại, -1 nếu không có.
+     */
+    public int indexOf(String seatNumber) {
+        return current().indexOf(seatNumber);
+    }
+
+    /**
+     * Giá trị VIP của ghế, -1 nếu ghế không có trong danh mục.
+     */
+    public int tierOf(String seatNumber) {
+        Snapshot current = current();
+        int index = current.indexOf(seatNumber);
+        return index < 0 ? -1 : current.vips[index];
+    }
+
+    /**
+     * Toàn bộ ghế theo thứ tự chỉ số.
+     */
+    public List<SeatResponse> seats() {
+        Snapshot current = current();
+        List<SeatResponse> seats = new ArrayList<>(current.seatNumbers.length);
+        for (int i = 0; i < current.seatNumbers.length; i++) {
+            seats.add(new SeatResponse(current.seatIds[i], current.seatNumbers[i], (int) current.vips[i]));
+        }
+        return seats;
+    }
+
+    public String seatNumberAt(int index) {
+        Snapshot current = current();
+        return index >= 0 && index < current.seatNumbers.length ? current.seatNumbers[index] : null;
+    }
+
+    public int size() {
+        return current().seatNumbers.length;
+    }
+
+    public synchronized void reload() {
+        List<Seat> seats = seatRepository.findAll(CATALOG_ORDER);
+        snapshot = Snapshot.of(seats);
+        log.info("Loaded seat catalog with {} seats", seats.size());
+    }
+
+    /**
+     * Dựng lại danh mục trên node này và báo các node khác bỏ bản cũ.
+     */
+    public void rebuildAndBroadcast() {
+        reload();
+        redisTemplate.convertAndSend(INVALIDATION_CHANNEL, SEAT_CATALOG);
+    }
+
+    public void invalidate() {
+        snapshot = null;
+    }
+
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                if (snapshot == null) reload();
+                current = snapshot;
+            }
+        }
+        return current;
+    }
+
+    private static final class Snapshot {
+        final Map<String, Integer> indexBySeatNumber;
+        final String[] seatNumbers;
+        final int[] seatIds;
+        final byte[] vips;
+
+        private Snapshot(Map<String, Integer> indexBySeatNumber, String[] seatNumbers, int[] seatIds, byte[] vips) {
+            this.indexBySeatNumber = indexBySeatNumber;
+            this.seatNumbers = seatNumbers;
+            this.seatIds = seatIds;
+            this.vips = vips;
+        }
+
+        static Snapshot of(List<Seat> seats) {
+            int size = seats.size();
+            Map<String, Integer> index = new HashMap<>(size * 2);
+            String[] seatNumbers = new String[size];
+            int[] seatIds = new int[size];
+            byte[] vips = new byte[size];
+            for (int i = 0; i < size; i++) {
+                Seat seat = seats.get(i);
+                seatNumbers[i] = seat.getSeatNumber();
+                seatIds[i] = seat.getSeatId() != null ? seat.getSeatId() : 0;
+                vips[i] = seat.getVip() != null ? seat.getVip().byteValue() : 0;
+                index.put(seat.getSeatNumber(), i);
+            }
+            return new Snapshot(Map.copyOf(index), seatNumbers, seatIds, vips);
+        }
+
+        int indexOf(String seatNumber) {
+            if (seatNumber == null) return -1;
+            Integer index = indexBySeatNumber.get(seatNumber);
+            return index != null ? index : -1;
+        }
+    }
+}
@@ -1,19 +1,21 @@
 package com.longtapcode.identity_service.service;
 
 import java.util.*;
-import java.util.concurrent.TimeUnit;
 
-import org.springframework.data.redis.core.StringRedisTemplate;
-import org.springframework.data.redis.core.script.DefaultRedisScript;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Service;
 
 import com.longtapcode.identity_service.constant.SeatInstanceStatus;
+import com.longtapcode.identity_service.dto.request.SeatHoldBatchRequest;
 import com.longtapcode.identity_service.dto.request.SeatHoldRequest;
+import com.longtapcode.identity_service.dto.response.SeatHoldBatchResponse;
+import com.longtapcode.identity_service.dto.response.SeatHoldResult;
+import com.longtapcode.identity_service.dto.response.SeatMapResponse;
 import com.longtapcode.identity_service.dto.response.SeatResponse;
 import com.longtapcode.identity_service.dto.response.SeatUpdateResponse;
 import com.longtapcode.identity_service.dto.response.SeatUpdateSuccess;
+import com.longtapcode.identity_service.exception.AppException;
+import com.longtapcode.identity_service.exception.ErrorCode;
 
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
@@ -24,26 +26,14 @@ import lombok.experimental.FieldDefaults;
 @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
 public class SeatHoldService {
 
-    StringRedisTemplate redisTemplate;
-    SimpMessagingTemplate messagingTemplate;
+    SeatBroadcastService seatBroadcastService;
     SeatService seatService;
+    SeatStateService seatStateService;
+    SeatCatalogService seatCatalogService;
+    PaymentSessionService paymentSessionService;
 
-    // ==================== LUA SCRIPT ĐỂ HOLD GHẾ ====================
-    private final DefaultRedisScript<Long> holdSeatScript = new DefaultRedisScript<>(
-            """
-			local key = KEYS[1]
-			local user = ARGV[1]
-			local ttl = tonumber(ARGV[2])
-
-			if redis.call("exists", key) == 0 then
-				redis.call("set", key, user)
-				redis.call("expire", key, ttl)
-				return 1
-			else
-				return 0
-			end
-			""",
-            Long.class);
+    private static final long HOLD_TTL_SECONDS = 120;
+    private static final int MAX_BATCH_SEATS = 10;
 
     @PreAuthorize("#request.userId == authentication.principal.claims['userId']")
     public SeatUpdateSuccess holdSeat(SeatHoldRequest request) {
@@ -51,71 +41,146 @@ public class SeatHoldService {
         String seatNumber = request.getSeatNumber();
         String userId = request.getUserId();
 
-        if (isBooked(showId, seatNumber)) {
+        // Kiểm tra ghế trước khi ghi vào Redis; hạng ghế lấy luôn từ danh mục
+        int seatType = seatCatalogService.tierOf(seatNumber);
+        if (seatType < 0) {
+            throw new AppException(ErrorCode.SEAT_NOT_EXISTED);
+        }
+
+        SeatStateService.HoldResult result = seatStateService.hold(showId, seatNumber, userId, HOLD_TTL_SECONDS);
+        if (result == null) {
+            return SeatUpdateSuccess.builder().success(false).message("Lỗi giữ ghế").build();
+        }
+        if (result.seatCode() == SeatStateService.SEAT_BOOKED) {
             return SeatUpdateSuccess.builder()
                     .success(false)
                     .message("Ghế đã được đặt!")
                     .build();
         }
-        String key = "hold:" + showId + ":" + seatNumber;
-        Long result = redisTemplate.execute(holdSeatScript, Collections.singletonList(key), userId, "120");
-        if (result != null) {
-            if (result == 1) {
-                Long ttl = getSeatTTL(showId, seatNumber);
-                long expiresAt = System.currentTimeMillis() + (ttl != null ? ttl * 1000 : 0);
-                SeatResponse seatResponse = seatService.getSeatBySeatNumber(seatNumber);
-                SeatUpdateResponse message = SeatUpdateResponse.builder()
-                        .showId(request.getShowId())
-                        .userId(userId)
-                        .seatNumber(request.getSeatNumber())
-                        .seatType(seatResponse.getVip())
-                        .status(SeatInstanceStatus.HELD.getStatus())
-                        .expiresAt(expiresAt)
-                        .build();
-
-                messagingTemplate.convertAndSend("/topic/show/" + request.getShowId(), message);
-
-                return SeatUpdateSuccess.builder()
-                        .success(true)
-                        .message("Giữ ghế thành công!")
-                        .build();
-            } else {
-                return SeatUpdateSuccess.builder()
-                        .success(false)
-                        .message("Ghế đã bị giữ!")
-                        .build();
-            }
+        if (!result.held()) {
+            return SeatUpdateSuccess.builder()
+                    .success(false)
+                    .message("Ghế đã bị giữ!")
+                    .build();
         }
-        return SeatUpdateSuccess.builder().success(false).message("Lỗi giữ ghế").build();
-    }
 
-    public boolean isBooked(Long showId, String seatNumber) {
-        String key = "booked:" + showId + ":" + seatNumber;
-        return Boolean.TRUE.equals(redisTemplate.hasKey(key));
+        SeatUpdateResponse message = SeatUpdateResponse.builder()
+                .showId(showId)
+                .userId(userId)
+                .seatNumber(seatNumber)
+                .seatType(seatType)
+                .status(SeatInstanceStatus.HELD.getStatus())
+                .expiresAt(result.expiresAt())
+                .version(result.version())
+                .build();
+
+        seatBroadcastService.publish(message);
+
+        return SeatUpdateSuccess.builder()
+                .success(true)
+                .message("Giữ ghế thành công!")
+                .build();
     }
 
-    public boolean isHeld(Long showId, String seatNumber) {
-        String key = "hold:" + showId + ":" + seatNumber;
-        return Boolean.TRUE.equals(redisTemplate.hasKey(key));
+    // ==================== GIỮ NHIỀU GHẾ (ALL-OR-NOTHING) ====================
+
+    @PreAuthorize("#request.userId == authentication.principal.claims['userId']")
+    public SeatHoldBatchResponse holdSeats(SeatHoldBatchRequest request) {
+        Long showId = request.getShowId();
+        String userId = request.getUserId();
+        List<String> seatNumbers = request.getSeatNumbers() == null
+                ? List.of()
+                : new ArrayList<>(new LinkedHashSet<>(request.getSeatNumbers()));
+
+        if (seatNumbers.isEmpty() || seatNumbers.size() > MAX_BATCH_SEATS) {
+            return SeatHoldBatchResponse.builder()
+                    .success(false)
+                    .message("Số ghế không hợp lệ (tối đa " + MAX_BATCH_SEATS + " ghế)!")
+                    .seats(List.of())
+                    .build();
+        }
+
+        // Chỉ ghế có trong danh mục mới được ghi vào Redis (số ghế lạ, chứa ':' làm hỏng member "showId:seat")
+        List<String> unknown = seatNumbers.stream()
+                .filter(seatNumber -> seatCatalogService.indexOf(seatNumber) < 0)
+                .toList();
+        if (!unknown.isEmpty()) {
+            return SeatHoldBatchResponse.builder()
+                    .success(false)
+                    .message("Ghế không tồn tại: " + String.join(", ", unknown))
+                    .seats(List.of())
+                    .build();
+        }
+
+        SeatStateService.HoldAllResult result =
+                seatStateService.holdAll(showId, seatNumbers, userId, HOLD_TTL_SECONDS);
+        if (result.seatCodes().isEmpty()) {
+            return SeatHoldBatchResponse.builder()
+                    .success(false)
+                    .message("Lỗi giữ ghế")
+                    .seats(List.of())
+                    .build();
+        }
+
+        List<SeatHoldResult> seats = new ArrayList<>(seatNumbers.size());
+        for (int i = 0; i < seatNumbers.size(); i++) {
+            long code = result.seatCodes().get(i);
+            String status = code == SeatStateService.SEAT_BOOKED
+                    ? SeatInstanceStatus.BOOKED.getStatus()
+                    : code == SeatStateService.SEAT_HELD_BY_OTHER
+                            ? SeatInstanceStatus.HELD.getStatus()
+                            : result.held()
+                                    ? SeatInstanceStatus.HELD.getStatus()
+                                    : SeatInstanceStatus.AVAILABLE.getStatus();
+            seats.add(SeatHoldResult.builder()
+                    .seatNumber(seatNumbers.get(i))
+                    .success(code == SeatStateService.SEAT_OK)
+                    .status(status)
+                    .build());
+        }
+
+        if (!result.held()) {
+            return SeatHoldBatchResponse.builder()
+                    .success(false)
+                    .message("Một số ghế đã bị giữ hoặc đã được đặt!")
+                    .seats(seats)
+                    .build();
+        }
+
+        SeatUpdateResponse message = SeatUpdateResponse.builder()
+                .showId(showId)
+                .userId(userId)
+                .seatNumbers(new LinkedHashSet<>(seatNumbers))
+                .status(SeatInstanceStatus.HELD.getStatus())
+                .expiresAt(result.expiresAt())
+                .version(result.version())
+                .build();
+        seatBroadcastService.publish(message);
+
+        return SeatHoldBatchResponse.builder()
+                .success(true)
+                .message("Giữ ghế thành công!")
+                .expiresAt(result.expiresAt())
+                .seats(seats)
+                .build();
     }
 
     public SeatUpdateSuccess releaseSeat(SeatHoldRequest request) {
         Long showId = request.getShowId();
         String seatNumber = request.getSeatNumber();
         String userId = request.getUserId();
-        String key = "hold:" + showId + ":" + seatNumber;
-        String currentHolder = redisTemplate.opsForValue().get(key);
-        if (currentHolder != null && currentHolder.equals(userId)) {
-            redisTemplate.delete(key);
+        long version = seatStateService.release(showId, seatNumber, userId);
+        if (version > 0) {
             SeatUpdateResponse message = SeatUpdateResponse.builder()
                     .showId(request.getShowId())
                     .userId(userId)
                     .seatNumber(request.getSeatNumber())
                     .status(SeatInstanceStatus.AVAILABLE.getStatus())
                     .expiresAt(0L)
+                    .version(version)
                     .build();
 
-            messagingTemplate.convertAndSend("/topic/show/" + request.getShowId(), message);
+            seatBroadcastService.publish(message);
             return SeatUpdateSuccess.builder()
                     .success(true)
                     .message("Bỏ ghế thành công!")
@@ -125,44 +190,58 @@ public class SeatHoldService {
     }
 
     public List<SeatUpdateResponse> getOccupiedSeats(Long showId) {
-        Set<String> holdKeys = redisTemplate.keys("hold:" + showId + ":*");
-        Set<String> bookedKeys = redisTemplate.keys("booked:" + showId + ":*");
-        List<SeatUpdateResponse> seatUpdateResponses = new ArrayList<>();
-        if (holdKeys != null) {
-            holdKeys.forEach(key -> {
-                Long ttl = redisTemplate.getExpire(key, TimeUnit.SECONDS);
-                String userId = redisTemplate.opsForValue().get(key);
-                String seatNumber = key.split(":")[2];
-                SeatResponse seatResponse = seatService.getSeatBySeatNumber(seatNumber);
-                seatUpdateResponses.add(SeatUpdateResponse.builder()
-                        .showId(showId)
-                        .userId(userId)
-                        .seatNumber(seatNumber)
-                        .seatType(seatResponse.getVip())
-                        .status(SeatInstanceStatus.HELD.getStatus())
-                        .expiresAt(System.currentTimeMillis() + (ttl != null ? ttl * 1000 : 0))
-                        .build());
-            });
+        List<SeatUpdateResponse> seatUpdateResponses = seatStateService.getSeatStates(showId);
+        for (SeatUpdateResponse seat : seatUpdateResponses) {
+            if (SeatInstanceStatus.HELD.getStatus().equals(seat.getStatus())) {
+                SeatResponse seatResponse = seatService.getSeatBySeatNumber(seat.getSeatNumber());
+                seat.setSeatType(seatResponse.getVip());
+            }
         }
+        return seatUpdateResponses;
+    }
 
-        if (bookedKeys != null) {
-            bookedKeys.forEach(key -> {
-                String userId = redisTemplate.opsForValue().get(key);
-                seatUpdateResponses.add(SeatUpdateResponse.builder()
-                        .showId(showId)
-                        .userId(userId)
-                        .seatNumber(key.split(":")[2])
-                        .status(SeatInstanceStatus.BOOKED.getStatus())
-                        .expiresAt(0L)
-                        .build());
-            });
-        }
+    /**
+     * Đồng bộ lại sau khi client mất kết nối: chỉ trả các thay đổi sau {@code since}, hoặc snapshot nếu client
+     * tụt quá xa so với log.
+     */
+    public SeatMapResponse getSeatChanges(Long showId, long since) {
+        return withSeatTypes(seatStateService.getChangesSince(showId, since));
+    }
 
-        return seatUpdateResponses;
+    public SeatMapResponse getSeatSnapshot(Long showId) {
+        return withSeatTypes(seatStateService.getSnapshot(showId));
     }
 
-    public Long getSeatTTL(Long showId, String seatNumber) {
-        String key = "hold:" + showId + ":" + seatNumber;
-        return redisTemplate.getExpire(key, TimeUnit.SECONDS);
+    private SeatMapResponse withSeatTypes(SeatMapResponse response) {
+        for (SeatUpdateResponse seat : response.getSeats()) {
+            if (SeatInstanceStatus.HELD.getStatus().equals(seat.getStatus())) {
+                seat.setSeatType(seatService.getSeatBySeatNumber(seat.getSeatNumber()).getVip());
+            }
+        }
+        return response;
+    }
+
+    // ==================== HẾT HẠN GIỮ GHẾ ====================
+
+    /**
+     * Xử lý chung sau khi một hold hết hạn (từ sweeper hoặc keyspace notification). Chỉ khi trạng thái thực sự thay
+     * đổi ({@code version > 0}) mới hủy phiên thanh toán đang dùng ghế và báo ghế trống.
+     */
+    public void onHoldExpired(Long showId, String seatNumber, long version) {
+        // Ghế đã được giữ lại hoặc đã được dọn trước đó → không có gì để làm
+        if (version == 0) return;
+
+        // 🔥 ĐÁNH DẤU PAYMENT SESSION BỊ HỦY
+        paymentSessionService.expireBySeat(showId, seatNumber);
+
+        SeatUpdateResponse msg = SeatUpdateResponse.builder()
+                .showId(showId)
+                .seatNumber(seatNumber)
+                .status(SeatInstanceStatus.AVAILABLE.getStatus())
+                .expiresAt(0L)
+                .version(version)
+                .build();
+
+        seatBroadcastService.publish(msg);
     }
 }
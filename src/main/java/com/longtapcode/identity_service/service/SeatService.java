@@ -23,6 +23,7 @@ import lombok.experimental.FieldDefaults;
 public class SeatService {
     SeatMapper seatMapper;
     SeatRepository seatRepository;
+    SeatCatalogService seatCatalogService;
     private final com.longtapcode.identity_service.repository.seatInstanceRepository seatInstanceRepository;
 
     public List<SeatResponse> getAllSeat() {
@@ -30,10 +31,18 @@ public class SeatService {
         return seatMapper.toListSeatResponse(seats);
     }
 
+    /**
+     * Danh mục ghế theo thứ tự chỉ số dùng trong frame compact: phần tử thứ i là ghế có seatIndex = i.
+     */
+    public List<SeatResponse> getSeatCatalog() {
+        return seatCatalogService.seats();
+    }
+
     @PreAuthorize("hasRole('ADMIN')")
     public SeatResponse createSeat(SeatRequest seatRequest) {
         Seat seat = seatMapper.toSeat(seatRequest);
         seatRepository.save(seat);
+        seatCatalogService.rebuildAndBroadcast();
         return seatMapper.toSeatResponse(seat);
     }
 
@@ -44,9 +53,10 @@ public class SeatService {
     }
 
     public SeatResponse getSeatBySeatNumber(String seatNumber) {
-        Seat seat = seatRepository
-                .findBySeatNumber(seatNumber)
-                .orElseThrow(() -> new AppException(ErrorCode.SEAT_NOT_EXISTED));
-        return seatMapper.toSeatResponse(seat);
+        SeatResponse seat = seatCatalogService.find(seatNumber);
+        if (seat == null) {
+            throw new AppException(ErrorCode.SEAT_NOT_EXISTED);
+        }
+        return seat;
     }
 }
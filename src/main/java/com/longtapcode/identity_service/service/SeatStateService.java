@@ -0,0 +1,817 @@
+package com.longtapcode.identity_service.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+
+import com.longtapcode.identity_service.constant.SeatInstanceStatus;
+import com.longtapcode.identity_service.dto.response.SeatMapResponse;
+import com.longtapcode.identity_service.dto.response.SeatUpdateResponse;
+import com.longtapcode.identity_service.repository.ShowRepository;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Trạng thái ghế theo từng suất chiếu trên Redis.
+ * <p>
+ * Mỗi suất chiếu có một hash {@code seatstate:{showId}} (seatNumber → "HELD:userId:expiresAt" hoặc
+ * "BOOKED:userId") và một sorted set chung {@code seatstate:hold-expiry} chứa các ghế đang giữ, score là thời điểm
+ * hết hạn. Các key {@code hold:} / {@code booked:} vẫn được giữ nguyên, mọi thay đổi đều đi qua Lua script để hash
+ * luôn khớp với chúng. Script không tự ghép tên key: mọi key nó đụng tới (kể cả {@code hold:} / {@code booked:} của
+ * từng ghế) đều được truyền qua KEYS.
+ * <p>
+ * Mỗi lần trạng thái thay đổi, version của suất chiếu ({@code seatstate:{showId}:version}) tăng 1 và các thay đổi
+ * được ghi vào log giới hạn {@code seatstate:{showId}:log} ("version:seat:status:userId:expiresAt"). Ba key của
+ * suất chiếu hết hạn một giờ sau khi suất chiếu kết thúc (PEXPIREAT mỗi lần giữ ghế).
+ */
+@Service
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@Slf4j
+public class SeatStateService {
+
+    public static final String HOLD_EXPIRY_KEY = "seatstate:hold-expiry";
+    public static final int CHANGE_LOG_SIZE = 256;
+
+    // Mã kết quả từng ghế của hold / holdAll
+    public static final long SEAT_OK = 0;
+    public static final long SEAT_BOOKED = 1;
+    public static final long SEAT_HELD_BY_OTHER = 2;
+    public static final long SEAT_NOT_HELD = 3;
+
+    // Key trạng thái còn giữ thêm khoảng này sau giờ kết thúc suất chiếu
+    private static final long STATE_GRACE_MILLIS = Duration.ofHours(1).toMillis();
+    private static final int DEFAULT_RUNTIME_MINUTES = 180;
+    // Giờ chiếu có thể bị sửa: thời điểm hết hạn chỉ được dùng lại trong khoảng này rồi đọc lại từ DB
+    private static final long SCHEDULE_REFRESH_MILLIS = Duration.ofMinutes(10).toMillis();
+    private static final int MAX_CACHED_SCHEDULES = 1024;
+
+    StringRedisTemplate redisTemplate;
+    ShowRepository showRepository;
+    ConcurrentMap<Long, StateExpiry> stateExpiries = new ConcurrentHashMap<>();
+
+    // ==================== LUA SCRIPTS ====================
+    // KEYS chung: state hash, expiry zset, version key, log key, rồi hold key, booked key của từng ghế theo đúng thứ tự
+    // ghế trong ARGV | ARGV[1]: showId
+
+    private static final String PRELUDE =
+            """
+			local showId = ARGV[1]
+			-- n: thứ tự của ghế trong danh sách ghế (bắt đầu từ 1)
+			local function holdKey(n)
+				return KEYS[3 + 2 * n]
+			end
+			local function bookedKey(n)
+				return KEYS[4 + 2 * n]
+			end
+			local function member(seat)
+				return showId .. ":" .. seat
+			end
+			local function nowMillis()
+				local time = redis.call("time")
+				return tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+			end
+			-- at: thời điểm (epoch ms) các key trạng thái của suất chiếu hết hạn, 0 thì giữ nguyên
+			local function expireStateKeys(at)
+				if at > 0 then
+					redis.call("pexpireat", KEYS[1], at)
+					redis.call("pexpireat", KEYS[3], at)
+					redis.call("pexpireat", KEYS[4], at)
+				end
+			end
+			local changes = {}
+			local function change(seat, status, user, expiresAt)
+				changes[#changes + 1] = seat .. ":" .. status .. ":" .. (user or "") .. ":" .. (expiresAt or 0)
+			end
+			local function commit()
+				if #changes == 0 then
+					return 0
+				end
+				local version = redis.call("incr", KEYS[3])
+				for i = 1, #changes do
+					redis.call("rpush", KEYS[4], version .. ":" .. changes[i])
+				end
+				redis.call("ltrim", KEYS[4], -%d, -1)
+				return version
+			end
+			"""
+                    .formatted(CHANGE_LOG_SIZE);
+
+    // ARGV: showId, seatNumber, userId, ttl (giây), thời điểm hết hạn của key trạng thái (epoch ms)
+    // Trả về {mã ghế, expiresAt, version}: kiểm tra booked/hold, giữ ghế và tính thời điểm hết hạn trong một lần gọi
+    @SuppressWarnings("rawtypes")
+    private static final DefaultRedisScript<List> HOLD_SCRIPT = script(
+            """
+			local seat = ARGV[2]
+			local user = ARGV[3]
+			local ttl = tonumber(ARGV[4])
+			if redis.call("exists", bookedKey(1)) == 1 then
+				return {1, 0, 0}
+			end
+			if redis.call("exists", holdKey(1)) == 1 then
+				return {2, 0, 0}
+			end
+			local expiresAt = nowMillis() + ttl * 1000
+			redis.call("set", holdKey(1), user, "EX", ttl)
+			redis.call("hset", KEYS[1], seat, "HELD:" .. user .. ":" .. expiresAt)
+			redis.call("zadd", KEYS[2], expiresAt, member(seat))
+			change(seat, "HELD", user, expiresAt)
+			local version = commit()
+			expireStateKeys(tonumber(ARGV[5]))
+			return {0, expiresAt, version}
+			""",
+            List.class);
+
+    // ARGV: showId, userId, ttl (giây), thời điểm hết hạn của key trạng thái (epoch ms), seatNumber...
+    // Trả về {1|0, expiresAt, version, mã từng ghế...}: chỉ giữ khi tất cả ghế đều trống (hoặc đang do chính user giữ)
+    @SuppressWarnings("rawtypes")
+    private static final DefaultRedisScript<List> HOLD_ALL_SCRIPT = script(
+            """
+			local user = ARGV[2]
+			local ttl = tonumber(ARGV[3])
+			local result = {1, 0, 0}
+			for i = 5, #ARGV do
+				local code = 0
+				if redis.call("exists", bookedKey(i - 4)) == 1 then
+					code = 1
+				else
+					local holder = redis.call("get", holdKey(i - 4))
+					if holder and holder ~= user then
+						code = 2
+					end
+				end
+				if code ~= 0 then
+					result[1] = 0
+				end
+				result[#result + 1] = code
+			end
+			if result[1] == 0 then
+				return result
+			end
+			local expiresAt = nowMillis() + ttl * 1000
+			for i = 5, #ARGV do
+				local seat = ARGV[i]
+				redis.call("set", holdKey(i - 4), user, "EX", ttl)
+				redis.call("hset", KEYS[1], seat, "HELD:" .. user .. ":" .. expiresAt)
+				redis.call("zadd", KEYS[2], expiresAt, member(seat))
+				change(seat, "HELD", user, expiresAt)
+			end
+			result[2] = expiresAt
+			result[3] = commit()
+			expireStateKeys(tonumber(ARGV[4]))
+			return result
+			""",
+            List.class);
+
+    // ARGV: showId, userId, seatNumber... | Chỉ bỏ những ghế đang do chính user giữ. Trả về version (0 nếu không đổi)
+    private static final DefaultRedisScript<Long> RELEASE_SCRIPT = script(
+            """
+			local user = ARGV[2]
+			for i = 3, #ARGV do
+				local seat = ARGV[i]
+				if redis.call("get", holdKey(i - 2)) == user then
+					redis.call("del", holdKey(i - 2))
+					redis.call("hdel", KEYS[1], seat)
+					redis.call("zrem", KEYS[2], member(seat))
+					change(seat, "AVAILABLE", user, 0)
+				end
+			end
+			return commit()
+			""",
+            Long.class);
+
+    // ARGV: showId, seatNumber | Dọn trạng thái HELD khi hold đã hết hạn. Trả về version (0 nếu không đổi)
+    private static final DefaultRedisScript<Long> EXPIRE_SCRIPT = script(
+            """
+			local seat = ARGV[2]
+			redis.call("zrem", KEYS[2], member(seat))
+			if redis.call("exists", holdKey(1)) == 1 then
+				return 0
+			end
+			local state = redis.call("hget", KEYS[1], seat)
+			if state and string.sub(state, 1, 5) == "HELD:" then
+				redis.call("hdel", KEYS[1], seat)
+				change(seat, "AVAILABLE", nil, 0)
+			end
+			return commit()
+			""",
+            Long.class);
+
+    // ARGV: showId, userId, seatNumber...
+    // Trả về {1|0, version, mã từng ghế...}: chỉ chuyển sang BOOKED khi mọi ghế vẫn do user giữ (hoặc đã BOOKED cho
+    // chính user ở lần gọi trước), nếu không thì không đổi gì
+    @SuppressWarnings("rawtypes")
+    private static final DefaultRedisScript<List> COMMIT_HOLDS_SCRIPT = script(
+            """
+			local user = ARGV[2]
+			local result = {1, 0}
+			for i = 3, #ARGV do
+				local code = 0
+				local owner = redis.call("get", bookedKey(i - 2))
+				if owner then
+					if owner ~= user then
+						code = 1
+					end
+				else
+					local holder = redis.call("get", holdKey(i - 2))
+					if not holder then
+						code = 3
+					elseif holder ~= user then
+						code = 2
+					end
+				end
+				if code ~= 0 then
+					result[1] = 0
+				end
+				result[#result + 1] = code
+			end
+			if result[1] == 0 then
+				return result
+			end
+			for i = 3, #ARGV do
+				local seat = ARGV[i]
+				if redis.call("exists", bookedKey(i - 2)) == 0 then
+					redis.call("set", bookedKey(i - 2), user)
+					redis.call("del", holdKey(i - 2))
+					redis.call("hset", KEYS[1], seat, "BOOKED:" .. user)
+					redis.call("zrem", KEYS[2], member(seat))
+					change(seat, "BOOKED", user, 0)
+				end
+			end
+			result[2] = commit()
+			return result
+			""",
+            List.class);
+
+    // ARGV: showId, seatNumber... | Trả về version (0 nếu không đổi)
+    private static final DefaultRedisScript<Long> RELEASE_BOOKED_SCRIPT = script(
+            """
+			for i = 2, #ARGV do
+				local seat = ARGV[i]
+				local removed = redis.call("del", bookedKey(i - 1)) + redis.call("hdel", KEYS[1], seat)
+				if removed > 0 then
+					change(seat, "AVAILABLE", nil, 0)
+				end
+			end
+			return commit()
+			""",
+            Long.class);
+
+    // ARGV: showId, sinceVersion
+    // Trả về {version, 0, entry...} (delta) hoặc {version, 1, seat, state, ...} (snapshot, khi client tụt quá xa)
+    @SuppressWarnings("rawtypes")
+    private static final DefaultRedisScript<List> CHANGES_SINCE_SCRIPT = script(
+            """
+			local since = tonumber(ARGV[2])
+			local version = tonumber(redis.call("get", KEYS[3]) or "0")
+			if since == version then
+				return {version, 0}
+			end
+			if since < version then
+				local entries = redis.call("lrange", KEYS[4], 0, -1)
+				if #entries > 0 and tonumber(string.match(entries[1], "^(%d+):")) <= since then
+					local result = {version, 0}
+					for i = 1, #entries do
+						if tonumber(string.match(entries[i], "^(%d+):")) > since then
+							result[#result + 1] = entries[i]
+						end
+					end
+					return result
+				end
+			end
+			local result = {version, 1}
+			local state = redis.call("hgetall", KEYS[1])
+			for i = 1, #state do
+				result[#result + 1] = state[i]
+			end
+			return result
+			""",
+            List.class);
+
+    // KEYS: expiry zset | ARGV: batch size
+    // Lấy các ghế đến hạn và ZREM ngay trong script nên mỗi lần hết hạn chỉ một node nhận.
+    // Trả về {số entry đến hạn, độ trễ lớn nhất (ms), "showId:seat", ...}
+    @SuppressWarnings("rawtypes")
+    private static final DefaultRedisScript<List> CLAIM_EXPIRED_SCRIPT = new DefaultRedisScript<>(
+            """
+			local time = redis.call("time")
+			local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+			local due = redis.call("zrangebyscore", KEYS[1], "-inf", now, "WITHSCORES", "LIMIT", 0, tonumber(ARGV[1]))
+			local result = {#due / 2, 0}
+			for i = 1, #due, 2 do
+				local lag = now - tonumber(due[i + 1])
+				if lag > result[2] then
+					result[2] = lag
+				end
+				redis.call("zrem", KEYS[1], due[i])
+				result[#result + 1] = due[i]
+			end
+			return result
+			""",
+            List.class);
+
+    // ARGV: showId, seatNumber... | Dọn các ghế đã nhận từ CLAIM_EXPIRED_SCRIPT nếu hold thật sự đã quá hạn.
+    // Trả về {version, 1|0 từng ghế...} (1: ghế đã được trả về AVAILABLE)
+    @SuppressWarnings("rawtypes")
+    private static final DefaultRedisScript<List> EXPIRE_DUE_SCRIPT = script(
+            """
+			local now = nowMillis()
+			local result = {0}
+			for i = 2, #ARGV do
+				local seat = ARGV[i]
+				local state = redis.call("hget", KEYS[1], seat)
+				local expiresAt = state and tonumber(string.match(state, "^HELD:.*:(%d+)$"))
+				local expired = 0
+				if expiresAt and expiresAt <= now then
+					redis.call("del", holdKey(i - 1))
+					redis.call("hdel", KEYS[1], seat)
+					change(seat, "AVAILABLE", nil, 0)
+					expired = 1
+				end
+				result[#result + 1] = expired
+			end
+			result[1] = commit()
+			return result
+			""",
+            List.class);
+
+    private static <T> DefaultRedisScript<T> script(String body, Class<T> resultType) {
+        return new DefaultRedisScript<>(PRELUDE + body, resultType);
+    }
+
+    /**
+     * Nạp sẵn các script vào Redis (SCRIPT LOAD) để lần gọi đầu tiên cũng chỉ cần EVALSHA.
+     * DefaultRedisScript tính SHA một lần và luôn gửi EVALSHA, chỉ gửi lại nguyên script khi Redis trả NOSCRIPT.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void preloadScripts() {
+        List<RedisScript<?>> scripts = List.of(
+                HOLD_SCRIPT,
+                HOLD_ALL_SCRIPT,
+                RELEASE_SCRIPT,
+                EXPIRE_SCRIPT,
+                COMMIT_HOLDS_SCRIPT,
+                RELEASE_BOOKED_SCRIPT,
+                CHANGES_SINCE_SCRIPT,
+                CLAIM_EXPIRED_SCRIPT,
+                EXPIRE_DUE_SCRIPT);
+        try {
+            redisTemplate.execute((RedisCallback<Void>) connection -> {
+                for (RedisScript<?> script : scripts) {
+                    byte[] body = script.getScriptAsString().getBytes(StandardCharsets.UTF_8);
+                    connection.scriptingCommands().scriptLoad(body);
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            log.warn("Could not preload seat scripts, they will be loaded on first use", e);
+        }
+    }
+
+    // ==================== KEYS ====================
+
+    public static String stateKey(Long showId) {
+        return "seatstate:" + showId;
+    }
+
+    public static String versionKey(Long showId) {
+        return "seatstate:" + showId + ":version";
+    }
+
+    public static String logKey(Long showId) {
+        return "seatstate:" + showId + ":log";
+    }
+
+    public static String holdKey(Long showId, String seatNumber) {
+        return "hold:" + showId + ":" + seatNumber;
+    }
+
+    public static String bookedKey(Long showId, String seatNumber) {
+        return "booked:" + showId + ":" + seatNumber;
+    }
+
+    public static String expiryMember(Long showId, String seatNumber) {
+        return showId + ":" + seatNumber;
+    }
+
+    // Cùng thứ tự ghế với args(): ghế thứ n dùng KEYS[3 + 2n] (hold) và KEYS[4 + 2n] (booked)
+    private static List<String> keys(Long showId, Collection<String> seatNumbers) {
+        List<String> keys = new ArrayList<>(4 + seatNumbers.size() * 2);
+        keys.add(stateKey(showId));
+        keys.add(HOLD_EXPIRY_KEY);
+        keys.add(versionKey(showId));
+        keys.add(logKey(showId));
+        for (String seatNumber : seatNumbers) {
+            keys.add(holdKey(showId, seatNumber));
+            keys.add(bookedKey(showId, seatNumber));
+        }
+        return keys;
+    }
+
+    private static Object[] args(Long showId, Collection<String> seatNumbers, String... leading) {
+        List<String> args = new ArrayList<>(seatNumbers.size() + leading.length + 1);
+        args.add(String.valueOf(showId));
+        args.addAll(Arrays.asList(leading));
+        args.addAll(seatNumbers);
+        return args.toArray();
+    }
+
+    /**
+     * Thời điểm (epoch ms) các key trạng thái của suất chiếu hết hạn: giờ kết thúc suất chiếu cộng thêm một giờ, và
+     * không sớm hơn một giờ kể từ bây giờ. 0 nếu không đọc được suất chiếu (script không đặt TTL).
+     */
+    long stateExpiresAt(Long showId) {
+        long now = System.currentTimeMillis();
+        StateExpiry cached = stateExpiries.get(showId);
+        if (cached == null || now - cached.loadedAt() >= SCHEDULE_REFRESH_MILLIS) {
+            cached = loadStateExpiry(showId, now);
+            if (cached == null) return 0L;
+        }
+        return Math.max(cached.expiresAt(), now + STATE_GRACE_MILLIS);
+    }
+
+    private StateExpiry loadStateExpiry(Long showId, long now) {
+        List<Object[]> rows;
+        try {
+            rows = showRepository.findScheduleById(showId);
+        } catch (DataAccessException e) {
+            log.warn("Could not load schedule of show {}, seat state keys keep their current TTL", showId, e);
+            return null;
+        }
+        if (rows.isEmpty() || rows.get(0)[0] == null) return null;
+
+        LocalDateTime start = (LocalDateTime) rows.get(0)[0];
+        Integer runtime = (Integer) rows.get(0)[1];
+        long endsAt = start.plusMinutes(runtime != null ? runtime : DEFAULT_RUNTIME_MINUTES)
+                .atZone(ZoneId.systemDefault())
+                .toInstant()
+                .toEpochMilli();
+        if (stateExpiries.size() >= MAX_CACHED_SCHEDULES) {
+            stateExpiries.values().removeIf(expiry -> now - expiry.loadedAt() >= SCHEDULE_REFRESH_MILLIS);
+        }
+        StateExpiry expiry = new StateExpiry(endsAt + STATE_GRACE_MILLIS, now);
+        stateExpiries.put(showId, expiry);
+        return expiry;
+    }
+
+    private record StateExpiry(long expiresAt, long loadedAt) {}
+
+    private static long toLong(Object value) {
+        return value instanceof Number number ? number.longValue() : 0L;
+    }
+
+    // ==================== GHI TRẠNG THÁI ====================
+
+    /**
+     * Giữ một ghế bằng đúng một lần gọi Redis (EVALSHA).
+     */
+    public HoldResult hold(Long showId, String seatNumber, String userId, long ttlSeconds) {
+        List<?> raw = redisTemplate.execute(
+                HOLD_SCRIPT,
+                keys(showId, List.of(seatNumber)),
+                String.valueOf(showId),
+                seatNumber,
+                userId,
+                String.valueOf(ttlSeconds),
+                String.valueOf(stateExpiresAt(showId)));
+        if (raw == null || raw.size() != 3) {
+            return null;
+        }
+        return new HoldResult(toLong(raw.get(0)), toLong(raw.get(1)), toLong(raw.get(2)));
+    }
+
+    public record HoldResult(long seatCode, long expiresAt, long version) {
+        public boolean held() {
+            return seatCode == SEAT_OK;
+        }
+    }
+
+    /**
+     * Giữ tất cả ghế hoặc không giữ ghế nào. {@code seatCodes} theo đúng thứ tự {@code seatNumbers}.
+     */
+    public HoldAllResult holdAll(Long showId, List<String> seatNumbers, String userId, long ttlSeconds) {
+        List<?> raw = redisTemplate.execute(
+                HOLD_ALL_SCRIPT,
+                keys(showId, seatNumbers),
+                args(showId, seatNumbers, userId, String.valueOf(ttlSeconds), String.valueOf(stateExpiresAt(showId))));
+        if (raw == null || raw.size() != seatNumbers.size() + 3) {
+            return new HoldAllResult(false, 0L, 0L, List.of());
+        }
+        List<Long> seatCodes = new ArrayList<>(seatNumbers.size());
+        for (int i = 3; i < raw.size(); i++) {
+            seatCodes.add(toLong(raw.get(i)));
+        }
+        return new HoldAllResult(toLong(raw.get(0)) == 1, toLong(raw.get(1)), toLong(raw.get(2)), seatCodes);
+    }
+
+    public record HoldAllResult(boolean held, long expiresAt, long version, List<Long> seatCodes) {}
+
+    /**
+     * Bỏ các ghế đang do {@code userId} giữ. Trả về version mới, 0 nếu không có ghế nào được bỏ.
+     */
+    public long releaseAll(Long showId, Collection<String> seatNumbers, String userId) {
+        if (seatNumbers.isEmpty()) return 0L;
+        Long version = redisTemplate.execute(
+                RELEASE_SCRIPT, keys(showId, seatNumbers), args(showId, seatNumbers, userId));
+        return version != null ? version : 0L;
+    }
+
+    /**
+     * Bỏ nhiều nhóm hold (mỗi nhóm một suất chiếu / user) trong một lần pipeline thay vì một round-trip mỗi nhóm.
+     * Trả về version mới theo đúng thứ tự {@code releases}, 0 với nhóm không có ghế nào được bỏ.
+     */
+    public List<Long> releaseAllPipelined(List<HoldRelease> releases) {
+        if (releases.isEmpty()) return List.of();
+        List<Object> raw;
+        try {
+            raw = redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <K, V> Object execute(RedisOperations<K, V> operations) {
+                    RedisOperations<String, String> ops = (RedisOperations<String, String>) operations;
+                    for (HoldRelease release : releases) {
+                        ops.execute(
+                                RELEASE_SCRIPT,
+                                keys(release.showId(), release.seatNumbers()),
+                                args(release.showId(), release.seatNumbers(), release.userId()));
+                    }
+                    return null;
+                }
+            });
+        } catch (DataAccessException e) {
+            // Trong pipeline không fallback được NOSCRIPT (Redis vừa khởi động lại): chạy lần lượt để tự EVAL
+            log.warn("Pipelined hold release failed, releasing one by one", e);
+            return releases.stream()
+                    .map(release -> releaseAll(release.showId(), release.seatNumbers(), release.userId()))
+                    .toList();
+        }
+        List<Long> versions = new ArrayList<>(releases.size());
+        for (int i = 0; i < releases.size(); i++) {
+            versions.add(i < raw.size() ? toLong(raw.get(i)) : 0L);
+        }
+        return versions;
+    }
+
+    public record HoldRelease(Long showId, String userId, Collection<String> seatNumbers) {}
+
+    public long release(Long showId, String seatNumber, String userId) {
+        return releaseAll(showId, List.of(seatNumber), userId);
+    }
+
+    /**
+     * Dọn trạng thái HELD sau khi key {@code hold:} hết hạn. Không làm gì nếu ghế đã được giữ lại.
+     * Trả về version mới, 0 nếu không có thay đổi.
+     */
+    public long expireHold(Long showId, String seatNumber) {
+        Long version = redisTemplate.execute(
+                EXPIRE_SCRIPT, keys(showId, List.of(seatNumber)), String.valueOf(showId), seatNumber);
+        return version != null ? version : 0L;
+    }
+
+    /**
+     * Dọn tối đa {@code batchSize} ghế đã hết hạn giữ trong sorted set {@code seatstate:hold-expiry}: một lần gọi để
+     * nhận các entry đến hạn, rồi một lần gọi cho mỗi suất chiếu có ghế đến hạn.
+     * Nếu lần gọi của một suất chiếu lỗi, các entry của suất đó được trả lại sorted set để lượt sweep sau dọn tiếp.
+     */
+    public SweepResult sweepExpiredHolds(int batchSize) {
+        List<?> raw =
+                redisTemplate.execute(CLAIM_EXPIRED_SCRIPT, List.of(HOLD_EXPIRY_KEY), String.valueOf(batchSize));
+        if (raw == null || raw.size() < 2) {
+            return new SweepResult(0, 0L, List.of());
+        }
+        Map<Long, List<String>> seatsByShow = new LinkedHashMap<>();
+        for (int i = 2; i < raw.size(); i++) {
+            String member = String.valueOf(raw.get(i));
+            int sep = member.indexOf(':');
+            if (sep <= 0) continue;
+            seatsByShow
+                    .computeIfAbsent(Long.parseLong(member.substring(0, sep)), id -> new ArrayList<>())
+                    .add(member.substring(sep + 1));
+        }
+        List<ExpiredHold> expired = new ArrayList<>(raw.size() - 2);
+        seatsByShow.forEach((showId, seatNumbers) -> expired.addAll(expireDue(showId, seatNumbers)));
+        return new SweepResult((int) toLong(raw.get(0)), toLong(raw.get(1)), expired);
+    }
+
+    private List<ExpiredHold> expireDue(Long showId, List<String> seatNumbers) {
+        List<?> raw;
+        try {
+            raw = redisTemplate.execute(EXPIRE_DUE_SCRIPT, keys(showId, seatNumbers), args(showId, seatNumbers));
+        } catch (RuntimeException e) {
+            log.warn("Expiring due holds {} of show {} failed, requeueing them", seatNumbers, showId, e);
+            requeue(showId, seatNumbers);
+            return List.of();
+        }
+        if (raw == null || raw.size() != seatNumbers.size() + 1) {
+            log.warn("Unexpected expire-due result for show {}: {}", showId, raw);
+            requeue(showId, seatNumbers);
+            return List.of();
+        }
+        long version = toLong(raw.get(0));
+        List<ExpiredHold> expired = new ArrayList<>(seatNumbers.size());
+        for (int i = 0; i < seatNumbers.size(); i++) {
+            if (toLong(raw.get(i + 1)) == 1) {
+                expired.add(new ExpiredHold(showId, seatNumbers.get(i), version));
+            }
+        }
+        return expired;
+    }
+
+    // NX: ghế vừa được giữ lại đã có hạn mới trong sorted set thì không ghi đè
+    private void requeue(Long showId, List<String> seatNumbers) {
+        double now = System.currentTimeMillis();
+        Set<ZSetOperations.TypedTuple<String>> members = new HashSet<>(seatNumbers.size() * 2);
+        for (String seatNumber : seatNumbers) {
+            members.add(ZSetOperations.TypedTuple.of(expiryMember(showId, seatNumber), now));
+        }
+        try {
+            redisTemplate.opsForZSet().addIfAbsent(HOLD_EXPIRY_KEY, members);
+        } catch (RuntimeException e) {
+            // Hold key vẫn hết TTL nên ghế giữ lại được, nhưng hash còn HELD cho tới khi ghế được giữ lại
+            log.error("Could not return due holds {} of show {} to the expiry set", seatNumbers, showId, e);
+        }
+    }
+
+    public record ExpiredHold(Long showId, String seatNumber, long version) {}
+
+    /**
+     * {@code due}: số entry đã lấy khỏi sorted set (kể cả entry cũ không còn ghế nào để dọn),
+     * {@code maxLagMillis}: độ trễ lớn nhất so với thời điểm hết hạn.
+     */
+    public record SweepResult(int due, long maxLagMillis, List<ExpiredHold> expired) {}
+
+    /**
+     * Chuyển toàn bộ ghế đang giữ của {@code userId} sang BOOKED trong một lần gọi, hoặc không ghế nào.
+     * Khi thất bại, {@code conflicts} cho biết chính xác ghế nào và lý do (BOOKED, HELD_BY_OTHER, NOT_HELD).
+     */
+    public CommitResult commitHolds(Long showId, List<String> seatNumbers, String userId) {
+        if (seatNumbers.isEmpty()) return new CommitResult(true, 0L, Map.of());
+        List<?> raw = redisTemplate.execute(
+                COMMIT_HOLDS_SCRIPT, keys(showId, seatNumbers), args(showId, seatNumbers, userId));
+        if (raw == null || raw.size() != seatNumbers.size() + 2) {
+            throw new IllegalStateException("Unexpected commit-holds result for show " + showId + ": " + raw);
+        }
+        Map<String, String> conflicts = new LinkedHashMap<>();
+        for (int i = 0; i < seatNumbers.size(); i++) {
+            long code = toLong(raw.get(i + 2));
+            if (code != SEAT_OK) {
+                conflicts.put(seatNumbers.get(i), conflictReason(code));
+            }
+        }
+        return new CommitResult(toLong(raw.get(0)) == 1, toLong(raw.get(1)), conflicts);
+    }
+
+    public record CommitResult(boolean committed, long version, Map<String, String> conflicts) {}
+
+    private static String conflictReason(long code) {
+        if (code == SEAT_BOOKED) return "BOOKED";
+        if (code == SEAT_HELD_BY_OTHER) return "HELD_BY_OTHER";
+        return "NOT_HELD";
+    }
+
+    public long releaseBooked(Long showId, Collection<String> seatNumbers) {
+        if (seatNumbers.isEmpty()) return 0L;
+        Long version = redisTemplate.execute(
+                RELEASE_BOOKED_SCRIPT, keys(showId, seatNumbers), args(showId, seatNumbers));
+        return version != null ? version : 0L;
+    }
+
+    // ==================== ĐỌC TRẠNG THÁI ====================
+
+    /**
+     * Toàn bộ ghế đang giữ / đã đặt của một suất chiếu bằng một lệnh HGETALL. Ghế HELD đã quá hạn nhưng chưa được
+     * dọn sẽ bị bỏ qua.
+     */
+    public List<SeatUpdateResponse> getSeatStates(Long showId) {
+        Map<Object, Object> entries = redisTemplate.opsForHash().entries(stateKey(showId));
+        long now = System.currentTimeMillis();
+        List<SeatUpdateResponse> states = new ArrayList<>(entries.size());
+        for (Map.Entry<Object, Object> entry : entries.entrySet()) {
+            SeatUpdateResponse state = parseState(showId, (String) entry.getKey(), (String) entry.getValue());
+            if (isLive(state, now)) states.add(state);
+        }
+        return states;
+    }
+
+    /**
+     * Các thay đổi sau version {@code since}, hoặc snapshot đầy đủ nếu log không còn đủ để nối tiếp.
+     */
+    public SeatMapResponse getChangesSince(Long showId, long since) {
+        return readChanges(showId, Math.max(since, 0));
+    }
+
+    /**
+     * Luôn trả snapshot đầy đủ kèm version hiện tại (since = -1 không bao giờ nối tiếp được log).
+     */
+    public SeatMapResponse getSnapshot(Long showId) {
+        return readChanges(showId, -1);
+    }
+
+    private SeatMapResponse readChanges(Long showId, long since) {
+        List<?> raw = redisTemplate.execute(
+                CHANGES_SINCE_SCRIPT, keys(showId, List.of()), String.valueOf(showId), String.valueOf(since));
+        if (raw == null || raw.size() < 2) {
+            return SeatMapResponse.builder()
+                    .showId(showId)
+                    .version(0L)
+                    .snapshot(true)
+                    .seats(List.of())
+                    .build();
+        }
+
+        long version = toLong(raw.get(0));
+        boolean snapshot = toLong(raw.get(1)) == 1;
+        List<SeatUpdateResponse> seats = new ArrayList<>();
+        if (snapshot) {
+            long now = System.currentTimeMillis();
+            for (int i = 2; i + 1 < raw.size(); i += 2) {
+                SeatUpdateResponse state = parseState(showId, (String) raw.get(i), (String) raw.get(i + 1));
+                if (isLive(state, now)) {
+                    state.setVersion(version);
+                    seats.add(state);
+                }
+            }
+        } else {
+            for (int i = 2; i < raw.size(); i++) {
+                SeatUpdateResponse change = parseChange(showId, (String) raw.get(i));
+                if (change != null) seats.add(change);
+            }
+        }
+
+        return SeatMapResponse.builder()
+                .showId(showId)
+                .version(version)
+                .snapshot(snapshot)
+                .seats(seats)
+                .build();
+    }
+
+    /**
+     * Số ghế đang giữ / đã đặt, không tính ghế HELD đã quá hạn nhưng sweeper chưa dọn.
+     */
+    public long countOccupied(Long showId) {
+        return getSeatStates(showId).size();
+    }
+
+    private static boolean isLive(SeatUpdateResponse state, long now) {
+        if (state == null) return false;
+        return !SeatInstanceStatus.HELD.getStatus().equals(state.getStatus()) || state.getExpiresAt() > now;
+    }
+
+    static SeatUpdateResponse parseState(Long showId, String seatNumber, String value) {
+        if (value == null) return null;
+        String[] parts = value.split(":", 3);
+        if (SeatInstanceStatus.HELD.getStatus().equals(parts[0]) && parts.length == 3) {
+            return SeatUpdateResponse.builder()
+                    .showId(showId)
+                    .userId(parts[1])
+                    .seatNumber(seatNumber)
+                    .status(SeatInstanceStatus.HELD.getStatus())
+                    .expiresAt(Long.parseLong(parts[2]))
+                    .build();
+        }
+        if (SeatInstanceStatus.BOOKED.getStatus().equals(parts[0]) && parts.length >= 2) {
+            return SeatUpdateResponse.builder()
+                    .showId(showId)
+                    .userId(parts[1])
+                    .seatNumber(seatNumber)
+                    .status(SeatInstanceStatus.BOOKED.getStatus())
+                    .expiresAt(0L)
+                    .build();
+        }
+        return null;
+    }
+
+    // "version:seat:status:userId:expiresAt"
+    static SeatUpdateResponse parseChange(Long showId, String entry) {
+        String[] parts = entry.split(":", -1);
+        if (parts.length != 5) return null;
+        return SeatUpdateResponse.builder()
+                .showId(showId)
+                .version(Long.parseLong(parts[0]))
+                .seatNumber(parts[1])
+                .status(parts[2])
+                .userId(parts[3].isEmpty() ? null : parts[3])
+                .expiresAt((long) Double.parseDouble(parts[4]))
+                .build();
+    }
+}
@@ -0,0 +1,27 @@
+package com.longtapcode.identity_service.service;
+
+/**
+ * Đưa sự kiện ghế tới các client đang subscribe {@code /topic/show/{showId}}.
+ * <p>
+ * Chọn bằng {@code seat.broadcast.fanout}: {@code local} (mặc định, một node) hoặc {@code redis} (nhiều node, qua
+ * kênh pub/sub {@code ws:show:{showId}} và {@code ws:show:{showId}:compact}).
+ */
+public interface ShowEventFanout {
+
+    void publish(Long showId, Object payload);
+
+    /**
+     * Frame nhị phân của {@link CompactSeatFrameEncoder} cho {@code /topic/show/{showId}/compact}.
+     */
+    void publishCompact(Long showId, byte[] frame);
+
+    /**
+     * Node này vừa có subscriber đầu tiên cho suất chiếu.
+     */
+    default void onLocalSubscribed(Long showId) {}
+
+    /**
+     * Subscriber cuối cùng của suất chiếu trên node này đã rời đi.
+     */
+    default void onLocalUnsubscribed(Long showId) {}
+}
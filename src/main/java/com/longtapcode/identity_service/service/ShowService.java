@@ -476,13 +476,16 @@ import java.util.stream.Collectors;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.longtapcode.identity_service.Util.PageCursor;
 import com.longtapcode.identity_service.dto.request.ShowRequest;
 import com.longtapcode.identity_service.dto.request.UpdateShowRequest;
+import com.longtapcode.identity_service.dto.response.CursorPageResponse;
 import com.longtapcode.identity_service.dto.response.ShowResponse;
 import com.longtapcode.identity_service.entity.*;
 import com.longtapcode.identity_service.exception.AppException;
@@ -505,6 +508,7 @@ public class ShowService {
     RoomRepository roomRepository;
     ShowMapper showMapper;
     BookingRepository bookingRepository;
+    PricingService pricingService;
 
     // ==================== USER METHODS - CHỈ LẤY SHOW CHƯA CHIẾU ====================
 
@@ -574,6 +578,43 @@ public class ShowService {
         return new PageImpl<>(responses, pageable, shows.getTotalElements());
     }
 
+    /**
+     * Bản keyset của {@link #getAllShowsForAdmin}: sắp theo (showDateTime, id), chỉ đếm tổng khi được yêu cầu.
+     */
+    @PreAuthorize("hasRole('ADMIN')")
+    public CursorPageResponse<ShowResponse> getShowsForAdminByCursor(
+            String cursor,
+            int size,
+            Long movieId,
+            LocalDateTime startDate,
+            LocalDateTime endDate,
+            boolean includeTotal) {
+        int limit = PageCursor.pageSize(size);
+        String[] after = PageCursor.decode(cursor, 2);
+        LocalDateTime afterTime = after == null ? null : PageCursor.parseDateTime(after[0]);
+        Long afterId = after == null ? null : PageCursor.parseLong(after[1]);
+
+        List<Show> rows = showRepository.findShowsAfter(
+                movieId, startDate, endDate, afterTime, afterId, PageRequest.of(0, limit + 1));
+        List<Show> shows = PageCursor.trim(rows, limit);
+        boolean hasNext = rows.size() > limit;
+
+        List<ShowResponse> responses = showMapper.toListShowResponse(shows);
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < shows.size(); i++) {
+            responses.get(i).setShowStatus(getShowStatus(shows.get(i).getShowDateTime(), now));
+        }
+
+        Show last = hasNext ? shows.get(shows.size() - 1) : null;
+        return CursorPageResponse.<ShowResponse>builder()
+                .content(responses)
+                .size(limit)
+                .hasNext(hasNext)
+                .nextCursor(hasNext ? PageCursor.encode(last.getShowDateTime(), last.getId()) : null)
+                .totalElements(includeTotal ? showRepository.countShowsWithFilters(movieId, startDate, endDate) : null)
+                .build();
+    }
+
     // Helper method để xác định trạng thái show
     private String getShowStatus(LocalDateTime showDateTime, LocalDateTime now) {
         if (showDateTime.isBefore(now)) {
@@ -655,6 +696,7 @@ public class ShowService {
         show.setMovieID(movie);
         show.setRoomId(room);
         showRepository.save(show);
+        pricingService.invalidate(showId);
     }
 
     @PreAuthorize("hasRole('ADMIN')")
@@ -668,6 +710,7 @@ public class ShowService {
         }
 
         showRepository.deleteById(showId);
+        pricingService.invalidate(showId);
     }
 
     /**
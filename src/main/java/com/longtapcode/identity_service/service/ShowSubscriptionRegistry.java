@@ -0,0 +1,164 @@
+package com.longtapcode.identity_service.service;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+/**
+ * Đếm subscription STOMP cục bộ theo suất chiếu và báo cho {@link ShowEventFanout} khi một suất chiếu bắt đầu /
+ * thôi có subscriber trên node này.
+ */
+@Service
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class ShowSubscriptionRegistry {
+
+    static final String SHOW_TOPIC_PREFIX = "/topic/show/";
+
+    private static final int LISTENER_LOCK_STRIPES = 64;
+
+    ShowEventFanout showEventFanout;
+    // sessionId → (subscriptionId → showId)
+    Map<String, Map<String, Long>> subscriptions = new ConcurrentHashMap<>();
+    Map<Long, Integer> subscriberCounts = new ConcurrentHashMap<>();
+    // Số session (không phải subscription) đang xem từng suất chiếu; entry bị xóa khi về 0
+    Map<Long, Integer> viewerCounts = new ConcurrentHashMap<>();
+    // Các suất chiếu đã đăng ký listener với ShowEventFanout
+    Set<Long> listening = ConcurrentHashMap.newKeySet();
+    Object[] listenerLocks = newLocks();
+
+    /**
+     * {@code /topic/show/{showId}} hoặc {@code /topic/show/{showId}/...} → showId, null nếu không phải topic suất
+     * chiếu.
+     */
+    public static Long showIdOf(String destination) {
+        if (destination == null || !destination.startsWith(SHOW_TOPIC_PREFIX)) return null;
+        int start = SHOW_TOPIC_PREFIX.length();
+        int end = destination.indexOf('/', start);
+        try {
+            return Long.parseLong(end < 0 ? destination.substring(start) : destination.substring(start, end));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        Long showId = showIdOf(accessor.getDestination());
+        if (showId == null || accessor.getSessionId() == null || accessor.getSubscriptionId() == null) return;
+
+        Map<String, Long> sessionSubscriptions =
+                subscriptions.computeIfAbsent(accessor.getSessionId(), id -> new ConcurrentHashMap<>());
+        boolean newViewer = !sessionSubscriptions.containsValue(showId);
+        Long previous = sessionSubscriptions.put(accessor.getSubscriptionId(), showId);
+        if (newViewer) addViewer(showId);
+        increment(showId);
+        if (previous != null) {
+            decrement(previous);
+            if (!sessionSubscriptions.containsValue(previous)) removeViewer(previous);
+        }
+    }
+
+    @EventListener
+    public void onUnsubscribe(SessionUnsubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        Map<String, Long> sessionSubscriptions = subscriptions.get(accessor.getSessionId());
+        if (sessionSubscriptions == null || accessor.getSubscriptionId() == null) return;
+
+        Long showId = sessionSubscriptions.remove(accessor.getSubscriptionId());
+        if (showId == null) return;
+        decrement(showId);
+        if (!sessionSubscriptions.containsValue(showId)) removeViewer(showId);
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        Map<String, Long> sessionSubscriptions = subscriptions.remove(event.getSessionId());
+        if (sessionSubscriptions == null) return;
+        sessionSubscriptions.values().forEach(this::decrement);
+        new HashSet<>(sessionSubscriptions.values()).forEach(this::removeViewer);
+    }
+
+    public int localSubscribers(Long showId) {
+        return subscriberCounts.getOrDefault(showId, 0);
+    }
+
+    public Map<Long, Integer> localSubscriberCounts() {
+        return Map.copyOf(subscriberCounts);
+    }
+
+    /**
+     * Số session đang xem từng suất chiếu trên node này (chỉ các suất chiếu có người xem). O(số suất chiếu).
+     */
+    public Map<Long, Long> localViewerCounts() {
+        Map<Long, Long> counts = new HashMap<>();
+        viewerCounts.forEach((showId, count) -> counts.put(showId, count.longValue()));
+        return counts;
+    }
+
+    private void addViewer(Long showId) {
+        viewerCounts.merge(showId, 1, Integer::sum);
+    }
+
+    private void removeViewer(Long showId) {
+        viewerCounts.computeIfPresent(showId, (id, count) -> count > 1 ? count - 1 : null);
+    }
+
+    // compute() chỉ quyết định có chuyển 0 ↔ 1 hay không; gọi Redis nằm ngoài compute để không giữ khóa bin của map
+    private void increment(Long showId) {
+        boolean[] first = new boolean[1];
+        subscriberCounts.compute(showId, (id, count) -> {
+            first[0] = count == null;
+            return count == null ? 1 : count + 1;
+        });
+        if (first[0]) syncListener(showId);
+    }
+
+    private void decrement(Long showId) {
+        boolean[] last = new boolean[1];
+        subscriberCounts.computeIfPresent(showId, (id, count) -> {
+            last[0] = count == 1;
+            return count > 1 ? count - 1 : null;
+        });
+        if (last[0]) syncListener(showId);
+    }
+
+    /**
+     * Đưa listener về đúng trạng thái hiện tại của {@code subscriberCounts}. Hai lần chuyển 0 → 1 và 1 → 0 chạy song
+     * song có thể tới đây theo thứ tự bất kỳ; lần nào chạy sau cũng đọc lại số đếm nên trạng thái cuối luôn khớp.
+     */
+    private void syncListener(Long showId) {
+        synchronized (listenerLocks[Math.floorMod(showId.hashCode(), LISTENER_LOCK_STRIPES)]) {
+            boolean wanted = subscriberCounts.containsKey(showId);
+            if (wanted && !listening.contains(showId)) {
+                showEventFanout.onLocalSubscribed(showId);
+                listening.add(showId);
+            } else if (!wanted && listening.contains(showId)) {
+                showEventFanout.onLocalUnsubscribed(showId);
+                listening.remove(showId);
+            }
+        }
+    }
+
+    private static Object[] newLocks() {
+        Object[] locks = new Object[LISTENER_LOCK_STRIPES];
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+        return locks;
+    }
+}
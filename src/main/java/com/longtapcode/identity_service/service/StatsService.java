@@ -8,7 +8,6 @@ import java.util.stream.Collectors;
 
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
 
 import com.longtapcode.identity_service.entity.Movie;
@@ -31,7 +30,7 @@ public class StatsService {
     MovieRepository movieRepository;
     ShowRepository showRepository;
     BookingRepository bookingRepository;
-    StringRedisTemplate redisTemplate;
+    SeatStateService seatStateService;
 
     public Map<String, Object> getCinemaStats() {
         Map<String, Object> stats = new HashMap<>();
@@ -128,11 +127,8 @@ public class StatsService {
     }
 
     private int calculateAvailableSeats(Long showId) {
-        Set<String> heldKeys = redisTemplate.keys("hold:" + showId + ":*");
-        Set<String> bookedKeys = redisTemplate.keys("booked:" + showId + ":*");
-
         int totalSeats = 60; // Assuming 60 seats per room
-        int occupiedSeats = (heldKeys != null ? heldKeys.size() : 0) + (bookedKeys != null ? bookedKeys.size() : 0);
+        int occupiedSeats = (int) seatStateService.countOccupied(showId);
 
         return Math.max(0, totalSeats - occupiedSeats);
     }
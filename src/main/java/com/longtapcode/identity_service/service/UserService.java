@@ -1,6 +1,7 @@
 package com.longtapcode.identity_service.service;
 
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import org.springframework.data.domain.Page;
@@ -10,10 +11,12 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
+import com.longtapcode.identity_service.Util.PageCursor;
 import com.longtapcode.identity_service.constant.PredefinedRole;
 import com.longtapcode.identity_service.dto.request.CreationUserRequest;
 import com.longtapcode.identity_service.dto.request.UpdateUserRequest;
 import com.longtapcode.identity_service.dto.request.admin.AdminUpdateUserRequest;
+import com.longtapcode.identity_service.dto.response.CursorPageResponse;
 import com.longtapcode.identity_service.dto.response.UserResponse;
 import com.longtapcode.identity_service.entity.Movie;
 import com.longtapcode.identity_service.entity.Role;
@@ -69,6 +72,27 @@ public class UserService {
         return users.map(userMapper::toUserResponse);
     }
 
+    /**
+     * Bản keyset của {@link #getAllUsersForAdmin}: sắp theo id, chỉ đếm tổng khi được yêu cầu.
+     */
+    @PreAuthorize("hasRole('ADMIN')")
+    public CursorPageResponse<UserResponse> getUsersForAdminByCursor(String cursor, int size, boolean includeTotal) {
+        int limit = PageCursor.pageSize(size);
+        String[] after = PageCursor.decode(cursor, 1);
+
+        List<User> rows = userRepository.findUsersAfter(after == null ? null : after[0], PageRequest.of(0, limit + 1));
+        List<User> users = PageCursor.trim(rows, limit);
+        boolean hasNext = rows.size() > limit;
+
+        return CursorPageResponse.<UserResponse>builder()
+                .content(userMapper.toListUserResponse(users))
+                .size(limit)
+                .hasNext(hasNext)
+                .nextCursor(hasNext ? PageCursor.encode(users.get(users.size() - 1).getId()) : null)
+                .totalElements(includeTotal ? userRepository.count() : null)
+                .build();
+    }
+
     public UserResponse createUser(CreationUserRequest request) {
         if (userRepository.existsByUserName(request.getUserName())) {
             throw new AppException(ErrorCode.USER_EXISTED);
@@ -1,7 +1,9 @@
 package com.longtapcode.identity_service.service;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.text.SimpleDateFormat;
+import java.time.Duration;
 import java.util.*;
 
 import jakarta.servlet.http.HttpServletRequest;
@@ -14,10 +16,8 @@ import com.longtapcode.identity_service.configuration.VNPayConfig;
 import com.longtapcode.identity_service.constant.VNPayConstant;
 import com.longtapcode.identity_service.dto.request.PaymentCreateRequest;
 import com.longtapcode.identity_service.dto.response.PaymentCreateResponse;
-import com.longtapcode.identity_service.entity.Show;
 import com.longtapcode.identity_service.exception.AppException;
 import com.longtapcode.identity_service.exception.ErrorCode;
-import com.longtapcode.identity_service.repository.ShowRepository;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -28,21 +28,15 @@ import lombok.extern.slf4j.Slf4j;
 public class VNPayService {
 
     private final VNPayConfig vnPayConfig;
-    private final ShowRepository showRepository;
     private final RedisTemplate<String, String> redisTemplate;
+    private final PaymentSessionService paymentSessionService;
 
     /**
-     * Tạo VNPay payment URL
+     * Tạo VNPay payment URL cho tổng tiền {@code amount} (VND) đã tính ở server
      */
-    public PaymentCreateResponse createVNPayPayment(PaymentCreateRequest request, HttpServletRequest httpRequest) {
-        Show show = showRepository
-                .findById(request.getShowId())
-                .orElseThrow(() -> new AppException(ErrorCode.SHOW_NOT_EXISTED));
-
-        // Calculate amount
-        int seatCount = request.getSeatNumbers().size();
-        BigDecimal amount = show.getPrice().multiply(BigDecimal.valueOf(seatCount));
-        Long totalAmount = amount.longValue();
+    public PaymentCreateResponse createVNPayPayment(
+            PaymentCreateRequest request, BigDecimal amount, HttpServletRequest httpRequest) {
+        Long totalAmount = amount.setScale(0, RoundingMode.HALF_UP).longValue();
 
         String orderId = UUID.randomUUID().toString();
         String txnRef = String.valueOf(System.currentTimeMillis());
@@ -80,6 +74,7 @@ public class VNPayService {
 
         redisTemplate.opsForHash().putAll(metadataKey, metadata);
         redisTemplate.expire(metadataKey, 20, java.util.concurrent.TimeUnit.MINUTES);
+        paymentSessionService.register(txnRef, request.getShowId(), request.getSeatNumbers(), Duration.ofMinutes(20));
 
         // Build URL
         String queryString = VNPayUtil.buildQueryString(vnpParams);
@@ -114,16 +109,24 @@ public class VNPayService {
             throw new AppException(ErrorCode.PAYMENT_NOT_FOUND);
         }
 
+        Long showId = Long.parseLong((String) rawMetadata.get("showId"));
+        String[] seats = ((String) rawMetadata.get("seats")).split(",");
+        // VNPay đã trừ tiền trước khi redirect về nên không chặn ở đây, chỉ ghi lại để đối soát
+        if (!paymentSessionService.isActive(txnRef)) {
+            log.warn("VNPay payment {} returned after its seat hold expired", txnRef);
+        }
+
         Map<String, Object> result = new HashMap<>();
         result.put("success", "00".equals(responseCode));
         result.put("orderId", rawMetadata.get("orderId"));
-        result.put("showId", Long.parseLong((String) rawMetadata.get("showId")));
+        result.put("showId", showId);
         result.put("userId", rawMetadata.get("userId"));
-        result.put("seats", ((String) rawMetadata.get("seats")).split(","));
+        result.put("seats", seats);
         result.put("amount", Long.parseLong((String) rawMetadata.get("amount")));
         result.put("paymentMethod", "VNPAY");
 
         redisTemplate.delete(metadataKey);
+        paymentSessionService.complete(txnRef, showId, Arrays.asList(seats));
         return result;
     }
 }
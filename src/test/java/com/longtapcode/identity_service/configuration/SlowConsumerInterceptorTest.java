@@ -0,0 +1,133 @@
+package com.longtapcode.identity_service.configuration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.longtapcode.identity_service.dto.response.SeatMapResponse;
+import com.longtapcode.identity_service.service.CompactSeatFrameEncoder;
+import com.longtapcode.identity_service.service.SeatHoldService;
+import com.longtapcode.identity_service.service.ShowSubscriptionRegistry;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ExtendWith(MockitoExtension.class)
+class SlowConsumerInterceptorTest {
+
+    @Mock
+    private ObjectProvider<SeatHoldService> seatHoldServiceProvider;
+
+    @Mock
+    private ObjectProvider<ShowSubscriptionRegistry> registryProvider;
+
+    @Mock
+    private SeatHoldService seatHoldService;
+
+    @Mock
+    private CompactSeatFrameEncoder compactSeatFrameEncoder;
+
+    @Mock
+    private MessageChannel channel;
+
+    private SimpleMeterRegistry meterRegistry;
+    private SlowConsumerInterceptor interceptor;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        SeatSnapshotSender snapshotSender =
+                new SeatSnapshotSender(seatHoldServiceProvider, new ObjectMapper(), compactSeatFrameEncoder);
+        interceptor = new SlowConsumerInterceptor(snapshotSender, registryProvider, meterRegistry, 2);
+    }
+
+    private static Message<byte[]> delta(String sessionId) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setSessionId(sessionId);
+        accessor.setSubscriptionId("sub-0");
+        accessor.setDestination("/topic/show/1");
+        return MessageBuilder.createMessage(new byte[] {1}, accessor.getMessageHeaders());
+    }
+
+    @Test
+    @DisplayName("Slow session - drops deltas, then sends one snapshot after catching up")
+    void slowSession_DowngradedToSnapshot() {
+        when(seatHoldServiceProvider.getObject()).thenReturn(seatHoldService);
+        when(seatHoldService.getSeatSnapshot(1L))
+                .thenReturn(SeatMapResponse.builder()
+                        .showId(1L)
+                        .version(42L)
+                        .snapshot(true)
+                        .seats(List.of())
+                        .build());
+
+        Message<byte[]> first = delta("s1");
+        Message<byte[]> second = delta("s1");
+        assertNotNull(interceptor.preSend(first, channel));
+        assertNotNull(interceptor.preSend(second, channel));
+        // Vượt ngưỡng → bỏ delta, kể cả các delta sau đó
+        assertNull(interceptor.preSend(delta("s1"), channel));
+        assertNull(interceptor.preSend(delta("s1"), channel));
+        // Session khác không bị ảnh hưởng
+        assertNotNull(interceptor.preSend(delta("s2"), channel));
+
+        interceptor.afterMessageHandled(first, channel, null, null);
+        verify(channel, never()).send(any());
+        interceptor.afterMessageHandled(second, channel, null, null);
+
+        ArgumentCaptor<Message<?>> snapshot = ArgumentCaptor.forClass(Message.class);
+        verify(channel).send(snapshot.capture());
+        assertEquals("s1", SimpMessageHeaderAccessor.getSessionId(snapshot.getValue().getHeaders()));
+        assertEquals("sub-0", SimpMessageHeaderAccessor.getSubscriptionId(snapshot.getValue().getHeaders()));
+        assertEquals("/topic/show/1", SimpMessageHeaderAccessor.getDestination(snapshot.getValue().getHeaders()));
+        assertEquals(2.0, meterRegistry.get("seat.ws.deltas.dropped").counter().count());
+        assertEquals(1.0, meterRegistry.get("seat.ws.snapshots.sent").counter().count());
+    }
+
+    @Test
+    @DisplayName("Rejected by the outbound executor - pending count released")
+    void rejectedSend_ReleasesPending() {
+        Message<byte[]> first = delta("s1");
+        Message<byte[]> second = delta("s1");
+        assertNotNull(interceptor.preSend(first, channel));
+        assertNotNull(interceptor.preSend(second, channel));
+
+        // Hàng đợi đầy: cả hai frame không bao giờ được xử lý
+        MessageDeliveryException rejected = new MessageDeliveryException(first, "queue full");
+        interceptor.afterSendCompletion(first, channel, false, rejected);
+        interceptor.afterSendCompletion(second, channel, false, rejected);
+
+        assertNotNull(interceptor.preSend(delta("s1"), channel));
+        assertEquals(0.0, meterRegistry.get("seat.ws.deltas.dropped").counter().count());
+    }
+
+    @Test
+    @DisplayName("Delivered to the executor - released only after handling")
+    void sentFrame_ReleasedAfterHandling() {
+        Message<byte[]> first = delta("s1");
+        Message<byte[]> second = delta("s1");
+        assertNotNull(interceptor.preSend(first, channel));
+        assertNotNull(interceptor.preSend(second, channel));
+        interceptor.afterSendCompletion(first, channel, true, null);
+        interceptor.afterSendCompletion(second, channel, true, null);
+
+        assertNull(interceptor.preSend(delta("s1"), channel));
+    }
+}
@@ -0,0 +1,71 @@
+package com.longtapcode.identity_service.configuration;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+
+@ExtendWith(MockitoExtension.class)
+class SubscribeSnapshotInterceptorTest {
+
+    @Mock
+    private SeatSnapshotSender seatSnapshotSender;
+
+    @Mock
+    private MessageChannel clientInboundChannel;
+
+    @Mock
+    private MessageChannel clientOutboundChannel;
+
+    @Mock
+    private SimpleBrokerMessageHandler brokerHandler;
+
+    private SubscribeSnapshotInterceptor interceptor;
+
+    @BeforeEach
+    void setUp() {
+        interceptor = new SubscribeSnapshotInterceptor(seatSnapshotSender, clientOutboundChannel);
+    }
+
+    private static Message<byte[]> subscribe(String destination, String snapshotHeader) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.SUBSCRIBE);
+        accessor.setSessionId("s1");
+        accessor.setSubscriptionId("sub-0");
+        accessor.setDestination(destination);
+        if (snapshotHeader != null) accessor.setNativeHeader("snapshot", snapshotHeader);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+
+    @Test
+    @DisplayName("Success - snapshot sent to the subscribing session after the broker registers it")
+    void afterSubscribe_SendsSnapshot() {
+        interceptor.afterMessageHandled(subscribe("/topic/show/3", null), clientInboundChannel, brokerHandler, null);
+
+        verify(seatSnapshotSender).send(clientOutboundChannel, "s1", "sub-0", "/topic/show/3");
+    }
+
+    @Test
+    @DisplayName("Skipped - other handlers, other topics and opt-out header")
+    void afterSubscribe_Skipped() {
+        MessageHandler otherHandler = mock(MessageHandler.class);
+
+        interceptor.afterMessageHandled(subscribe("/topic/show/3", null), clientInboundChannel, otherHandler, null);
+        interceptor.afterMessageHandled(subscribe("/topic/news", null), clientInboundChannel, brokerHandler, null);
+        interceptor.afterMessageHandled(subscribe("/topic/show/3", "false"), clientInboundChannel, brokerHandler, null);
+
+        verify(seatSnapshotSender, never()).send(any(), anyString(), anyString(), anyString());
+    }
+}
@@ -0,0 +1,98 @@
+package com.longtapcode.identity_service.loadtest;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.longtapcode.identity_service.dto.response.SeatBatchUpdateResponse;
+import com.longtapcode.identity_service.dto.response.SeatUpdateResponse;
+import com.longtapcode.identity_service.entity.Seat;
+import com.longtapcode.identity_service.repository.SeatRepository;
+import com.longtapcode.identity_service.service.CompactSeatFrameEncoder;
+import com.longtapcode.identity_service.service.SeatCatalogService;
+
+/**
+ * Benchmark thủ công so sánh bytes/frame và ns/op giữa JSON (định dạng mặc định) và frame nhị phân của
+ * {@link CompactSeatFrameEncoder} cho một batch {@code seats} ghế. Danh mục ghế là snapshot thật của
+ * {@link SeatCatalogService}, nạp từ một repository trong bộ nhớ.
+ *
+ * <pre>
+ * ./mvnw test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.longtapcode.identity_service.loadtest.CompactSeatFrameBenchmark \
+ *     -Dseats=200 -Diterations=20000
+ * </pre>
+ */
+public final class CompactSeatFrameBenchmark {
+
+    private final int seats = Integer.getInteger("seats", 200);
+    private final int iterations = Integer.getInteger("iterations", 20_000);
+
+    public static void main(String[] args) throws Exception {
+        new CompactSeatFrameBenchmark().run();
+    }
+
+    private void run() throws Exception {
+        SeatCatalogService catalog = new SeatCatalogService(seatRepository(seats), null);
+        catalog.reload();
+        CompactSeatFrameEncoder encoder = new CompactSeatFrameEncoder(catalog);
+        ObjectMapper objectMapper = new ObjectMapper();
+
+        long expiresAt = System.currentTimeMillis() + 120_000;
+        List<SeatUpdateResponse> updates = new ArrayList<>(seats);
+        for (int i = 0; i < seats; i++) {
+            updates.add(SeatUpdateResponse.builder()
+                    .showId(1L)
+                    .userId("3f1c2a9e-5b7d-4c1e-9a8f-" + String.format("%012d", i))
+                    .seatNumber("S" + i)
+                    .seatType(i % 3)
+                    .status(i % 2 == 0 ? "HELD" : "BOOKED")
+                    .expiresAt(i % 2 == 0 ? expiresAt : 0L)
+                    .version((long) i)
+                    .build());
+        }
+        long version = seats - 1L;
+        SeatBatchUpdateResponse batch = SeatBatchUpdateResponse.builder()
+                .showId(1L)
+                .version(version)
+                .updates(updates)
+                .build();
+
+        byte[] json = null;
+        byte[] compact = null;
+        // Làm nóng JIT trước khi đo
+        for (int i = 0; i < iterations; i++) {
+            json = objectMapper.writeValueAsBytes(batch);
+            compact = encoder.encode(version, false, updates);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            json = objectMapper.writeValueAsBytes(batch);
+        }
+        long jsonNs = (System.nanoTime() - start) / iterations;
+
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            compact = encoder.encode(version, false, updates);
+        }
+        long compactNs = (System.nanoTime() - start) / iterations;
+
+        System.out.printf(
+                "Seat frame benchmark (%d seats, %d iterations)%n  json    %d B %d ns/op%n  compact %d B %d ns/op%n",
+                seats, iterations, json.length, jsonNs, compact.length, compactNs);
+    }
+
+    // Chỉ findAll(Sort) được SeatCatalogService dùng khi nạp snapshot; danh sách đã theo thứ tự seatId
+    private static SeatRepository seatRepository(int size) {
+        List<Seat> catalog = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            catalog.add(Seat.builder().seatId(i + 1).seatNumber("S" + i).vip(i % 3).build());
+        }
+        return (SeatRepository) Proxy.newProxyInstance(
+                SeatRepository.class.getClassLoader(), new Class<?>[] {SeatRepository.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("findAll") && method.getParameterCount() == 1) return catalog;
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+}
@@ -0,0 +1,128 @@
+package com.longtapcode.identity_service.loadtest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * PayPal giả chạy cục bộ cho benchmark độ trễ / lỗi của {@code PayPalGateway}. Trả lời đủ các endpoint SDK gọi
+ * (OAuth token, create order, capture, refund) với độ trễ {@code latencyMillis} và tỉ lệ 503 {@code failurePercent}.
+ * <p>
+ * Chạy độc lập để trỏ ứng dụng vào ({@code PAYPAL_BASE_URL=http://localhost:8089}):
+ *
+ * <pre>
+ * ./mvnw test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.longtapcode.identity_service.loadtest.FakePayPalServer \
+ *     -Dport=8089 -Dlatency=500 -DfailurePercent=0
+ * </pre>
+ */
+public final class FakePayPalServer implements AutoCloseable {
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final AtomicLong sequence = new AtomicLong();
+    private volatile long latencyMillis;
+    private volatile int failurePercent;
+
+    public FakePayPalServer(int port, long latencyMillis, int failurePercent) throws IOException {
+        this.latencyMillis = latencyMillis;
+        this.failurePercent = failurePercent;
+        this.server = HttpServer.create(new InetSocketAddress("localhost", port), 1024);
+        server.createContext("/v1/oauth2/token", this::token);
+        server.createContext("/v2/checkout/orders", this::orders);
+        server.createContext("/v2/payments/captures", this::refund);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public static void main(String[] args) throws Exception {
+        FakePayPalServer server = new FakePayPalServer(
+                Integer.getInteger("port", 8089),
+                Long.getLong("latency", 500L),
+                Integer.getInteger("failurePercent", 0));
+        System.out.printf("Fake PayPal listening on %s%n", server.baseUrl());
+        Thread.currentThread().join();
+    }
+
+    public String baseUrl() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    public void setLatencyMillis(long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+    }
+
+    public void setFailurePercent(int failurePercent) {
+        this.failurePercent = failurePercent;
+    }
+
+    private void token(HttpExchange exchange) throws IOException {
+        respond(exchange, 200, """
+				{"scope":"","access_token":"fake-token","token_type":"Bearer","app_id":"fake","expires_in":32400,\
+				"nonce":"fake"}""");
+    }
+
+    private void orders(HttpExchange exchange) throws IOException {
+        if (!simulate(exchange)) return;
+        String path = exchange.getRequestURI().getPath();
+        if (path.endsWith("/capture")) {
+            String orderId = path.substring("/v2/checkout/orders/".length(), path.length() - "/capture".length());
+            respond(exchange, 201, """
+					{"id":"%s","status":"COMPLETED","purchase_units":[{"reference_id":"default",\
+					"payments":{"captures":[{"id":"CAPTURE-%s","status":"COMPLETED"}]}}]}"""
+                    .formatted(orderId, orderId));
+            return;
+        }
+        String orderId = "FAKE-" + sequence.incrementAndGet();
+        respond(exchange, 201, """
+				{"id":"%s","status":"CREATED","links":[{"href":"%s/checkoutnow?token=%s","rel":"approve",\
+				"method":"GET"}]}"""
+                .formatted(orderId, baseUrl(), orderId));
+    }
+
+    private void refund(HttpExchange exchange) throws IOException {
+        if (!simulate(exchange)) return;
+        respond(exchange, 201, """
+				{"id":"REFUND-%d","status":"COMPLETED"}""".formatted(sequence.incrementAndGet()));
+    }
+
+    // Áp độ trễ và lỗi giả lập; trả về false nếu đã trả lời 503
+    private boolean simulate(HttpExchange exchange) throws IOException {
+        try (InputStream body = exchange.getRequestBody()) {
+            body.readAllBytes();
+        }
+        try {
+            Thread.sleep(latencyMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (ThreadLocalRandom.current().nextInt(100) < failurePercent) {
+            respond(exchange, 503, """
+					{"name":"SERVICE_UNAVAILABLE","message":"Fake PayPal failure"}""");
+            return false;
+        }
+        return true;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        exchange.getResponseBody().write(body);
+        exchange.close();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,123 @@
+package com.longtapcode.identity_service.loadtest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.longtapcode.identity_service.service.PayPalGateway;
+import com.paypal.core.PayPalEnvironment;
+import com.paypal.core.PayPalHttpClient;
+import com.paypal.orders.OrderRequest;
+import com.paypal.orders.OrdersCreateRequest;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Benchmark thủ công cho {@link PayPalGateway} trên {@link FakePayPalServer}: {@code threads} thread (giả lập thread
+ * Tomcat) gọi create order liên tục trong {@code seconds} giây, so sánh gọi thẳng SDK với gọi qua gateway.
+ * <p>
+ * Với PayPal chậm ({@code -Dlatency=3000}) hoặc lỗi ({@code -DfailurePercent=60}), gọi thẳng giữ mọi thread trong
+ * suốt độ trễ; qua gateway, phần vượt bulkhead và lời gọi khi circuit mở được trả lỗi ngay.
+ *
+ * <pre>
+ * ./mvnw test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.longtapcode.identity_service.loadtest.PayPalGatewayBenchmark \
+ *     -Dthreads=200 -Dseconds=20 -Dlatency=3000 -DfailurePercent=0
+ * </pre>
+ */
+public final class PayPalGatewayBenchmark {
+
+    private final int threads = Integer.getInteger("threads", 200);
+    private final int seconds = Integer.getInteger("seconds", 20);
+    private final long latency = Long.getLong("latency", 3000L);
+    private final int failurePercent = Integer.getInteger("failurePercent", 0);
+    private final int maxConcurrentCalls = Integer.getInteger("maxConcurrentCalls", 20);
+    private final long timeoutMillis = Long.getLong("timeoutMs", 2000L);
+
+    public static void main(String[] args) throws Exception {
+        new PayPalGatewayBenchmark().run();
+    }
+
+    private void run() throws Exception {
+        try (FakePayPalServer server = new FakePayPalServer(0, latency, failurePercent)) {
+            PayPalHttpClient client = new PayPalHttpClient(
+                    new PayPalEnvironment("fake-client", "fake-secret", server.baseUrl(), server.baseUrl()));
+            client.setConnectTimeout(3000);
+            client.setReadTimeout(15000);
+
+            // Lấy token OAuth trước để không tính vào lần đo
+            server.setLatencyMillis(0);
+            server.setFailurePercent(0);
+            client.execute(createRequest());
+            server.setLatencyMillis(latency);
+            server.setFailurePercent(failurePercent);
+
+            Result direct = measure(() -> client.execute(createRequest()).result());
+
+            SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+            PayPalGateway gateway = new PayPalGateway(
+                    client, meterRegistry, maxConcurrentCalls, 100, timeoutMillis, timeoutMillis, timeoutMillis, 20,
+                    10, 50, 5000);
+            Result guarded;
+            try {
+                guarded = measure(() -> gateway.createOrder(createRequest(), "bench-" + System.nanoTime()));
+            } finally {
+                gateway.close();
+            }
+
+            System.out.printf(
+                    "PayPal gateway benchmark (%d threads, %d s, latency %d ms, failures %d%%, bulkhead %d, "
+                            + "timeout %d ms)%n  direct  %s%n  gateway %s%n",
+                    threads, seconds, latency, failurePercent, maxConcurrentCalls, timeoutMillis, direct, guarded);
+        }
+    }
+
+    private static OrdersCreateRequest createRequest() {
+        return new OrdersCreateRequest().requestBody(new OrderRequest().checkoutPaymentIntent("CAPTURE"));
+    }
+
+    private Result measure(Callable<?> call) throws InterruptedException {
+        LongAdder ok = new LongAdder();
+        Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+        ConcurrentLinkedQueue<Long> latencies = new ConcurrentLinkedQueue<>();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int i = 0; i < threads; i++) {
+            executor.submit(() -> {
+                while (System.nanoTime() < deadline) {
+                    long start = System.nanoTime();
+                    try {
+                        call.call();
+                        ok.increment();
+                    } catch (Exception e) {
+                        errors.computeIfAbsent(e.getClass().getSimpleName(), key -> new LongAdder())
+                                .increment();
+                    }
+                    latencies.add(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                }
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(seconds + 60L, TimeUnit.SECONDS);
+
+        List<Long> sorted = new ArrayList<>(latencies);
+        sorted.sort(null);
+        return new Result(ok.sum(), errors, percentile(sorted, 50), percentile(sorted, 99), sorted.size());
+    }
+
+    private static long percentile(List<Long> sorted, int percentile) {
+        if (sorted.isEmpty()) return 0;
+        return sorted.get(Math.min(sorted.size() - 1, sorted.size() * percentile / 100));
+    }
+
+    private record Result(long ok, Map<String, LongAdder> errors, long p50, long p99, long calls) {
+        @Override
+        public String toString() {
+            return String.format(
+                    "calls %d | ok %d | errors %s | p50 %d ms | p99 %d ms", calls, ok, errors, p50, p99);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.longtapcode.identity_service.loadtest;
+
+import java.lang.reflect.Type;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.messaging.converter.ByteArrayMessageConverter;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.web.socket.client.WebSocketClient;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+import org.springframework.web.socket.sockjs.client.SockJsClient;
+import org.springframework.web.socket.sockjs.client.WebSocketTransport;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Load test thủ công cho broker STOMP, so sánh {@code /ws} (SockJS) và {@code /ws-native} trên một server đang chạy.
+ * <p>
+ * Mở {@code clients} kết nối, subscribe {@code /topic/show/{show}} và đo frames/giây cùng độ trễ giao frame
+ * (p50/p99, dựa trên {@code sentAt} của batch). Nếu có {@code token} + {@code userId}, harness tự tạo tải bằng cách
+ * giữ / bỏ lần lượt các ghế {@code seats} qua REST.
+ *
+ * <pre>
+ * ./mvnw test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.longtapcode.identity_service.loadtest.StompLoadHarness \
+ *     -Dclients=500 -Dseconds=30 -Dmode=both -Dtoken=... -DuserId=...
+ * </pre>
+ */
+public final class StompLoadHarness {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final String baseUrl = System.getProperty("url", "http://localhost:8080/cinezone");
+    private final long showId = Long.getLong("show", 1L);
+    private final int clients = Integer.getInteger("clients", 200);
+    private final int seconds = Integer.getInteger("seconds", 30);
+    private final String token = System.getProperty("token");
+    private final String userId = System.getProperty("userId");
+    private final List<String> seats = Arrays.asList(System.getProperty("seats", "A1,A2,A3,A4,A5").split(","));
+
+    public static void main(String[] args) throws Exception {
+        StompLoadHarness harness = new StompLoadHarness();
+        String mode = System.getProperty("mode", "both");
+        if (!"native".equals(mode)) harness.run(true).print("sockjs");
+        if (!"sockjs".equals(mode)) harness.run(false).print("native");
+    }
+
+    private Result run(boolean sockJs) throws Exception {
+        WebSocketClient transport = sockJs
+                ? new SockJsClient(List.of(new WebSocketTransport(new StandardWebSocketClient())))
+                : new StandardWebSocketClient();
+        WebSocketStompClient stompClient = new WebSocketStompClient(transport);
+        stompClient.setMessageConverter(new ByteArrayMessageConverter());
+        String url = sockJs ? baseUrl + "/ws" : baseUrl.replaceFirst("^http", "ws") + "/ws-native";
+
+        LongAdder frames = new LongAdder();
+        ConcurrentLinkedQueue<Long> latencies = new ConcurrentLinkedQueue<>();
+        StompFrameHandler frameHandler = new StompFrameHandler() {
+            @Override
+            public Type getPayloadType(StompHeaders headers) {
+                return byte[].class;
+            }
+
+            @Override
+            public void handleFrame(StompHeaders headers, Object payload) {
+                long receivedAt = System.currentTimeMillis();
+                frames.increment();
+                try {
+                    JsonNode sentAt = OBJECT_MAPPER.readTree((byte[]) payload).get("sentAt");
+                    if (sentAt != null && sentAt.isNumber()) latencies.add(receivedAt - sentAt.asLong());
+                } catch (Exception ignored) {
+                    // Snapshot hoặc frame không phải batch JSON
+                }
+            }
+        };
+
+        List<StompSession> sessions = new ArrayList<>(clients);
+        for (int i = 0; i < clients; i++) {
+            StompSession session = stompClient
+                    .connectAsync(url, new StompSessionHandlerAdapter() {})
+                    .get(10, TimeUnit.SECONDS);
+            session.subscribe("/topic/show/" + showId, frameHandler);
+            sessions.add(session);
+        }
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread driver = new Thread(() -> drive(running), "stomp-load-driver");
+        driver.start();
+        long start = System.nanoTime();
+        Thread.sleep(TimeUnit.SECONDS.toMillis(seconds));
+        running.set(false);
+        driver.join();
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+
+        sessions.forEach(StompSession::disconnect);
+        stompClient.stop();
+
+        long[] sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+        return new Result(frames.sum() / elapsedSeconds, percentile(sorted, 0.50), percentile(sorted, 0.99));
+    }
+
+    // Giữ rồi bỏ lần lượt từng ghế để server phát liên tục các thay đổi
+    private void drive(AtomicBoolean running) {
+        if (token == null || userId == null) return;
+        HttpClient http = HttpClient.newHttpClient();
+        int i = 0;
+        while (running.get()) {
+            String seat = seats.get(i++ % seats.size());
+            String body = "{\"showId\":%d,\"seatNumber\":\"%s\",\"userId\":\"%s\"}".formatted(showId, seat, userId);
+            try {
+                post(http, "/seat/hold", body);
+                post(http, "/seat/release", body);
+            } catch (Exception e) {
+                System.err.println("Load driver request failed: " + e.getMessage());
+            }
+        }
+    }
+
+    private void post(HttpClient http, String path, String body) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Content-Type", "application/json")
+                .header("Authorization", "Bearer " + token)
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        http.send(request, HttpResponse.BodyHandlers.discarding());
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) return -1;
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(percentile * sorted.length) - 1)];
+    }
+
+    private record Result(double framesPerSecond, long p50Millis, long p99Millis) {
+        void print(String mode) {
+            System.out.printf(
+                    "%-6s frames/s=%.0f p50=%dms p99=%dms%n", mode, framesPerSecond, p50Millis, p99Millis);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.longtapcode.identity_service.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.longtapcode.identity_service.entity.Booking;
+import com.longtapcode.identity_service.entity.Show;
+import com.longtapcode.identity_service.entity.User;
+import com.longtapcode.identity_service.repository.BookingDetailRepository;
+import com.longtapcode.identity_service.repository.BookingRepository;
+
+/**
+ * Thời gian hủy vé theo kích thước bảng bookingdetails (10 nghìn → 1 triệu dòng, 4 ghế mỗi booking).
+ * Repository giả lập index BookingID bằng tìm kiếm nhị phân trên mảng id đã sắp xếp; {@code findAll} ném lỗi để
+ * bắt lại nếu luồng hủy quay về quét cả bảng. Mất vài giây nên không chạy cùng bộ test mặc định
+ * ({@code ./mvnw test -Dgroups=benchmark -DexcludedGroups=}).
+ */
+@Tag("benchmark")
+@ExtendWith(MockitoExtension.class)
+class BookingCancellationScalingBenchmarkTest {
+
+    private static final int SEATS_PER_BOOKING = 4;
+    private static final int CANCELLATIONS = 2_000;
+    private static final int[] TABLE_SIZES = {10_000, 100_000, 1_000_000};
+
+    @Mock
+    private BookingRepository bookingRepository;
+
+    @Mock
+    private BookingDetailRepository bookingDetailRepository;
+
+    @Mock
+    private PayPalService payPalService;
+
+    @Mock
+    private VNPayService vnPayService;
+
+    @Mock
+    private SeatStateService seatStateService;
+
+    @Mock
+    private SeatBroadcastService seatBroadcastService;
+
+    @InjectMocks
+    private BookingCancellationService cancellationService;
+
+    @Test
+    @DisplayName("Benchmark - cancellation time stays flat as bookingdetails grows")
+    void benchmark_CancellationScaling() {
+        Show show = new Show();
+        show.setId(1L);
+        show.setShowDateTime(LocalDateTime.now().plusDays(1));
+        User user = new User();
+        user.setId("user-123");
+
+        when(payPalService.refundPayPalPayment(anyString(), any()))
+                .thenReturn(Map.of("refundId", "REF", "amount", BigDecimal.TEN));
+        lenient().when(bookingDetailRepository.findAll()).thenThrow(new AssertionError("full table scan"));
+
+        List<Long> nanosPerCancel = new ArrayList<>();
+        for (int rows : TABLE_SIZES) {
+            long[] bookingIdColumn = bookingIdColumn(rows);
+            long bookings = rows / SEATS_PER_BOOKING;
+            when(bookingRepository.findById(anyLong())).thenAnswer(invocation -> Optional.of(Booking.builder()
+                    .id(invocation.getArgument(0))
+                    .showID(show)
+                    .id1(user)
+                    .status("CONFIRMED")
+                    .paymentMethod("PAYPAL")
+                    .transactionId("TXN")
+                    .totalPrice(BigDecimal.TEN)
+                    .build()));
+            when(bookingDetailRepository.findSeatNumbersByBookingId(anyLong()))
+                    .thenAnswer(invocation -> indexLookup(bookingIdColumn, invocation.getArgument(0)));
+
+            // Làm nóng JIT trước khi đo
+            cancelMany(bookings, CANCELLATIONS / 4);
+            long start = System.nanoTime();
+            cancelMany(bookings, CANCELLATIONS);
+            nanosPerCancel.add((System.nanoTime() - start) / CANCELLATIONS);
+        }
+
+        StringBuilder results = new StringBuilder("ns per cancellation by table size:");
+        for (int i = 0; i < TABLE_SIZES.length; i++) {
+            results.append(' ').append(TABLE_SIZES[i]).append(" rows=").append(nanosPerCancel.get(i));
+        }
+
+        // Bảng lớn gấp 100 lần nhưng thời gian hủy không được tăng theo
+        long smallest = nanosPerCancel.get(0);
+        long largest = nanosPerCancel.get(nanosPerCancel.size() - 1);
+        assertTrue(largest < smallest * 5 + TimeUnit.MILLISECONDS.toNanos(1), results.toString());
+    }
+
+    private void cancelMany(long bookings, int count) {
+        for (int i = 0; i < count; i++) {
+            long bookingId = 1 + (i * 7919L) % bookings;
+            Map<String, Object> result = cancellationService.cancelBookingWithRefund(bookingId);
+            assertEquals(true, result.get("success"));
+        }
+    }
+
+    // Cột BookingID đã sắp xếp, như lá của index B-tree
+    private static long[] bookingIdColumn(int rows) {
+        long[] column = new long[rows];
+        for (int i = 0; i < rows; i++) {
+            column[i] = 1 + i / SEATS_PER_BOOKING;
+        }
+        return column;
+    }
+
+    private static List<String> indexLookup(long[] column, long bookingId) {
+        int position = Arrays.binarySearch(column, bookingId);
+        if (position < 0) return List.of();
+        while (position > 0 && column[position - 1] == bookingId) position--;
+        List<String> seats = new ArrayList<>(SEATS_PER_BOOKING);
+        for (int i = position; i < column.length && column[i] == bookingId; i++) {
+            seats.add("S" + (i - position + 1));
+        }
+        return seats;
+    }
+}
@@ -2,7 +2,6 @@ package com.longtapcode.identity_service.service;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 import java.math.BigDecimal;
@@ -10,6 +9,7 @@ import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -19,11 +19,9 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.data.redis.core.StringRedisTemplate;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 
+import com.longtapcode.identity_service.dto.response.SeatUpdateResponse;
 import com.longtapcode.identity_service.entity.Booking;
-import com.longtapcode.identity_service.entity.BookingDetail;
 import com.longtapcode.identity_service.entity.Show;
 import com.longtapcode.identity_service.entity.User;
 import com.longtapcode.identity_service.exception.AppException;
@@ -47,10 +45,10 @@ class BookingCancellationServiceTest {
     private VNPayService vnPayService;
 
     @Mock
-    private StringRedisTemplate redisTemplate;
+    private SeatStateService seatStateService;
 
     @Mock
-    private SimpMessagingTemplate messagingTemplate;
+    private SeatBroadcastService seatBroadcastService;
 
     @InjectMocks
     private BookingCancellationService cancellationService;
@@ -85,14 +83,10 @@ class BookingCancellationServiceTest {
         @Test
         @DisplayName("Success - PayPal Refund")
         void cancelWithRefund_Success_PayPal() {
-            // Mock booking details for releasing seats
-            BookingDetail detail =
-                    BookingDetail.builder().bookingID(booking).seatNumber("A1").build();
-
             when(bookingRepository.findById(1L)).thenReturn(Optional.of(booking));
             when(payPalService.refundPayPalPayment("PAYPAL-TXN-123", new BigDecimal("150000")))
                     .thenReturn(Map.of("refundId", "REF-123", "amount", new BigDecimal("150000")));
-            when(bookingDetailRepository.findAll()).thenReturn(List.of(detail));
+            when(bookingDetailRepository.findSeatNumbersByBookingId(1L)).thenReturn(List.of("A1"));
 
             Map<String, Object> result = cancellationService.cancelBookingWithRefund(1L);
 
@@ -101,8 +95,10 @@ class BookingCancellationServiceTest {
             assertEquals("CANCELLED", booking.getStatus());
 
             verify(bookingRepository).save(booking);
-            verify(redisTemplate).delete("booked:1:A1");
-            verify(messagingTemplate).convertAndSend(eq("/topic/show/1"), any(Object.class));
+            verify(seatStateService).releaseBooked(1L, Set.of("A1"));
+            verify(bookingDetailRepository).findSeatNumbersByBookingId(1L);
+            verify(bookingDetailRepository, never()).findAll();
+            verify(seatBroadcastService).publish(any(SeatUpdateResponse.class));
         }
 
         @Test
@@ -110,11 +106,8 @@ class BookingCancellationServiceTest {
         void cancelWithRefund_Success_VNPay() {
             booking.setPaymentMethod("VNPAY");
 
-            BookingDetail detail =
-                    BookingDetail.builder().bookingID(booking).seatNumber("A2").build();
-
             when(bookingRepository.findById(1L)).thenReturn(Optional.of(booking));
-            when(bookingDetailRepository.findAll()).thenReturn(List.of(detail));
+            when(bookingDetailRepository.findSeatNumbersByBookingId(1L)).thenReturn(List.of("A2"));
 
             Map<String, Object> result = cancellationService.cancelBookingWithRefund(1L);
 
@@ -123,6 +116,8 @@ class BookingCancellationServiceTest {
             assertEquals("CANCELLED", booking.getStatus());
 
             verify(bookingRepository).save(booking);
+            verify(bookingDetailRepository).findSeatNumbersByBookingId(1L);
+            verify(bookingDetailRepository, never()).findAll();
         }
 
         @Test
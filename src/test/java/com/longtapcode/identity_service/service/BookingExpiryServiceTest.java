@@ -0,0 +1,139 @@
+package com.longtapcode.identity_service.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.longtapcode.identity_service.dto.response.SeatUpdateResponse;
+import com.longtapcode.identity_service.repository.BookingRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ExtendWith(MockitoExtension.class)
+class BookingExpiryServiceTest {
+
+    @Mock
+    private BookingRepository bookingRepository;
+
+    @Mock
+    private SeatStateService seatStateService;
+
+    @Mock
+    private SeatBroadcastService seatBroadcastService;
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Mock
+    private ValueOperations<String, String> valueOperations;
+
+    @Mock
+    private RedisLockService redisLockService;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private BookingExpiryService bookingExpiryService;
+
+    @BeforeEach
+    void setUp() {
+        bookingExpiryService = new BookingExpiryService(
+                bookingRepository,
+                seatStateService,
+                seatBroadcastService,
+                redisTemplate,
+                redisLockService,
+                meterRegistry);
+        ReflectionTestUtils.setField(bookingExpiryService, "pendingMinutes", 30L);
+        ReflectionTestUtils.setField(bookingExpiryService, "batchSize", 2);
+        ReflectionTestUtils.setField(bookingExpiryService, "maxBatches", 5);
+        // Lượt bị khóa không đọc Redis
+        lenient().when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+    }
+
+    private static List<Object[]> rows(Object[]... rows) {
+        return Arrays.asList(rows);
+    }
+
+    @Test
+    @DisplayName("Success - expires stale bookings in batches and releases their holds in one pipeline")
+    void expireStaleBookings_Success() {
+        when(redisLockService.tryLock(eq(BookingExpiryService.LOCK_KEY), any(Duration.class)))
+                .thenReturn(true);
+        when(bookingRepository.findStaleByStatus(eq("PENDING"), any(LocalDateTime.class), any(Pageable.class)))
+                .thenReturn(rows(new Object[] {1L, 10L, "user-1"}, new Object[] {2L, 10L, "user-2"}))
+                .thenReturn(rows(new Object[] {3L, 11L, "user-3"}));
+        when(bookingRepository.updateStaleStatus(anyList(), eq("PENDING"), any(LocalDateTime.class), eq("EXPIRED")))
+                .thenReturn(2, 1);
+        when(valueOperations.multiGet(anyList()))
+                .thenReturn(Arrays.asList("A1,A2", null))
+                .thenReturn(List.of("B1"));
+        when(seatStateService.releaseAllPipelined(anyList())).thenReturn(List.of(7L), List.of(0L));
+
+        bookingExpiryService.expireStaleBookings();
+
+        verify(bookingRepository, times(2))
+                .findStaleByStatus(eq("PENDING"), any(LocalDateTime.class), any(Pageable.class));
+        verify(bookingRepository).updateStaleStatus(eq(List.of(1L, 2L)), eq("PENDING"), any(), eq("EXPIRED"));
+        verify(bookingRepository).updateStaleStatus(eq(List.of(3L)), eq("PENDING"), any(), eq("EXPIRED"));
+        verify(seatStateService)
+                .releaseAllPipelined(List.of(new SeatStateService.HoldRelease(10L, "user-1", List.of("A1", "A2"))));
+
+        ArgumentCaptor<SeatUpdateResponse> captor = ArgumentCaptor.forClass(SeatUpdateResponse.class);
+        verify(seatBroadcastService).publish(captor.capture());
+        assertEquals(Set.of("A1", "A2"), captor.getValue().getSeatNumbers());
+        assertEquals(7L, captor.getValue().getVersion());
+
+        assertEquals(3.0, meterRegistry.get("booking.expiry.expired").counter().count());
+        assertEquals(1.0, meterRegistry.get("booking.expiry.holds.released").counter().count());
+        assertEquals(1, meterRegistry.get("booking.expiry.duration").timer().count());
+        verify(redisLockService).unlock(BookingExpiryService.LOCK_KEY);
+    }
+
+    @Test
+    @DisplayName("Race - booking confirmed during expiry keeps its holds")
+    void expireBatch_SkipsConfirmedBooking() {
+        when(bookingRepository.findStaleByStatus(eq("PENDING"), any(LocalDateTime.class), any(Pageable.class)))
+                .thenReturn(rows(new Object[] {1L, 10L, "user-1"}, new Object[] {2L, 10L, "user-2"}));
+        when(bookingRepository.updateStaleStatus(anyList(), eq("PENDING"), any(LocalDateTime.class), eq("EXPIRED")))
+                .thenReturn(1);
+        when(bookingRepository.findIdsByStatus(List.of(1L, 2L), "EXPIRED")).thenReturn(List.of(2L));
+        when(valueOperations.multiGet(anyList())).thenReturn(List.of("A1", "A2"));
+        when(seatStateService.releaseAllPipelined(anyList())).thenReturn(List.of(0L));
+
+        assertEquals(2, bookingExpiryService.expireBatch(LocalDateTime.now()));
+
+        verify(seatStateService)
+                .releaseAllPipelined(List.of(new SeatStateService.HoldRelease(10L, "user-2", List.of("A2"))));
+        verifyNoInteractions(seatBroadcastService);
+    }
+
+    @Test
+    @DisplayName("Lock - skips the pass when another node is running it")
+    void expireStaleBookings_LockHeldElsewhere() {
+        when(redisLockService.tryLock(eq(BookingExpiryService.LOCK_KEY), any(Duration.class)))
+                .thenReturn(false);
+
+        bookingExpiryService.expireStaleBookings();
+
+        verifyNoInteractions(bookingRepository, seatStateService);
+    }
+}
@@ -6,6 +6,7 @@ import static org.mockito.Mockito.*;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
@@ -17,15 +18,24 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import com.longtapcode.identity_service.dto.projection.BookingDetailView;
+import com.longtapcode.identity_service.dto.projection.BookingSummaryView;
+import com.longtapcode.identity_service.dto.response.BookingDetailResponse;
 import com.longtapcode.identity_service.dto.response.BookingResponse;
 import com.longtapcode.identity_service.dto.response.BookingStatisticsResponse;
+import com.longtapcode.identity_service.dto.response.CursorPageResponse;
 import com.longtapcode.identity_service.entity.Booking;
 import com.longtapcode.identity_service.entity.Show;
 import com.longtapcode.identity_service.entity.User;
 import com.longtapcode.identity_service.exception.AppException;
 import com.longtapcode.identity_service.exception.ErrorCode;
 import com.longtapcode.identity_service.mapper.BookingMapper;
+import com.longtapcode.identity_service.repository.BookingDetailRepository;
 import com.longtapcode.identity_service.repository.BookingRepository;
 
 @ExtendWith(MockitoExtension.class)
@@ -34,6 +44,9 @@ class BookingServiceTest {
     @Mock
     private BookingRepository bookingRepository;
 
+    @Mock
+    private BookingDetailRepository bookingDetailRepository;
+
     @Mock
     private BookingMapper bookingMapper;
 
@@ -178,6 +191,115 @@ class BookingServiceTest {
         }
     }
 
+    @Nested
+    @DisplayName("getAllBookingsForAdmin")
+    class GetAllBookingsForAdmin {
+
+        private BookingSummaryView summary(Long id) {
+            return new BookingSummaryView(
+                    id, "ORDER-" + id, "user-123", "john", "john@mail.com", 1L, "Movie", null, "PAYPAL",
+                    new BigDecimal("200000"), "CONFIRMED", null);
+        }
+
+        @Test
+        @DisplayName("Success - one page query and one IN query for the seat details")
+        void getAllBookingsForAdmin_Success() {
+            Pageable pageable = PageRequest.of(0, 10);
+            when(bookingRepository.findSummariesWithFilters(null, null, null, null, null, pageable))
+                    .thenReturn(new PageImpl<>(List.of(summary(1L), summary(2L)), pageable, 2));
+            BookingDetailView a1 = new BookingDetailView(1L, 11L, "A1", new BigDecimal("100000"));
+            BookingDetailView a2 = new BookingDetailView(1L, 12L, "A2", new BigDecimal("100000"));
+            when(bookingDetailRepository.findViewsByBookingIds(List.of(1L, 2L))).thenReturn(List.of(a1, a2));
+            when(bookingMapper.toBookingDetailResponse(any(BookingDetailView.class)))
+                    .thenAnswer(invocation -> {
+                        BookingDetailView view = invocation.getArgument(0);
+                        return BookingDetailResponse.builder()
+                                .id(view.id())
+                                .seatNumber(view.seatNumber())
+                                .build();
+                    });
+            when(bookingMapper.toBookingResponse(any(BookingSummaryView.class), anySet()))
+                    .thenAnswer(invocation -> BookingResponse.builder()
+                            .id(invocation.<BookingSummaryView>getArgument(0).id())
+                            .bookingDetails(invocation.getArgument(1))
+                            .build());
+
+            Page<BookingResponse> result =
+                    bookingService.getAllBookingsForAdmin(pageable, null, null, null, null, null);
+
+            assertEquals(2, result.getTotalElements());
+            assertEquals(2, result.getContent().get(0).getBookingDetails().size());
+            assertTrue(result.getContent().get(1).getBookingDetails().isEmpty());
+            verify(bookingDetailRepository, times(1)).findViewsByBookingIds(anyCollection());
+            verify(bookingRepository, never()).findById(any());
+        }
+
+        @Test
+        @DisplayName("User name - filters by normalized, escaped prefix")
+        void getAllBookingsForAdmin_UserNamePrefix() {
+            Pageable pageable = PageRequest.of(0, 10);
+            when(bookingRepository.findSummariesWithFilters(any(), any(), any(), any(), any(), eq(pageable)))
+                    .thenReturn(Page.empty(pageable));
+
+            bookingService.getAllBookingsForAdmin(pageable, "  Đặng Thành ", null, null, null, null);
+            bookingService.getAllBookingsForAdmin(pageable, "a_b%", null, null, null, null);
+            bookingService.getAllBookingsForAdmin(pageable, "   ", null, null, null, null);
+
+            verify(bookingRepository).findSummariesWithFilters("dang thanh%", null, null, null, null, pageable);
+            verify(bookingRepository).findSummariesWithFilters("a!_b!%%", null, null, null, null, pageable);
+            verify(bookingRepository).findSummariesWithFilters(null, null, null, null, null, pageable);
+        }
+
+        @Test
+        @DisplayName("Cursor - continues after the last (bookingDate, id) and counts only on request")
+        void getBookingsForAdminByCursor_Success() {
+            LocalDateTime lastDate = LocalDateTime.of(2025, 1, 10, 20, 30);
+            BookingSummaryView first = summary(9L);
+            BookingSummaryView last = new BookingSummaryView(
+                    8L, "ORDER-8", "user-123", "john", "john@mail.com", 1L, "Movie", null, "PAYPAL",
+                    new BigDecimal("200000"), "CONFIRMED", lastDate);
+            when(bookingRepository.findSummariesAfter(
+                            null, null, "CONFIRMED", null, null, null, null, PageRequest.of(0, 3)))
+                    .thenReturn(List.of(first, last, summary(7L)));
+            when(bookingDetailRepository.findViewsByBookingIds(List.of(9L, 8L))).thenReturn(List.of());
+
+            CursorPageResponse<BookingResponse> page = bookingService.getBookingsForAdminByCursor(
+                    null, 2, null, null, "CONFIRMED", null, null, false);
+
+            assertTrue(page.isHasNext());
+            assertEquals(2, page.getContent().size());
+            assertNull(page.getTotalElements());
+            verify(bookingRepository, never()).countWithFilters(any(), any(), any(), any(), any());
+
+            when(bookingRepository.findSummariesAfter(
+                            null, null, "CONFIRMED", null, null, lastDate, 8L, PageRequest.of(0, 3)))
+                    .thenReturn(List.of());
+            when(bookingRepository.countWithFilters(null, null, "CONFIRMED", null, null))
+                    .thenReturn(3L);
+
+            CursorPageResponse<BookingResponse> next = bookingService.getBookingsForAdminByCursor(
+                    page.getNextCursor(), 2, null, null, "CONFIRMED", null, null, true);
+
+            assertFalse(next.isHasNext());
+            assertTrue(next.getContent().isEmpty());
+            assertEquals(3L, next.getTotalElements());
+        }
+
+        @Test
+        @DisplayName("Empty page - no detail query")
+        void getAllBookingsForAdmin_EmptyPage() {
+            Pageable pageable = PageRequest.of(0, 10);
+            when(bookingRepository.findSummariesWithFilters("nobody%", null, null, null, null, pageable))
+                    .thenReturn(Page.empty(pageable));
+
+            Page<BookingResponse> result =
+                    bookingService.getAllBookingsForAdmin(pageable, "nobody", null, null, null, null);
+
+            assertTrue(result.isEmpty());
+            verifyNoInteractions(bookingDetailRepository);
+        }
+    }
+
     @Nested
     @DisplayName("cancelMyBookingWithRefund")
     class CancelMyBookingWithRefund {
@@ -0,0 +1,117 @@
+package com.longtapcode.identity_service.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.longtapcode.identity_service.dto.response.SeatBatchUpdateResponse;
+import com.longtapcode.identity_service.dto.response.SeatUpdateResponse;
+
+@ExtendWith(MockitoExtension.class)
+class CompactSeatFrameEncoderTest {
+
+    @Mock
+    private SeatCatalogService seatCatalogService;
+
+    @InjectMocks
+    private CompactSeatFrameEncoder encoder;
+
+    @Nested
+    @DisplayName("encode")
+    class Encode {
+
+        @Test
+        @DisplayName("Success - fixed layout with catalog indices")
+        void encode_Layout() {
+            when(seatCatalogService.indexOf("A1")).thenReturn(0);
+            when(seatCatalogService.indexOf("A2")).thenReturn(1);
+            when(seatCatalogService.indexOf("Z9")).thenReturn(-1);
+            long expiresAt = System.currentTimeMillis() + 60_000;
+
+            byte[] frame = encoder.encode(
+                    7L,
+                    false,
+                    List.of(
+                            SeatUpdateResponse.builder()
+                                    .seatNumbers(Set.of("A1"))
+                                    .userId("user-1")
+                                    .status("HELD")
+                                    .expiresAt(expiresAt)
+                                    .build(),
+                            SeatUpdateResponse.builder()
+                                    .seatNumber("A2")
+                                    .status("BOOKED")
+                                    .build(),
+                            SeatUpdateResponse.builder()
+                                    .seatNumber("Z9")
+                                    .status("AVAILABLE")
+                                    .build()));
+
+            ByteBuffer buffer = ByteBuffer.wrap(frame);
+            assertEquals(CompactSeatFrameEncoder.HEADER_BYTES + 2 * CompactSeatFrameEncoder.ENTRY_BYTES, frame.length);
+            assertEquals(CompactSeatFrameEncoder.FORMAT, buffer.get());
+            assertEquals(0, buffer.get());
+            assertEquals(7L, buffer.getLong());
+            buffer.getLong();
+            assertEquals(2, buffer.getShort());
+
+            assertEquals(0, buffer.getShort());
+            assertEquals(CompactSeatFrameEncoder.STATUS_HELD, buffer.get());
+            int ttl = buffer.getShort();
+            assertTrue(ttl > 55 && ttl <= 60);
+            assertEquals(CompactSeatFrameEncoder.userHash("user-1"), buffer.getInt());
+
+            assertEquals(1, buffer.getShort());
+            assertEquals(CompactSeatFrameEncoder.STATUS_BOOKED, buffer.get());
+            assertEquals(0, buffer.getShort());
+            assertEquals(0, buffer.getInt());
+        }
+    }
+
+    @Test
+    @DisplayName("Size - a 200-seat batch is at least 10x smaller than JSON")
+    void encode_SmallerThanJson() throws Exception {
+        when(seatCatalogService.indexOf(anyString())).thenAnswer(invocation -> {
+            String seat = invocation.getArgument(0);
+            return Integer.parseInt(seat.substring(1));
+        });
+        long expiresAt = System.currentTimeMillis() + 120_000;
+        List<SeatUpdateResponse> updates = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            updates.add(SeatUpdateResponse.builder()
+                    .showId(1L)
+                    .userId("3f1c2a9e-5b7d-4c1e-9a8f-" + String.format("%012d", i))
+                    .seatNumber("S" + i)
+                    .seatType(i % 3)
+                    .status(i % 2 == 0 ? "HELD" : "BOOKED")
+                    .expiresAt(i % 2 == 0 ? expiresAt : 0L)
+                    .version((long) i)
+                    .build());
+        }
+        SeatBatchUpdateResponse batch = SeatBatchUpdateResponse.builder()
+                .showId(1L)
+                .version(199L)
+                .updates(updates)
+                .build();
+
+        byte[] json = new ObjectMapper().writeValueAsBytes(batch);
+        byte[] compact = encoder.encode(199L, false, updates);
+
+        assertEquals(CompactSeatFrameEncoder.HEADER_BYTES + 200 * CompactSeatFrameEncoder.ENTRY_BYTES, compact.length);
+        assertTrue(compact.length * 10 < json.length, "compact frame should be at least 10x smaller than JSON");
+    }
+}
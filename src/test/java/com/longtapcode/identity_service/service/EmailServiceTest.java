@@ -0,0 +1,115 @@
+package com.longtapcode.identity_service.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+
+import jakarta.mail.Session;
+import jakarta.mail.internet.MimeMessage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thymeleaf.TemplateEngine;
+import org.thymeleaf.context.IContext;
+
+import com.longtapcode.identity_service.dto.event.BookingConfirmedEvent;
+
+@ExtendWith(MockitoExtension.class)
+class EmailServiceTest {
+
+    private static final byte[] OUTBOX_ID = "42".getBytes(StandardCharsets.UTF_8);
+    private static final String SENT_KEY = EmailService.SENT_KEY_PREFIX + "42";
+
+    @Mock
+    private JavaMailSender mailSender;
+
+    @Mock
+    private TemplateEngine templateEngine;
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Mock
+    private ValueOperations<String, String> valueOperations;
+
+    @Mock
+    private Acknowledgment acknowledgment;
+
+    @InjectMocks
+    private EmailService emailService;
+
+    private final BookingConfirmedEvent event = BookingConfirmedEvent.builder()
+            .bookingId(1L)
+            .orderId("ORD-1")
+            .userEmail("user@example.com")
+            .movieTitle("Movie")
+            .seats(Set.of())
+            .build();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(emailService, "emailEnabled", true);
+        ReflectionTestUtils.setField(emailService, "fromEmail", "noreply@cinema.com");
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+    }
+
+    private void stubMail() {
+        when(templateEngine.process(eq("email/booking-confirmation"), any(IContext.class)))
+                .thenReturn("<p>ok</p>");
+        when(mailSender.createMimeMessage()).thenReturn(new MimeMessage((Session) null));
+    }
+
+    @Test
+    @DisplayName("Success - first delivery of an outbox event sends the email")
+    void handleBookingConfirmed_FirstDelivery() {
+        when(valueOperations.setIfAbsent(eq(SENT_KEY), eq("1"), eq(EmailService.SENT_KEY_TTL)))
+                .thenReturn(true);
+        stubMail();
+
+        emailService.handleBookingConfirmed(event, OUTBOX_ID, acknowledgment);
+
+        verify(mailSender).send(any(MimeMessage.class));
+        verify(acknowledgment).acknowledge();
+    }
+
+    @Test
+    @DisplayName("Duplicate - outbox event already emailed is acknowledged without sending")
+    void handleBookingConfirmed_Duplicate() {
+        when(valueOperations.setIfAbsent(eq(SENT_KEY), eq("1"), eq(EmailService.SENT_KEY_TTL)))
+                .thenReturn(false);
+
+        emailService.handleBookingConfirmed(event, OUTBOX_ID, acknowledgment);
+
+        verifyNoInteractions(mailSender);
+        verify(acknowledgment).acknowledge();
+    }
+
+    @Test
+    @DisplayName("Failure - send error releases the key so the retry can send")
+    void handleBookingConfirmed_SendFails() {
+        when(valueOperations.setIfAbsent(eq(SENT_KEY), eq("1"), eq(EmailService.SENT_KEY_TTL)))
+                .thenReturn(true);
+        stubMail();
+        doThrow(new MailSendException("smtp down")).when(mailSender).send(any(MimeMessage.class));
+
+        assertThrows(
+                RuntimeException.class, () -> emailService.handleBookingConfirmed(event, OUTBOX_ID, acknowledgment));
+
+        verify(redisTemplate).delete(SENT_KEY);
+        verify(acknowledgment, never()).acknowledge();
+    }
+}
@@ -0,0 +1,73 @@
+package com.longtapcode.identity_service.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ExtendWith(MockitoExtension.class)
+class HoldExpirySweeperTest {
+
+    @Mock
+    private SeatStateService seatStateService;
+
+    @Mock
+    private SeatHoldService seatHoldService;
+
+    private SimpleMeterRegistry meterRegistry;
+    private HoldExpirySweeper sweeper;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        sweeper = new HoldExpirySweeper(seatStateService, seatHoldService, meterRegistry);
+        ReflectionTestUtils.setField(sweeper, "batchSize", 2);
+        ReflectionTestUtils.setField(sweeper, "maxBatches", 5);
+    }
+
+    @Test
+    @DisplayName("Success - drains full batches and reports lag")
+    void sweep_DrainsUntilBatchNotFull() {
+        when(seatStateService.sweepExpiredHolds(2))
+                .thenReturn(new SeatStateService.SweepResult(
+                        2,
+                        40L,
+                        List.of(
+                                new SeatStateService.ExpiredHold(1L, "A1", 5L),
+                                new SeatStateService.ExpiredHold(1L, "A2", 5L))))
+                .thenReturn(new SeatStateService.SweepResult(
+                        1, 120L, List.of(new SeatStateService.ExpiredHold(2L, "B1", 9L))));
+
+        sweeper.sweep();
+
+        verify(seatStateService, times(2)).sweepExpiredHolds(2);
+        verify(seatHoldService).onHoldExpired(1L, "A1", 5L);
+        verify(seatHoldService).onHoldExpired(1L, "A2", 5L);
+        verify(seatHoldService).onHoldExpired(2L, "B1", 9L);
+        assertEquals(3.0, meterRegistry.get("seat.hold.expired").counter().count());
+        assertEquals(120.0, meterRegistry.get("seat.hold.expiry.lag").gauge().value());
+    }
+
+    @Test
+    @DisplayName("Nothing due - single round trip")
+    void sweep_NothingDue() {
+        when(seatStateService.sweepExpiredHolds(anyInt()))
+                .thenReturn(new SeatStateService.SweepResult(0, 0L, List.of()));
+
+        sweeper.sweep();
+
+        verify(seatStateService, times(1)).sweepExpiredHolds(2);
+        verifyNoInteractions(seatHoldService);
+    }
+}
@@ -0,0 +1,167 @@
+package com.longtapcode.identity_service.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Header;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.longtapcode.identity_service.entity.OutboxEvent;
+import com.longtapcode.identity_service.repository.OutboxEventRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ExtendWith(MockitoExtension.class)
+class OutboxRelayTest {
+
+    @Mock
+    private OutboxEventRepository outboxEventRepository;
+
+    @Mock
+    private KafkaTemplate<String, String> kafkaTemplate;
+
+    @Mock
+    private RedisLockService redisLockService;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<ProducerRecord<String, String>> sent = new ArrayList<>();
+    private OutboxRelay outboxRelay;
+
+    @BeforeEach
+    void setUp() {
+        outboxRelay = new OutboxRelay(
+                outboxEventRepository, new KafkaProducerService(kafkaTemplate), redisLockService, meterRegistry);
+        ReflectionTestUtils.setField(outboxRelay, "batchSize", 3);
+        ReflectionTestUtils.setField(outboxRelay, "maxBatches", 5);
+        ReflectionTestUtils.setField(outboxRelay, "sendTimeoutMillis", 1000L);
+    }
+
+    private static OutboxEvent event(long id) {
+        return OutboxEvent.builder()
+                .id(id)
+                .aggregateId(String.valueOf(id))
+                .eventType(OutboxService.BOOKING_CONFIRMED)
+                .topic("booking-confirmed")
+                .messageKey("ORDER-" + id)
+                .payload("{\"bookingId\":" + id + "}")
+                .createdAt(LocalDateTime.now().minusSeconds(5))
+                .build();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void acceptSendsExcept(long failingId) {
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenAnswer(invocation -> {
+            ProducerRecord<String, String> record = invocation.getArgument(0);
+            sent.add(record);
+            if (record.key().equals("ORDER-" + failingId)) {
+                return CompletableFuture.failedFuture(new IllegalStateException("broker unavailable"));
+            }
+            return CompletableFuture.completedFuture(new SendResult<>(record, null));
+        });
+    }
+
+    private static String header(ProducerRecord<String, String> record, String name) {
+        Header header = record.headers().lastHeader(name);
+        return new String(header.value(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    @DisplayName("Success - sends the batch in order and marks it published with one update")
+    void relayBatch_AllSent() {
+        when(outboxEventRepository.findByPublishedAtIsNullOrderByIdAsc(any(Pageable.class)))
+                .thenReturn(List.of(event(1), event(2), event(3)));
+        acceptSendsExcept(-1);
+
+        assertEquals(3, outboxRelay.relayBatch());
+
+        assertEquals(List.of("ORDER-1", "ORDER-2", "ORDER-3"), sent.stream().map(ProducerRecord::key).toList());
+        assertEquals("1", header(sent.get(0), KafkaProducerService.OUTBOX_ID_HEADER));
+        assertEquals(OutboxService.BOOKING_CONFIRMED, header(sent.get(0), KafkaProducerService.EVENT_TYPE_HEADER));
+        assertEquals("{\"bookingId\":1}", sent.get(0).value());
+        verify(outboxEventRepository).markPublished(eq(List.of(1L, 2L, 3L)), any(LocalDateTime.class));
+        verify(outboxEventRepository, never()).incrementAttempts(anyList());
+        assertEquals(3.0, meterRegistry.get("outbox.published").counter().count());
+    }
+
+    @Test
+    @DisplayName("Failure - only events before the first failure are marked, the rest are retried in order")
+    void relayBatch_PartialFailure() {
+        when(outboxEventRepository.findByPublishedAtIsNullOrderByIdAsc(any(Pageable.class)))
+                .thenReturn(List.of(event(1), event(2), event(3)));
+        acceptSendsExcept(2);
+
+        assertEquals(0, outboxRelay.relayBatch());
+
+        verify(outboxEventRepository).markPublished(eq(List.of(1L)), any(LocalDateTime.class));
+        verify(outboxEventRepository).incrementAttempts(List.of(2L));
+        assertEquals(1.0, meterRegistry.get("outbox.failed").counter().count());
+    }
+
+    @Test
+    @DisplayName("Failure - first event fails, nothing is marked published")
+    void relayBatch_FirstFails() {
+        when(outboxEventRepository.findByPublishedAtIsNullOrderByIdAsc(any(Pageable.class)))
+                .thenReturn(List.of(event(1), event(2), event(3)));
+        acceptSendsExcept(1);
+
+        assertEquals(0, outboxRelay.relayBatch());
+
+        verify(outboxEventRepository, never()).markPublished(anyList(), any(LocalDateTime.class));
+        verify(outboxEventRepository).incrementAttempts(List.of(1L));
+    }
+
+    @Test
+    @DisplayName("Relay - drains full batches under the lock and refreshes lag metrics")
+    void relay_DrainsUntilShortBatch() {
+        when(redisLockService.tryLock(eq(OutboxRelay.LOCK_KEY), any(Duration.class)))
+                .thenReturn(true);
+        when(outboxEventRepository.findByPublishedAtIsNullOrderByIdAsc(any(Pageable.class)))
+                .thenReturn(List.of(event(1), event(2), event(3)))
+                .thenReturn(List.of(event(4)));
+        acceptSendsExcept(-1);
+        OutboxEvent oldest = event(5);
+        oldest.setCreatedAt(LocalDateTime.now().minusSeconds(30));
+        when(outboxEventRepository.countByPublishedAtIsNull()).thenReturn(1L);
+        when(outboxEventRepository.findFirstByPublishedAtIsNullOrderByIdAsc()).thenReturn(Optional.of(oldest));
+
+        outboxRelay.relay();
+
+        assertEquals(4, sent.size());
+        verify(outboxEventRepository, times(2)).markPublished(anyList(), any(LocalDateTime.class));
+        verify(redisLockService).unlock(OutboxRelay.LOCK_KEY);
+        assertEquals(1.0, meterRegistry.get("outbox.pending").gauge().value());
+        assertTrue(meterRegistry.get("outbox.lag").gauge().value() >= 30_000);
+    }
+
+    @Test
+    @DisplayName("Relay - skips the pass when another node holds the lock")
+    void relay_LockHeldElsewhere() {
+        when(redisLockService.tryLock(eq(OutboxRelay.LOCK_KEY), any(Duration.class)))
+                .thenReturn(false);
+
+        outboxRelay.relay();
+
+        verifyNoInteractions(outboxEventRepository, kafkaTemplate);
+    }
+}
@@ -0,0 +1,59 @@
+package com.longtapcode.identity_service.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import com.longtapcode.identity_service.configuration.PayPalConfig;
+import com.paypal.payments.CapturesRefundRequest;
+import com.paypal.payments.Refund;
+import com.paypal.payments.RefundRequest;
+
+@ExtendWith(MockitoExtension.class)
+class PayPalServiceTest {
+
+    @Mock
+    private PayPalGateway payPalGateway;
+
+    @Mock
+    private PayPalConfig payPalConfig;
+
+    @Mock
+    private RedisTemplate<String, String> redisTemplate;
+
+    @Mock
+    private PaymentSessionService paymentSessionService;
+
+    @InjectMocks
+    private PayPalService payPalService;
+
+    @Test
+    @DisplayName("Refund - VND booking total is refunded as the captured USD amount")
+    void refundPayPalPayment_ConvertsToUsd() throws Exception {
+        when(payPalConfig.getVndPerUsd()).thenReturn(new BigDecimal("25000"));
+        when(payPalGateway.refund(any(CapturesRefundRequest.class)))
+                .thenReturn(new Refund().id("REF-1").status("COMPLETED"));
+
+        Map<String, Object> result = payPalService.refundPayPalPayment("CAPTURE-1", new BigDecimal("200000"));
+
+        ArgumentCaptor<CapturesRefundRequest> captor = ArgumentCaptor.forClass(CapturesRefundRequest.class);
+        verify(payPalGateway).refund(captor.capture());
+        RefundRequest body = (RefundRequest) captor.getValue().requestBody();
+        assertEquals("USD", body.amount().currencyCode());
+        assertEquals("8.00", body.amount().value());
+        assertEquals(new BigDecimal("8.00"), result.get("amount"));
+        assertEquals("REF-1", result.get("refundId"));
+    }
+}
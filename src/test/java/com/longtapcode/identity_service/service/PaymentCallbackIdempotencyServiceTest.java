@@ -0,0 +1,148 @@
+package com.longtapcode.identity_service.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.longtapcode.identity_service.dto.response.PaymentCallbackResponse;
+import com.longtapcode.identity_service.exception.AppException;
+import com.longtapcode.identity_service.exception.ErrorCode;
+
+@ExtendWith(MockitoExtension.class)
+class PaymentCallbackIdempotencyServiceTest {
+
+    private static final String KEY = "payment_callback:paypal:PAYPAL-ORD";
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Mock
+    private ValueOperations<String, String> valueOperations;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @InjectMocks
+    private PaymentCallbackIdempotencyService idempotencyService;
+
+    private final AtomicInteger runs = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(idempotencyService, "processingTtlSeconds", 60L);
+        ReflectionTestUtils.setField(idempotencyService, "resultTtlSeconds", 86400L);
+        ReflectionTestUtils.setField(idempotencyService, "waitMillis", 200L);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+    }
+
+    private Supplier<PaymentCallbackResponse> pipeline() {
+        return () -> {
+            runs.incrementAndGet();
+            return PaymentCallbackResponse.builder()
+                    .success(true)
+                    .bookingId(1L)
+                    .orderId("ORDER-123")
+                    .build();
+        };
+    }
+
+    @Test
+    @DisplayName("First callback - runs pipeline and caches result")
+    void process_FirstCallback() {
+        when(valueOperations.setIfAbsent(KEY, "PROCESSING", Duration.ofSeconds(60))).thenReturn(true);
+
+        PaymentCallbackResponse response = idempotencyService.process("paypal", "PAYPAL-ORD", pipeline());
+
+        assertEquals(1L, response.getBookingId());
+        assertEquals(1, runs.get());
+        verify(valueOperations).set(eq(KEY), startsWith("OK:"), eq(Duration.ofSeconds(86400)));
+    }
+
+    @Test
+    @DisplayName("Repeated callback - returns cached result without running pipeline")
+    void process_Duplicate() throws Exception {
+        String cached = "OK:"
+                + objectMapper.writeValueAsString(PaymentCallbackResponse.builder()
+                        .success(true)
+                        .bookingId(1L)
+                        .orderId("ORDER-123")
+                        .build());
+        when(valueOperations.setIfAbsent(eq(KEY), anyString(), any(Duration.class)))
+                .thenReturn(false);
+        when(valueOperations.get(KEY)).thenReturn("PROCESSING").thenReturn(cached);
+
+        PaymentCallbackResponse response = idempotencyService.process("paypal", "PAYPAL-ORD", pipeline());
+
+        assertTrue(response.getSuccess());
+        assertEquals("ORDER-123", response.getOrderId());
+        assertEquals(0, runs.get());
+    }
+
+    @Test
+    @DisplayName("Declined payment - failure is cached and replayed")
+    void process_DeclinedIsCached() {
+        when(valueOperations.setIfAbsent(eq(KEY), anyString(), any(Duration.class)))
+                .thenReturn(true)
+                .thenReturn(false);
+        when(valueOperations.get(KEY)).thenReturn("ERROR:PAYMENT_FAILED");
+
+        Supplier<PaymentCallbackResponse> declined = () -> {
+            throw new AppException(ErrorCode.PAYMENT_FAILED);
+        };
+        AppException first =
+                assertThrows(AppException.class, () -> idempotencyService.process("paypal", "PAYPAL-ORD", declined));
+        AppException second = assertThrows(
+                AppException.class, () -> idempotencyService.process("paypal", "PAYPAL-ORD", pipeline()));
+
+        assertEquals(ErrorCode.PAYMENT_FAILED, first.getErrorCode());
+        assertEquals(ErrorCode.PAYMENT_FAILED, second.getErrorCode());
+        verify(valueOperations).set(KEY, "ERROR:PAYMENT_FAILED", Duration.ofSeconds(86400));
+        assertEquals(0, runs.get());
+    }
+
+    @Test
+    @DisplayName("Unexpected error - key is released for the next retry")
+    void process_UnexpectedErrorReleasesKey() {
+        when(valueOperations.setIfAbsent(eq(KEY), anyString(), any(Duration.class)))
+                .thenReturn(true);
+
+        Supplier<PaymentCallbackResponse> failing = () -> {
+            throw new IllegalStateException("PayPal unavailable");
+        };
+        assertThrows(IllegalStateException.class, () -> idempotencyService.process("paypal", "PAYPAL-ORD", failing));
+
+        verify(redisTemplate).delete(KEY);
+        verify(valueOperations, never()).set(anyString(), anyString(), any(Duration.class));
+    }
+
+    @Test
+    @DisplayName("Concurrent callback - gives up when first run does not finish in time")
+    void process_StillProcessing() {
+        when(valueOperations.setIfAbsent(eq(KEY), anyString(), any(Duration.class)))
+                .thenReturn(false);
+        when(valueOperations.get(KEY)).thenReturn("PROCESSING");
+
+        AppException ex = assertThrows(
+                AppException.class, () -> idempotencyService.process("paypal", "PAYPAL-ORD", pipeline()));
+
+        assertEquals(ErrorCode.PAYMENT_CALLBACK_IN_PROGRESS, ex.getErrorCode());
+        assertEquals(0, runs.get());
+    }
+}
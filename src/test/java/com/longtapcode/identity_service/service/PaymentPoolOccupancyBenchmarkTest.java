@@ -0,0 +1,248 @@
+package com.longtapcode.identity_service.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.longtapcode.identity_service.dto.request.PaymentCreateRequest;
+import com.longtapcode.identity_service.dto.response.PaymentCreateResponse;
+import com.longtapcode.identity_service.entity.Show;
+import com.longtapcode.identity_service.entity.User;
+import com.longtapcode.identity_service.repository.BookingRepository;
+import com.longtapcode.identity_service.repository.ShowRepository;
+import com.longtapcode.identity_service.repository.UserRepository;
+
+/**
+ * Đo số connection bị chiếm khi cổng thanh toán chậm 500 ms: pool 5 connection, 40 request đồng thời.
+ * "legacy" bọc cả createPayment trong một transaction (như {@code @Transactional} trước đây), "phased" là luồng 3 pha.
+ * Mất vài giây nên không chạy cùng bộ test mặc định ({@code ./mvnw test -Dgroups=benchmark -DexcludedGroups=}).
+ */
+@Tag("benchmark")
+@ExtendWith(MockitoExtension.class)
+class PaymentPoolOccupancyBenchmarkTest {
+
+    private static final int POOL_SIZE = 5;
+    private static final int REQUESTS = 40;
+    private static final long PROVIDER_LATENCY_MS = 500;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private ShowRepository showRepository;
+
+    @Mock
+    private BookingRepository bookingRepository;
+
+    @Mock
+    private RedisTemplate<String, String> redisTemplate;
+
+    @Mock
+    private ValueOperations<String, String> valueOperations;
+
+    @Mock
+    private HashOperations<String, Object, Object> hashOperations;
+
+    @Mock
+    private PayPalService payPalService;
+
+    @Mock
+    private BookingExpiryService bookingExpiryService;
+
+    @Mock
+    private PricingService pricingService;
+
+    @Mock
+    private HttpServletRequest httpRequest;
+
+    private final PoolTransactionManager transactionManager = new PoolTransactionManager(POOL_SIZE);
+
+    @Spy
+    private TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+
+    @InjectMocks
+    private PaymentService paymentService;
+
+    @BeforeEach
+    void setUp() {
+        User user = new User();
+        user.setId("user-123");
+        Show show = new Show();
+        show.setId(1L);
+        show.setShowDateTime(LocalDateTime.now().plusDays(1));
+
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(redisTemplate.opsForHash()).thenReturn(hashOperations);
+        when(valueOperations.get(anyString())).thenReturn("user-123");
+        when(showRepository.findById(1L)).thenReturn(Optional.of(show));
+        when(userRepository.findById("user-123")).thenReturn(Optional.of(user));
+        // Provider stub cục bộ: mỗi lần tạo order mất 500 ms
+        when(pricingService.total(eq(1L), any())).thenReturn(new BigDecimal("150000"));
+        when(payPalService.createPayPalOrder(any(), anyString(), any())).thenAnswer(invocation -> {
+            Thread.sleep(PROVIDER_LATENCY_MS);
+            return PaymentCreateResponse.builder()
+                    .orderId("PAYPAL-" + invocation.getArgument(1))
+                    .build();
+        });
+    }
+
+    @Test
+    @DisplayName("Benchmark - DB pool occupancy with 500 ms provider latency")
+    void benchmark_PoolOccupancy() throws Exception {
+        TransactionTemplate legacy = new TransactionTemplate(transactionManager);
+        Result legacyResult = run(() -> legacy.execute(status -> paymentService.createPayment(request(), httpRequest)));
+        Result phasedResult = run(() -> paymentService.createPayment(request(), httpRequest));
+
+        String results = "legacy " + legacyResult + " | phased " + phasedResult;
+        assertEquals(POOL_SIZE, legacyResult.peakInUse(), results);
+        assertTrue(legacyResult.avgHoldMillis() >= PROVIDER_LATENCY_MS, results);
+        assertTrue(phasedResult.avgHoldMillis() < PROVIDER_LATENCY_MS / 5, results);
+        assertTrue(phasedResult.wallMillis() * 2 < legacyResult.wallMillis(), results);
+    }
+
+    private PaymentCreateRequest request() {
+        PaymentCreateRequest request = new PaymentCreateRequest();
+        request.setUserId("user-123");
+        request.setShowId(1L);
+        request.setPaymentMethod("PAYPAL");
+        request.setAmount(new BigDecimal("150000"));
+        request.setSeatNumbers(Set.of("A1"));
+        return request;
+    }
+
+    private Result run(Callable<Object> call) throws Exception {
+        transactionManager.reset();
+        ExecutorService executor = Executors.newFixedThreadPool(REQUESTS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Object>> futures = new ArrayList<>();
+            for (int i = 0; i < REQUESTS; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return call.call();
+                }));
+            }
+            long begin = System.nanoTime();
+            start.countDown();
+            for (Future<Object> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+            long wallMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+            return transactionManager.result(wallMillis);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private record Result(long wallMillis, int peakInUse, long transactions, long avgHoldMillis) {
+        @Override
+        public String toString() {
+            return String.format(
+                    "wall %d ms | peak connections %d | transactions %d | avg hold %d ms",
+                    wallMillis, peakInUse, transactions, avgHoldMillis);
+        }
+    }
+
+    /**
+     * Transaction manager giả lập pool connection: mỗi transaction mới chiếm một permit đến khi hoàn tất.
+     */
+    private static final class PoolTransactionManager extends AbstractPlatformTransactionManager {
+
+        private final Semaphore pool;
+        private final ThreadLocal<Long> heldSince = new ThreadLocal<>();
+        private final AtomicInteger inUse = new AtomicInteger();
+        private final AtomicInteger peak = new AtomicInteger();
+        private final LongAdder transactions = new LongAdder();
+        private final LongAdder holdNanos = new LongAdder();
+
+        PoolTransactionManager(int size) {
+            this.pool = new Semaphore(size, true);
+        }
+
+        void reset() {
+            peak.set(0);
+            transactions.reset();
+            holdNanos.reset();
+        }
+
+        Result result(long wallMillis) {
+            long count = transactions.sum();
+            long avgHoldMillis = count == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(holdNanos.sum() / count);
+            return new Result(wallMillis, peak.get(), count, avgHoldMillis);
+        }
+
+        @Override
+        protected Object doGetTransaction() {
+            return new PooledTransaction(heldSince.get() != null);
+        }
+
+        @Override
+        protected boolean isExistingTransaction(Object transaction) {
+            return ((PooledTransaction) transaction).existing();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+            try {
+                if (!pool.tryAcquire(30, TimeUnit.SECONDS)) {
+                    throw new CannotCreateTransactionException("Connection pool exhausted");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CannotCreateTransactionException("Interrupted while waiting for a connection", e);
+            }
+            heldSince.set(System.nanoTime());
+            peak.accumulateAndGet(inUse.incrementAndGet(), Math::max);
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {}
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {}
+
+        @Override
+        protected void doSetRollbackOnly(DefaultTransactionStatus status) {}
+
+        @Override
+        protected void doCleanupAfterCompletion(Object transaction) {
+            holdNanos.add(System.nanoTime() - heldSince.get());
+            transactions.increment();
+            heldSince.remove();
+            inUse.decrementAndGet();
+            pool.release();
+        }
+
+        private record PooledTransaction(boolean existing) {}
+    }
+}
@@ -0,0 +1,93 @@
+package com.longtapcode.identity_service.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.longtapcode.identity_service.entity.Booking;
+import com.longtapcode.identity_service.repository.BookingRepository;
+
+@ExtendWith(MockitoExtension.class)
+class PaymentRefundServiceTest {
+
+    @Mock
+    private BookingRepository bookingRepository;
+
+    @Mock
+    private PayPalService payPalService;
+
+    @InjectMocks
+    private PaymentRefundService refundService;
+
+    private final Booking booking = Booking.builder()
+            .id(1L)
+            .paymentMethod("PAYPAL")
+            .status(PaymentRefundService.REFUND_REQUIRED)
+            .transactionId("CAPTURE-1")
+            .totalPrice(new BigDecimal("200000"))
+            .build();
+
+    @Test
+    @DisplayName("Success - PayPal refund issued and booking marked REFUNDED")
+    void refundPending_Success() {
+        ReflectionTestUtils.setField(refundService, "batchSize", 50);
+        when(bookingRepository.findIdsByStatusAndPaymentMethod(
+                        eq(PaymentRefundService.REFUND_REQUIRED), eq("PAYPAL"), any(Pageable.class)))
+                .thenReturn(List.of(1L));
+        when(bookingRepository.updateStatusIfCurrent(
+                        1L, PaymentRefundService.REFUND_REQUIRED, PaymentRefundService.REFUNDING))
+                .thenReturn(1);
+        when(bookingRepository.findById(1L)).thenReturn(Optional.of(booking));
+        when(payPalService.refundPayPalPayment("CAPTURE-1", new BigDecimal("200000")))
+                .thenReturn(Map.of("refundId", "REF-1", "amount", new BigDecimal("8.00")));
+
+        refundService.refundPending();
+
+        verify(bookingRepository)
+                .updateStatusIfCurrent(1L, PaymentRefundService.REFUNDING, PaymentRefundService.REFUNDED);
+    }
+
+    @Test
+    @DisplayName("Claimed by another node - PayPal not called")
+    void refundPayPal_AlreadyClaimed() {
+        when(bookingRepository.updateStatusIfCurrent(
+                        1L, PaymentRefundService.REFUND_REQUIRED, PaymentRefundService.REFUNDING))
+                .thenReturn(0);
+
+        assertFalse(refundService.refundPayPal(1L));
+
+        verifyNoInteractions(payPalService);
+        verify(bookingRepository, never()).findById(anyLong());
+    }
+
+    @Test
+    @DisplayName("PayPal error - booking returned to REFUND_REQUIRED for the next run")
+    void refundPayPal_ProviderError() {
+        when(bookingRepository.updateStatusIfCurrent(
+                        1L, PaymentRefundService.REFUND_REQUIRED, PaymentRefundService.REFUNDING))
+                .thenReturn(1);
+        when(bookingRepository.findById(1L)).thenReturn(Optional.of(booking));
+        when(payPalService.refundPayPalPayment(anyString(), any())).thenThrow(new RuntimeException("timeout"));
+
+        assertFalse(refundService.refundPayPal(1L));
+
+        verify(bookingRepository)
+                .updateStatusIfCurrent(1L, PaymentRefundService.REFUNDING, PaymentRefundService.REFUND_REQUIRED);
+        verify(bookingRepository, never())
+                .updateStatusIfCurrent(1L, PaymentRefundService.REFUNDING, PaymentRefundService.REFUNDED);
+    }
+}
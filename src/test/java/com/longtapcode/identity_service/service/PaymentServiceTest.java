@@ -7,6 +7,7 @@ import static org.mockito.Mockito.*;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.function.Supplier;
 
 import jakarta.servlet.http.HttpServletRequest;
 
@@ -15,18 +16,24 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.redis.core.HashOperations;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.core.ValueOperations;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import com.longtapcode.identity_service.dto.request.PaymentCreateRequest;
 import com.longtapcode.identity_service.dto.response.PaymentCallbackResponse;
 import com.longtapcode.identity_service.dto.response.PaymentCreateResponse;
-import com.longtapcode.identity_service.dto.response.SeatResponse;
+import com.longtapcode.identity_service.dto.response.SeatUpdateResponse;
 import com.longtapcode.identity_service.entity.Booking;
 import com.longtapcode.identity_service.entity.Movie;
 import com.longtapcode.identity_service.entity.Room;
@@ -64,7 +71,7 @@ class PaymentServiceTest {
     private HashOperations<String, Object, Object> hashOperations;
 
     @Mock
-    private SimpMessagingTemplate messagingTemplate;
+    private SeatBroadcastService seatBroadcastService;
 
     @Mock
     private VNPayService vnPayService;
@@ -73,14 +80,28 @@ class PaymentServiceTest {
     private PayPalService payPalService;
 
     @Mock
-    private KafkaProducerService kafkaProducerService;
+    private OutboxService outboxService;
 
     @Mock
-    private SeatService seatService;
+    private PricingService pricingService;
+
+    @Mock
+    private SeatStateService seatStateService;
+
+    @Mock
+    private PaymentCallbackIdempotencyService callbackIdempotencyService;
+
+    @Mock
+    private BookingExpiryService bookingExpiryService;
 
     @Mock
     private HttpServletRequest httpRequest;
 
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+
+    @Spy
+    private TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+
     @InjectMocks
     private PaymentService paymentService;
 
@@ -142,7 +163,8 @@ class PaymentServiceTest {
             when(valueOperations.get("hold:1:A1")).thenReturn("user-123");
             when(showRepository.findById(1L)).thenReturn(Optional.of(show));
             when(userRepository.findById("user-123")).thenReturn(Optional.of(user));
-            when(payPalService.createPayPalOrder(any(), anyString()))
+            when(pricingService.total(1L, Set.of("A1"))).thenReturn(new BigDecimal("150000"));
+            when(payPalService.createPayPalOrder(any(), anyString(), any()))
                     .thenReturn(PaymentCreateResponse.builder()
                             .orderId("PAYPAL-ORD")
                             .build());
@@ -150,8 +172,46 @@ class PaymentServiceTest {
             assertDoesNotThrow(() -> paymentService.createPayment(request, httpRequest));
 
             verify(bookingRepository).save(any(Booking.class));
-            verify(payPalService).createPayPalOrder(any(), anyString());
+            verify(payPalService).createPayPalOrder(any(), anyString(), eq(new BigDecimal("150000")));
             verify(hashOperations).put(eq("paypal_metadata:PAYPAL-ORD"), eq("bookingId"), anyString());
+            verify(bookingExpiryService).trackPending(any(), eq(Set.of("A1")));
+
+            // Transaction tạo booking đã commit trước khi gọi PayPal
+            InOrder inOrder = inOrder(transactionManager, payPalService);
+            inOrder.verify(transactionManager).commit(any());
+            inOrder.verify(payPalService).createPayPalOrder(any(), anyString(), any());
+        }
+
+        @Test
+        @DisplayName("Fail - Provider error cancels pending booking")
+        void createPayment_Fail_ProviderError() {
+            PaymentCreateRequest request = new PaymentCreateRequest();
+            request.setUserId("user-123");
+            request.setShowId(1L);
+            request.setPaymentMethod("PAYPAL");
+            request.setAmount(new BigDecimal("150000"));
+            request.setSeatNumbers(Set.of("A1"));
+
+            when(valueOperations.get("hold:1:A1")).thenReturn("user-123");
+            when(showRepository.findById(1L)).thenReturn(Optional.of(show));
+            when(userRepository.findById("user-123")).thenReturn(Optional.of(user));
+            when(bookingRepository.save(any(Booking.class))).thenAnswer(invocation -> {
+                Booking saved = invocation.getArgument(0);
+                if (saved.getId() == null) saved.setId(1L);
+                return saved;
+            });
+            when(bookingRepository.findById(1L)).thenReturn(Optional.of(booking));
+            when(pricingService.total(1L, Set.of("A1"))).thenReturn(new BigDecimal("150000"));
+            when(payPalService.createPayPalOrder(any(), anyString(), any()))
+                    .thenThrow(new AppException(ErrorCode.PAYMENT_FAILED));
+
+            AppException ex =
+                    assertThrows(AppException.class, () -> paymentService.createPayment(request, httpRequest));
+
+            assertEquals(ErrorCode.PAYMENT_FAILED, ex.getErrorCode());
+            assertEquals("CANCELLED", booking.getStatus());
+            verify(transactionManager, times(2)).commit(any());
+            verify(hashOperations, never()).put(anyString(), any(), any());
         }
 
         @Test
@@ -196,6 +256,28 @@ class PaymentServiceTest {
         @BeforeEach
         void setupRedisMocks() {
             lenient().when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+            lenient()
+                    .when(callbackIdempotencyService.process(anyString(), anyString(), any()))
+                    .thenAnswer(invocation -> invocation.<Supplier<PaymentCallbackResponse>>getArgument(2)
+                            .get());
+        }
+
+        @Test
+        @DisplayName("Success - Already confirmed booking is not processed again")
+        void processPayPalCallback_AlreadyConfirmed() {
+            booking.setStatus("CONFIRMED");
+            Map<String, Object> paymentResult = new HashMap<>();
+            paymentResult.put("success", true);
+            paymentResult.put("orderId", "ORDER-123");
+
+            when(payPalService.capturePayPalOrder("PAYPAL-ORD")).thenReturn(paymentResult);
+            when(bookingRepository.findByOrderId("ORDER-123")).thenReturn(Optional.of(booking));
+
+            PaymentCallbackResponse response = paymentService.processPayPalCallback("PAYPAL-ORD", "token123");
+
+            assertTrue(response.getSuccess());
+            verify(bookingRepository, never()).save(any());
+            verifyNoInteractions(seatStateService, bookingDetailRepository, outboxService);
         }
 
         @Test
@@ -213,60 +295,198 @@ class PaymentServiceTest {
             when(payPalService.capturePayPalOrder("PAYPAL-ORD")).thenReturn(paymentResult);
             when(bookingRepository.findByOrderId("ORDER-123")).thenReturn(Optional.of(booking));
 
-            SeatResponse seatResponse = new SeatResponse(1, "A1", 0);
-            when(seatService.getSeatBySeatNumber("A1")).thenReturn(seatResponse);
+            when(seatStateService.commitHolds(1L, List.of("A1"), "user-123"))
+                    .thenReturn(new SeatStateService.CommitResult(true, 7L, Map.of()));
+
+            when(pricingService.seatPrice(1L, "A1")).thenReturn(new BigDecimal("100000"));
 
             PaymentCallbackResponse response = paymentService.processPayPalCallback("PAYPAL-ORD", "token123");
 
             assertTrue(response.getSuccess());
             assertEquals("CONFIRMED", booking.getStatus());
             verify(bookingRepository).save(booking);
+            verify(seatStateService).commitHolds(1L, List.of("A1"), "user-123");
+            verify(seatBroadcastService).publish(any(SeatUpdateResponse.class));
             verify(bookingDetailRepository).saveAll(anyIterable());
-            verify(kafkaProducerService).publishBookingConfirmed(any());
+            verify(outboxService).enqueueBookingConfirmed(any());
         }
 
         @Test
-        @DisplayName("Fail - Payment failed logic")
-        void processPayPalCallback_Fail_PaymentFailed() {
+        @DisplayName("Fail - Hold lost before capture returns conflicts")
+        void processPayPalCallback_Fail_HoldConflict() {
             Map<String, Object> paymentResult = new HashMap<>();
-            paymentResult.put("success", false);
+            paymentResult.put("success", true);
             paymentResult.put("orderId", "ORDER-123");
+            paymentResult.put("transactionId", "TXN-123");
+            paymentResult.put("showId", 1L);
+            paymentResult.put("userId", "user-123");
+            paymentResult.put("seats", new String[] {"A1", "A2"});
+            paymentResult.put("amount", 200000L);
+
+            when(payPalService.capturePayPalOrder("PAYPAL-ORD")).thenReturn(paymentResult);
+            when(bookingRepository.findByOrderId("ORDER-123")).thenReturn(Optional.of(booking));
+            when(seatStateService.commitHolds(1L, List.of("A1", "A2"), "user-123"))
+                    .thenReturn(new SeatStateService.CommitResult(false, 0L, Map.of("A2", "HELD_BY_OTHER")));
+            when(seatStateService.releaseAll(1L, Set.of("A1", "A2"), "user-123")).thenReturn(8L);
+
+            PaymentCallbackResponse response = paymentService.processPayPalCallback("PAYPAL-ORD", "token123");
+
+            assertFalse(response.getSuccess());
+            assertEquals(Map.of("A2", "HELD_BY_OTHER"), response.getConflicts());
+            assertEquals(PaymentRefundService.REFUND_REQUIRED, booking.getStatus());
+            assertEquals("TXN-123", booking.getTransactionId());
+            assertTrue(response.getMessage().contains("hoàn tiền qua PayPal"));
+            verify(seatBroadcastService).publish(any(SeatUpdateResponse.class));
+            verifyNoInteractions(bookingDetailRepository, outboxService);
+        }
+
+        @Test
+        @DisplayName("Rollback - seats committed to BOOKED are released when the transaction rolls back")
+        void processPayPalCallback_Rollback_ReleasesBookedSeats() {
+            Map<String, Object> paymentResult = new HashMap<>();
+            paymentResult.put("success", true);
+            paymentResult.put("orderId", "ORDER-123");
+            paymentResult.put("transactionId", "TXN-123");
             paymentResult.put("showId", 1L);
             paymentResult.put("userId", "user-123");
             paymentResult.put("seats", new String[] {"A1"});
 
             when(payPalService.capturePayPalOrder("PAYPAL-ORD")).thenReturn(paymentResult);
             when(bookingRepository.findByOrderId("ORDER-123")).thenReturn(Optional.of(booking));
-            when(valueOperations.get("hold:1:A1")).thenReturn("user-123");
+            when(seatStateService.commitHolds(1L, List.of("A1"), "user-123"))
+                    .thenReturn(new SeatStateService.CommitResult(true, 7L, Map.of()));
+            when(pricingService.seatPrice(1L, "A1")).thenReturn(new BigDecimal("100000"));
+            doThrow(new IllegalStateException("outbox unavailable"))
+                    .when(outboxService)
+                    .enqueueBookingConfirmed(any());
+            when(seatStateService.releaseBooked(1L, Set.of("A1"))).thenReturn(8L);
+
+            TransactionSynchronizationManager.initSynchronization();
+            try {
+                assertThrows(
+                        IllegalStateException.class,
+                        () -> paymentService.processPayPalCallback("PAYPAL-ORD", "token123"));
+                // Transaction manager giả không tự gọi synchronization, gọi afterCompletion như khi rollback
+                TransactionSynchronizationManager.getSynchronizations()
+                        .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+            } finally {
+                TransactionSynchronizationManager.clearSynchronization();
+            }
+
+            verify(seatStateService).releaseBooked(1L, Set.of("A1"));
+            ArgumentCaptor<SeatUpdateResponse> messages = ArgumentCaptor.forClass(SeatUpdateResponse.class);
+            verify(seatBroadcastService, times(2)).publish(messages.capture());
+            assertEquals("BOOKED", messages.getAllValues().get(0).getStatus());
+            assertEquals("AVAILABLE", messages.getAllValues().get(1).getStatus());
+            assertEquals(8L, messages.getAllValues().get(1).getVersion());
+        }
 
-            AppException ex = assertThrows(
-                    AppException.class, () -> paymentService.processPayPalCallback("PAYPAL-ORD", "token123"));
+        @Test
+        @DisplayName("Confirm fails after capture - booking marked REFUND_REQUIRED in its own transaction")
+        void processPayPalCallback_ConfirmFails_MarksRefundRequired() {
+            Map<String, Object> paymentResult = new HashMap<>();
+            paymentResult.put("success", true);
+            paymentResult.put("orderId", "ORDER-123");
+            paymentResult.put("transactionId", "TXN-123");
+            paymentResult.put("showId", 1L);
+            paymentResult.put("userId", "user-123");
+            paymentResult.put("seats", new String[] {"A1"});
+            // Transaction thứ hai đọc lại booking từ DB, lúc này vẫn PENDING vì transaction đầu đã rollback
+            Booking reloaded = Booking.builder()
+                    .id(1L)
+                    .orderId("ORDER-123")
+                    .paymentMethod("PAYPAL")
+                    .status("PENDING")
+                    .build();
 
-            assertEquals(ErrorCode.PAYMENT_FAILED, ex.getErrorCode());
-            assertEquals("CANCELLED", booking.getStatus());
-            verify(redisTemplate).delete("hold:1:A1");
-            verify(messagingTemplate).convertAndSend(eq("/topic/show/1"), any(Object.class));
+            when(payPalService.capturePayPalOrder("PAYPAL-ORD")).thenReturn(paymentResult);
+            when(bookingRepository.findByOrderId("ORDER-123"))
+                    .thenReturn(Optional.of(booking))
+                    .thenReturn(Optional.of(reloaded));
+            when(seatStateService.commitHolds(1L, List.of("A1"), "user-123"))
+                    .thenReturn(new SeatStateService.CommitResult(true, 7L, Map.of()));
+            when(pricingService.seatPrice(1L, "A1")).thenReturn(new BigDecimal("100000"));
+            doThrow(new IllegalStateException("outbox unavailable"))
+                    .when(outboxService)
+                    .enqueueBookingConfirmed(any());
+
+            assertThrows(
+                    IllegalStateException.class, () -> paymentService.processPayPalCallback("PAYPAL-ORD", "token123"));
+
+            assertEquals(PaymentRefundService.REFUND_REQUIRED, reloaded.getStatus());
+            assertEquals("TXN-123", reloaded.getTransactionId());
+            verify(bookingRepository).save(reloaded);
         }
-    }
 
-    @Nested
-    @DisplayName("Scheduled Tasks")
-    class ScheduledTasks {
+        @Test
+        @DisplayName("Repeated callback - booking awaiting refund is not confirmed")
+        void processPayPalCallback_RefundRequired_NotConfirmed() {
+            booking.setStatus(PaymentRefundService.REFUND_REQUIRED);
+            Map<String, Object> paymentResult = new HashMap<>();
+            paymentResult.put("success", true);
+            paymentResult.put("orderId", "ORDER-123");
+
+            when(payPalService.capturePayPalOrder("PAYPAL-ORD")).thenReturn(paymentResult);
+            when(bookingRepository.findByOrderId("ORDER-123")).thenReturn(Optional.of(booking));
+
+            PaymentCallbackResponse response = paymentService.processPayPalCallback("PAYPAL-ORD", "token123");
+
+            assertFalse(response.getSuccess());
+            assertEquals(PaymentRefundService.REFUND_REQUIRED, booking.getStatus());
+            verifyNoInteractions(seatStateService, bookingDetailRepository, outboxService);
+        }
 
         @Test
-        @DisplayName("Success - cancelExpiredPaymentProcessing")
-        void cancelExpiredPaymentProcessing_Success() {
-            Booking expiredBooking = new Booking();
-            expiredBooking.setId(1L);
-            expiredBooking.setStatus("PAYMENT_PROCESSING");
+        @DisplayName("Commit - seats stay BOOKED after the transaction commits")
+        void processPayPalCallback_Commit_KeepsBookedSeats() {
+            Map<String, Object> paymentResult = new HashMap<>();
+            paymentResult.put("success", true);
+            paymentResult.put("orderId", "ORDER-123");
+            paymentResult.put("transactionId", "TXN-123");
+            paymentResult.put("showId", 1L);
+            paymentResult.put("userId", "user-123");
+            paymentResult.put("seats", new String[] {"A1"});
 
-            when(bookingRepository.findByStatusAndBookingDateBefore(eq("PAYMENT_PROCESSING"), any()))
-                    .thenReturn(List.of(expiredBooking));
+            when(payPalService.capturePayPalOrder("PAYPAL-ORD")).thenReturn(paymentResult);
+            when(bookingRepository.findByOrderId("ORDER-123")).thenReturn(Optional.of(booking));
+            when(seatStateService.commitHolds(1L, List.of("A1"), "user-123"))
+                    .thenReturn(new SeatStateService.CommitResult(true, 7L, Map.of()));
+            when(pricingService.seatPrice(1L, "A1")).thenReturn(new BigDecimal("100000"));
+
+            TransactionSynchronizationManager.initSynchronization();
+            try {
+                assertTrue(paymentService
+                        .processPayPalCallback("PAYPAL-ORD", "token123")
+                        .getSuccess());
+                TransactionSynchronizationManager.getSynchronizations()
+                        .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+            } finally {
+                TransactionSynchronizationManager.clearSynchronization();
+            }
+
+            verify(seatStateService, never()).releaseBooked(anyLong(), anyCollection());
+        }
 
-            paymentService.cancelExpiredPaymentProcessing();
+        @Test
+        @DisplayName("Fail - Payment failed logic")
+        void processPayPalCallback_Fail_PaymentFailed() {
+            Map<String, Object> paymentResult = new HashMap<>();
+            paymentResult.put("success", false);
+            paymentResult.put("orderId", "ORDER-123");
+            paymentResult.put("showId", 1L);
+            paymentResult.put("userId", "user-123");
+            paymentResult.put("seats", new String[] {"A1"});
+
+            when(payPalService.capturePayPalOrder("PAYPAL-ORD")).thenReturn(paymentResult);
+            when(bookingRepository.findByOrderId("ORDER-123")).thenReturn(Optional.of(booking));
+            when(seatStateService.releaseAll(1L, Set.of("A1"), "user-123")).thenReturn(5L);
 
-            assertEquals("EXPIRED", expiredBooking.getStatus());
-            verify(bookingRepository).save(expiredBooking);
+            AppException ex = assertThrows(
+                    AppException.class, () -> paymentService.processPayPalCallback("PAYPAL-ORD", "token123"));
+
+            assertEquals(ErrorCode.PAYMENT_FAILED, ex.getErrorCode());
+            assertEquals("CANCELLED", booking.getStatus());
+            verify(seatBroadcastService).publish(any(SeatUpdateResponse.class));
         }
     }
 }
@@ -0,0 +1,108 @@
+package com.longtapcode.identity_service.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisKeyCommands;
+import org.springframework.data.redis.connection.RedisSetCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.SetOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+@ExtendWith(MockitoExtension.class)
+class PaymentSessionServiceTest {
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Mock
+    private ValueOperations<String, String> valueOperations;
+
+    @Mock
+    private SetOperations<String, String> setOperations;
+
+    @InjectMocks
+    private PaymentSessionService paymentSessionService;
+
+    @Nested
+    @DisplayName("expireBySeat")
+    class ExpireBySeat {
+
+        @Test
+        @DisplayName("Success - expires every session indexed on the seat without scanning")
+        void expireBySeat_Indexed() {
+            when(redisTemplate.opsForSet()).thenReturn(setOperations);
+            when(setOperations.pop(eq("payment_seat:1:A1"), anyLong())).thenReturn(List.of("PAYPAL-ORD", "VNP-TXN"));
+            when(redisTemplate.execute(any(RedisCallback.class))).thenReturn(true);
+
+            paymentSessionService.expireBySeat(1L, "A1");
+
+            verify(redisTemplate, times(2)).execute(any(RedisCallback.class));
+            verify(redisTemplate, never()).keys(any());
+        }
+
+        @Test
+        @DisplayName("No session - nothing to expire")
+        void expireBySeat_NoSession() {
+            when(redisTemplate.opsForSet()).thenReturn(setOperations);
+            when(setOperations.pop(eq("payment_seat:1:A1"), anyLong())).thenReturn(List.of());
+
+            paymentSessionService.expireBySeat(1L, "A1");
+
+            verify(redisTemplate, never()).execute(any(RedisCallback.class));
+        }
+    }
+
+    @Test
+    @DisplayName("complete - removes only this session from each seat index")
+    @SuppressWarnings("unchecked")
+    void complete_RemovesOwnSessionOnly() {
+        RedisConnection connection = mock(RedisConnection.class);
+        RedisKeyCommands keyCommands = mock(RedisKeyCommands.class);
+        RedisSetCommands setCommands = mock(RedisSetCommands.class);
+        when(connection.keyCommands()).thenReturn(keyCommands);
+        when(connection.setCommands()).thenReturn(setCommands);
+        when(redisTemplate.executePipelined(any(RedisCallback.class))).thenAnswer(invocation -> {
+            invocation.<RedisCallback<Object>>getArgument(0).doInRedis(connection);
+            return List.of();
+        });
+
+        paymentSessionService.complete("PAYPAL-ORD", 1L, List.of("A1", "A2"));
+
+        byte[] session = bytes("PAYPAL-ORD");
+        verify(keyCommands).del(bytes("payment_session:PAYPAL-ORD"));
+        verify(setCommands).sRem(bytes("payment_seat:1:A1"), session);
+        verify(setCommands).sRem(bytes("payment_seat:1:A2"), session);
+        verify(keyCommands, never()).del(bytes("payment_seat:1:A1"));
+    }
+
+    @Test
+    @DisplayName("isActive - only PENDING sessions are active")
+    void isActive() {
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.get("payment_session:A")).thenReturn("PENDING");
+        assertTrue(paymentSessionService.isActive("A"));
+
+        when(valueOperations.get("payment_session:B")).thenReturn("EXPIRED");
+        assertFalse(paymentSessionService.isActive("B"));
+        assertFalse(paymentSessionService.isActive("C"));
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,124 @@
+package com.longtapcode.identity_service.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.longtapcode.identity_service.dto.response.PresenceResponse;
+
+@ExtendWith(MockitoExtension.class)
+class PresenceServiceTest {
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Mock
+    private ShowSubscriptionRegistry subscriptionRegistry;
+
+    @Mock
+    private SimpMessagingTemplate messagingTemplate;
+
+    @InjectMocks
+    private PresenceService presenceService;
+
+    private String nodeId;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(presenceService, "intervalMillis", 5000L);
+        nodeId = (String) ReflectionTestUtils.getField(presenceService, "nodeId");
+    }
+
+    @Test
+    @DisplayName("Success - merges live nodes and broadcasts only on change")
+    void sync_AggregatesLiveNodes() {
+        long now = System.currentTimeMillis();
+        Map<String, String> heartbeats = Map.of(
+                nodeId, String.valueOf(now),
+                "node-b", String.valueOf(now - 1000),
+                "node-dead", String.valueOf(now - 60_000));
+        Map<String, String> counts = Map.of(nodeId, "2", "node-b", "3", "node-dead", "40");
+
+        when(subscriptionRegistry.localViewerCounts()).thenReturn(Map.of(1L, 2L));
+        // Mỗi chu kỳ: ghi số cục bộ, gộp số, dọn node-dead
+        when(redisTemplate.executePipelined(any(RedisCallback.class)))
+                .thenReturn(List.of())
+                .thenReturn(List.of(heartbeats, counts))
+                .thenReturn(List.of())
+                .thenReturn(List.of())
+                .thenReturn(List.of(heartbeats, counts))
+                .thenReturn(List.of());
+
+        presenceService.sync();
+        presenceService.sync();
+
+        ArgumentCaptor<PresenceResponse> presence = ArgumentCaptor.forClass(PresenceResponse.class);
+        verify(messagingTemplate, times(1)).convertAndSend(eq("/topic/show/1/presence"), presence.capture());
+        assertEquals(5L, presence.getValue().getViewers());
+        verify(messagingTemplate, times(1)).convertAndSend(anyString(), any(Object.class));
+    }
+
+    @Test
+    @DisplayName("Dead node - heartbeat and per-show field removed")
+    @SuppressWarnings("unchecked")
+    void sync_EvictsDeadNode() {
+        long now = System.currentTimeMillis();
+        Map<String, String> heartbeats = Map.of(
+                nodeId, String.valueOf(now),
+                "node-late", String.valueOf(now - 20_000),
+                "node-dead", String.valueOf(now - 60_000));
+        Map<String, String> counts = Map.of(nodeId, "2", "node-late", "1", "node-dead", "40", "node-gone", "7");
+
+        when(subscriptionRegistry.localViewerCounts()).thenReturn(Map.of(1L, 2L));
+        when(redisTemplate.executePipelined(any(RedisCallback.class)))
+                .thenReturn(List.of())
+                .thenReturn(List.of(heartbeats, counts))
+                .thenReturn(List.of());
+
+        presenceService.sync();
+
+        ArgumentCaptor<RedisCallback<Object>> callbacks = ArgumentCaptor.forClass(RedisCallback.class);
+        verify(redisTemplate, times(3)).executePipelined(callbacks.capture());
+        StringRedisConnection connection = mock(StringRedisConnection.class);
+        callbacks.getAllValues().get(2).doInRedis(connection);
+        verify(connection).hDel(PresenceService.NODES_KEY, "node-dead");
+        ArgumentCaptor<String[]> fields = ArgumentCaptor.forClass(String[].class);
+        verify(connection).hDel(eq("presence:1"), fields.capture());
+        assertEquals(Set.of("node-dead", "node-gone"), Set.of(fields.getValue()));
+        verifyNoMoreInteractions(connection);
+        // node-late chỉ bị bỏ qua khi cộng, chưa bị xóa
+        verify(messagingTemplate).convertAndSend(eq("/topic/show/1/presence"), any(PresenceResponse.class));
+    }
+
+    @Test
+    @DisplayName("No local viewers - only heartbeat is written")
+    void sync_NoViewers() {
+        when(subscriptionRegistry.localViewerCounts()).thenReturn(Map.of());
+        when(redisTemplate.executePipelined(any(RedisCallback.class))).thenReturn(List.of());
+
+        presenceService.sync();
+
+        verify(redisTemplate, times(1)).executePipelined(any(RedisCallback.class));
+        verifyNoInteractions(messagingTemplate);
+    }
+}
@@ -0,0 +1,110 @@
+package com.longtapcode.identity_service.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import com.longtapcode.identity_service.exception.AppException;
+import com.longtapcode.identity_service.exception.ErrorCode;
+import com.longtapcode.identity_service.repository.ShowRepository;
+
+@ExtendWith(MockitoExtension.class)
+class PricingServiceTest {
+
+    @Mock
+    private ShowRepository showRepository;
+
+    @Mock
+    private SeatCatalogService seatCatalogService;
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @InjectMocks
+    private PricingService pricingService;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(seatCatalogService.tierOf("A1")).thenReturn(0);
+        lenient().when(seatCatalogService.tierOf("A2")).thenReturn(0);
+        lenient().when(seatCatalogService.tierOf("V1")).thenReturn(1);
+        lenient().when(seatCatalogService.tierOf("C1")).thenReturn(2);
+    }
+
+    @Test
+    @DisplayName("Success - prices a seat set per tier and loads the show price once")
+    void total_Success() {
+        when(showRepository.findPriceById(1L)).thenReturn(Optional.of(new BigDecimal("100000")));
+
+        BigDecimal total = pricingService.total(1L, List.of("A1", "A2", "V1", "C1"));
+
+        assertEquals(0, new BigDecimal("440000").compareTo(total));
+        assertEquals(0, new BigDecimal("130000").compareTo(pricingService.seatPrice(1L, "V1")));
+        verify(showRepository, times(1)).findPriceById(1L);
+    }
+
+    @Test
+    @DisplayName("Fail - unknown seat")
+    void total_Fail_UnknownSeat() {
+        when(showRepository.findPriceById(1L)).thenReturn(Optional.of(new BigDecimal("100000")));
+        when(seatCatalogService.tierOf("Z9")).thenReturn(-1);
+
+        AppException ex = assertThrows(AppException.class, () -> pricingService.total(1L, List.of("A1", "Z9")));
+
+        assertEquals(ErrorCode.SEAT_NOT_EXISTED, ex.getErrorCode());
+    }
+
+    @Test
+    @DisplayName("Fail - show not found")
+    void total_Fail_ShowNotFound() {
+        when(showRepository.findPriceById(1L)).thenReturn(Optional.empty());
+
+        AppException ex = assertThrows(AppException.class, () -> pricingService.total(1L, List.of("A1")));
+
+        assertEquals(ErrorCode.SHOW_NOT_EXISTED, ex.getErrorCode());
+    }
+
+    @Test
+    @DisplayName("Invalidate - reloads the price and notifies other nodes")
+    void invalidate_ReloadsPrice() {
+        when(showRepository.findPriceById(1L))
+                .thenReturn(Optional.of(new BigDecimal("100000")))
+                .thenReturn(Optional.of(new BigDecimal("120000")));
+
+        assertEquals(0, new BigDecimal("100000").compareTo(pricingService.seatPrice(1L, "A1")));
+        pricingService.invalidate(1L);
+
+        assertEquals(0, new BigDecimal("120000").compareTo(pricingService.seatPrice(1L, "A1")));
+        verify(redisTemplate).convertAndSend(SeatCatalogService.INVALIDATION_CHANNEL, "show-prices:1");
+    }
+
+    @Test
+    @DisplayName("Invalidate during load - table read from the old price is not cached")
+    void evictLocal_DuringLoad_DoesNotCacheStaleTable() {
+        when(showRepository.findPriceById(1L))
+                .thenAnswer(invocation -> {
+                    // Giá đổi ở node khác ngay sau khi node này đọc giá cũ
+                    pricingService.evictLocal(1L);
+                    return Optional.of(new BigDecimal("100000"));
+                })
+                .thenReturn(Optional.of(new BigDecimal("120000")));
+
+        assertEquals(0, new BigDecimal("100000").compareTo(pricingService.seatPrice(1L, "A1")));
+
+        assertEquals(0, new BigDecimal("120000").compareTo(pricingService.seatPrice(1L, "A1")));
+        assertEquals(0, new BigDecimal("120000").compareTo(pricingService.seatPrice(1L, "A2")));
+        verify(showRepository, times(2)).findPriceById(1L);
+    }
+}
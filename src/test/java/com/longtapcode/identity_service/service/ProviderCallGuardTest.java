@@ -0,0 +1,141 @@
+package com.longtapcode.identity_service.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.longtapcode.identity_service.exception.AppException;
+import com.longtapcode.identity_service.exception.ErrorCode;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ProviderCallGuardTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(2);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private ProviderCallGuard guard;
+
+    @AfterEach
+    void tearDown() {
+        if (guard != null) guard.close();
+    }
+
+    private ProviderCallGuard guard(int maxConcurrentCalls, long openMillis) {
+        guard = new ProviderCallGuard(
+                "test",
+                new ProviderCallGuard.Settings(maxConcurrentCalls, 0, 4, 4, 50, openMillis),
+                error -> error instanceof IOException,
+                meterRegistry);
+        return guard;
+    }
+
+    private long count(String outcome) {
+        return meterRegistry
+                .get("payment.provider.calls")
+                .tag("outcome", outcome)
+                .timer()
+                .count();
+    }
+
+    @Test
+    @DisplayName("Success - returns result and records metric")
+    void call_Success() throws Exception {
+        ProviderCallGuard guard = guard(2, 1000);
+
+        assertEquals("ok", guard.call("create", TIMEOUT, () -> "ok"));
+        assertEquals(1, count("success"));
+    }
+
+    @Test
+    @DisplayName("Timeout - caller gets fast error instead of waiting")
+    void call_Timeout() {
+        ProviderCallGuard guard = guard(2, 1000);
+
+        long start = System.nanoTime();
+        AppException ex = assertThrows(
+                AppException.class, () -> guard.call("capture", Duration.ofMillis(100), () -> {
+                    Thread.sleep(2000);
+                    return "late";
+                }));
+
+        assertEquals(ErrorCode.PAYMENT_PROVIDER_UNAVAILABLE, ex.getErrorCode());
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1000);
+        assertEquals(1, count("timeout"));
+    }
+
+    @Test
+    @DisplayName("Bulkhead - rejects when all slots are busy")
+    void call_BulkheadFull() throws Exception {
+        ProviderCallGuard guard = guard(1, 1000);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService caller = Executors.newSingleThreadExecutor();
+        try {
+            caller.submit(() -> guard.call("create", TIMEOUT, () -> {
+                started.countDown();
+                release.await();
+                return "slow";
+            }));
+            assertTrue(started.await(1, TimeUnit.SECONDS));
+
+            AppException ex = assertThrows(AppException.class, () -> guard.call("create", TIMEOUT, () -> "fast"));
+
+            assertEquals(ErrorCode.PAYMENT_PROVIDER_UNAVAILABLE, ex.getErrorCode());
+            assertEquals(1, count("rejected"));
+        } finally {
+            release.countDown();
+            caller.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("Circuit breaker - opens after failures, fast-fails, then recovers via probe")
+    void call_CircuitBreaker() throws Exception {
+        ProviderCallGuard guard = guard(2, 200);
+        AtomicInteger providerCalls = new AtomicInteger();
+        ProviderCallGuard.ProviderCall<String> failing = () -> {
+            providerCalls.incrementAndGet();
+            throw new IOException("connection reset");
+        };
+
+        for (int i = 0; i < 4; i++) {
+            assertThrows(IOException.class, () -> guard.call("create", TIMEOUT, failing));
+        }
+        assertEquals(ProviderCallGuard.CircuitBreaker.State.OPEN, guard.circuitState());
+
+        AppException ex = assertThrows(AppException.class, () -> guard.call("create", TIMEOUT, failing));
+        assertEquals(ErrorCode.PAYMENT_PROVIDER_UNAVAILABLE, ex.getErrorCode());
+        assertEquals(4, providerCalls.get());
+        assertEquals(1, count("short_circuited"));
+
+        Thread.sleep(250);
+        assertEquals("ok", guard.call("create", TIMEOUT, () -> "ok"));
+        assertEquals(ProviderCallGuard.CircuitBreaker.State.CLOSED, guard.circuitState());
+    }
+
+    @Test
+    @DisplayName("Business errors - do not open the circuit")
+    void call_BusinessErrorsIgnored() {
+        ProviderCallGuard guard = guard(2, 1000);
+
+        for (int i = 0; i < 6; i++) {
+            assertThrows(IllegalArgumentException.class, () -> guard.call("capture", TIMEOUT, () -> {
+                throw new IllegalArgumentException("ORDER_ALREADY_CAPTURED");
+            }));
+        }
+
+        assertEquals(ProviderCallGuard.CircuitBreaker.State.CLOSED, guard.circuitState());
+        assertEquals(6, count("rejected_by_provider"));
+    }
+}
@@ -0,0 +1,57 @@
+package com.longtapcode.identity_service.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+
+@ExtendWith(MockitoExtension.class)
+class RedisLockServiceTest {
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Mock
+    private ValueOperations<String, String> valueOperations;
+
+    @InjectMocks
+    private RedisLockService redisLockService;
+
+    @Test
+    @DisplayName("Lock - acquired and released with the same node id")
+    @SuppressWarnings("unchecked")
+    void tryLock_ThenUnlock() {
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        ArgumentCaptor<String> owner = ArgumentCaptor.forClass(String.class);
+        when(valueOperations.setIfAbsent(eq("job:lock"), owner.capture(), eq(Duration.ofMinutes(5))))
+                .thenReturn(true);
+
+        assertTrue(redisLockService.tryLock("job:lock", Duration.ofMinutes(5)));
+        redisLockService.unlock("job:lock");
+
+        verify(redisTemplate).execute(any(RedisScript.class), eq(List.of("job:lock")), eq(owner.getValue()));
+    }
+
+    @Test
+    @DisplayName("Lock - held by another node")
+    void tryLock_HeldElsewhere() {
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.setIfAbsent(eq("job:lock"), anyString(), any(Duration.class)))
+                .thenReturn(false);
+
+        assertFalse(redisLockService.tryLock("job:lock", Duration.ofMinutes(5)));
+    }
+}
@@ -0,0 +1,121 @@
+package com.longtapcode.identity_service.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.longtapcode.identity_service.dto.response.SeatBatchUpdateResponse;
+import com.longtapcode.identity_service.dto.response.SeatUpdateResponse;
+
+@ExtendWith(MockitoExtension.class)
+class SeatBroadcastServiceTest {
+
+    @Mock
+    private ShowEventFanout showEventFanout;
+
+    @Mock
+    private CompactSeatFrameEncoder compactSeatFrameEncoder;
+
+    @InjectMocks
+    private SeatBroadcastService seatBroadcastService;
+
+    private static SeatUpdateResponse update(Long showId, String seatNumber, long version) {
+        return SeatUpdateResponse.builder()
+                .showId(showId)
+                .seatNumber(seatNumber)
+                .status("HELD")
+                .version(version)
+                .build();
+    }
+
+    @Nested
+    @DisplayName("coalescing")
+    class Coalescing {
+
+        @Test
+        @DisplayName("Success - one ordered batch per show per window")
+        void flush_OneBatchPerShow() {
+            ReflectionTestUtils.setField(seatBroadcastService, "coalesce", true);
+
+            seatBroadcastService.publish(update(1L, "A2", 3));
+            seatBroadcastService.publish(update(1L, "A1", 2));
+            seatBroadcastService.publish(update(2L, "B1", 7));
+            seatBroadcastService.publish(update(1L, "A3", 4));
+            verifyNoInteractions(showEventFanout);
+
+            seatBroadcastService.flush();
+
+            ArgumentCaptor<SeatBatchUpdateResponse> show1 = ArgumentCaptor.forClass(SeatBatchUpdateResponse.class);
+            verify(showEventFanout).publish(eq(1L), show1.capture());
+            assertEquals(4L, show1.getValue().getVersion());
+            assertEquals(
+                    List.of("A1", "A2", "A3"),
+                    show1.getValue().getUpdates().stream()
+                            .map(SeatUpdateResponse::getSeatNumber)
+                            .toList());
+            verify(showEventFanout).publish(eq(2L), any(SeatBatchUpdateResponse.class));
+
+            // Window tiếp theo không còn gì để gửi
+            seatBroadcastService.flush();
+            verifyNoMoreInteractions(showEventFanout);
+        }
+
+        @Test
+        @DisplayName("Disabled - sends each update immediately")
+        void publish_CoalesceDisabled() {
+            SeatUpdateResponse update = update(1L, "A1", 1);
+
+            seatBroadcastService.publish(update);
+
+            verify(showEventFanout).publish(1L, update);
+            seatBroadcastService.flush();
+            verify(showEventFanout, times(1)).publish(anyLong(), any());
+        }
+    }
+
+    @Nested
+    @DisplayName("compact frames")
+    class Compact {
+
+        @Test
+        @DisplayName("Off by default - nothing encoded")
+        void flush_CompactOffByDefault() {
+            ReflectionTestUtils.setField(seatBroadcastService, "coalesce", true);
+
+            seatBroadcastService.publish(update(1L, "A1", 1));
+            seatBroadcastService.flush();
+
+            verifyNoInteractions(compactSeatFrameEncoder);
+            verify(showEventFanout, never()).publishCompact(anyLong(), any());
+        }
+
+        @Test
+        @DisplayName("Enabled - one compact frame per batch")
+        void flush_CompactEnabled() {
+            ReflectionTestUtils.setField(seatBroadcastService, "coalesce", true);
+            ReflectionTestUtils.setField(seatBroadcastService, "compact", true);
+            byte[] frame = {1};
+            when(compactSeatFrameEncoder.encode(eq(2L), eq(false), anyList())).thenReturn(frame);
+
+            seatBroadcastService.publish(update(1L, "A1", 1));
+            seatBroadcastService.publish(update(1L, "A2", 2));
+            seatBroadcastService.flush();
+
+            verify(showEventFanout).publishCompact(1L, frame);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.longtapcode.identity_service.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import com.longtapcode.identity_service.dto.response.SeatResponse;
+import com.longtapcode.identity_service.entity.Seat;
+import com.longtapcode.identity_service.repository.SeatRepository;
+
+@ExtendWith(MockitoExtension.class)
+class SeatCatalogServiceTest {
+
+    @Mock
+    private SeatRepository seatRepository;
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @InjectMocks
+    private SeatCatalogService seatCatalogService;
+
+    @BeforeEach
+    void setUp() {
+        when(seatRepository.findAll(Sort.by("seatId")))
+                .thenReturn(List.of(
+                        Seat.builder().seatId(1).seatNumber("A1").vip(0).build(),
+                        Seat.builder().seatId(2).seatNumber("A2").vip(1).build()));
+    }
+
+    @Nested
+    @DisplayName("lookup")
+    class Lookup {
+        @Test
+        @DisplayName("Success - loads once and serves from memory")
+        void find_Success() {
+            SeatResponse a1 = seatCatalogService.find("A1");
+            SeatResponse a2 = seatCatalogService.find("A2");
+
+            assertEquals(1, a1.getSeatId());
+            assertEquals(1, a2.getVip());
+            assertEquals(0, seatCatalogService.tierOf("A1"));
+            assertEquals(1, seatCatalogService.tierOf("A2"));
+            assertEquals("A2", seatCatalogService.seatNumberAt(seatCatalogService.indexOf("A2")));
+            assertEquals(
+                    List.of("A1", "A2"),
+                    seatCatalogService.seats().stream().map(SeatResponse::getSeatNumber).toList());
+            verify(seatRepository, times(1)).findAll(any(Sort.class));
+        }
+
+        @Test
+        @DisplayName("Unknown seat - no DB fallback")
+        void find_Unknown() {
+            seatCatalogService.find("A1");
+
+            assertNull(seatCatalogService.find("Z99"));
+            assertEquals(-1, seatCatalogService.indexOf("Z99"));
+            assertEquals(-1, seatCatalogService.tierOf("Z99"));
+            verify(seatRepository, times(1)).findAll(any(Sort.class));
+        }
+    }
+
+    @Nested
+    @DisplayName("invalidation")
+    class Invalidation {
+        @Test
+        @DisplayName("Reloads lazily after invalidate")
+        void invalidate_ReloadsOnNextAccess() {
+            seatCatalogService.find("A1");
+            seatCatalogService.invalidate();
+            seatCatalogService.find("A1");
+
+            verify(seatRepository, times(2)).findAll(any(Sort.class));
+        }
+
+        @Test
+        @DisplayName("Rebuild publishes to other nodes")
+        void rebuildAndBroadcast_Publishes() {
+            seatCatalogService.rebuildAndBroadcast();
+
+            verify(redisTemplate)
+                    .convertAndSend(SeatCatalogService.INVALIDATION_CHANNEL, SeatCatalogService.SEAT_CATALOG);
+        }
+    }
+}
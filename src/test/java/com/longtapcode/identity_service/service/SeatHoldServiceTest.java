@@ -0,0 +1,210 @@
+package com.longtapcode.identity_service.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.longtapcode.identity_service.dto.request.SeatHoldBatchRequest;
+import com.longtapcode.identity_service.dto.request.SeatHoldRequest;
+import com.longtapcode.identity_service.dto.response.SeatHoldBatchResponse;
+import com.longtapcode.identity_service.dto.response.SeatHoldResult;
+import com.longtapcode.identity_service.dto.response.SeatUpdateResponse;
+import com.longtapcode.identity_service.dto.response.SeatUpdateSuccess;
+import com.longtapcode.identity_service.exception.AppException;
+import com.longtapcode.identity_service.exception.ErrorCode;
+
+@ExtendWith(MockitoExtension.class)
+class SeatHoldServiceTest {
+
+    @Mock
+    private SeatBroadcastService seatBroadcastService;
+
+    @Mock
+    private SeatService seatService;
+
+    @Mock
+    private SeatStateService seatStateService;
+
+    @Mock
+    private SeatCatalogService seatCatalogService;
+
+    @Mock
+    private PaymentSessionService paymentSessionService;
+
+    @InjectMocks
+    private SeatHoldService seatHoldService;
+
+    @Nested
+    @DisplayName("holdSeats")
+    class HoldSeats {
+
+        @BeforeEach
+        void knownSeats() {
+            lenient().when(seatCatalogService.indexOf(startsWith("A"))).thenReturn(0);
+        }
+
+        @Test
+        @DisplayName("Success - every seat held and broadcast once")
+        void holdSeats_Success() {
+            when(seatStateService.holdAll(1L, List.of("A1", "A2"), "user-1", 120))
+                    .thenReturn(new SeatStateService.HoldAllResult(true, 5_000L, 8L, List.of(0L, 0L)));
+
+            SeatHoldBatchResponse response =
+                    seatHoldService.holdSeats(new SeatHoldBatchRequest(1L, List.of("A1", "A2", "A1"), "user-1"));
+
+            assertTrue(response.isSuccess());
+            assertEquals(5_000L, response.getExpiresAt());
+            assertEquals(List.of("HELD", "HELD"), statuses(response));
+            assertTrue(response.getSeats().stream().allMatch(SeatHoldResult::isSuccess));
+
+            ArgumentCaptor<SeatUpdateResponse> message = ArgumentCaptor.forClass(SeatUpdateResponse.class);
+            verify(seatBroadcastService).publish(message.capture());
+            assertEquals(8L, message.getValue().getVersion());
+            assertEquals(List.of("A1", "A2"), List.copyOf(message.getValue().getSeatNumbers()));
+        }
+
+        @Test
+        @DisplayName("One seat taken - nothing held, conflicts mapped per seat")
+        void holdSeats_Conflicts() {
+            when(seatStateService.holdAll(1L, List.of("A1", "A2", "A3"), "user-1", 120))
+                    .thenReturn(new SeatStateService.HoldAllResult(
+                            false,
+                            0L,
+                            0L,
+                            List.of(
+                                    SeatStateService.SEAT_OK,
+                                    SeatStateService.SEAT_BOOKED,
+                                    SeatStateService.SEAT_HELD_BY_OTHER)));
+
+            SeatHoldBatchResponse response =
+                    seatHoldService.holdSeats(new SeatHoldBatchRequest(1L, List.of("A1", "A2", "A3"), "user-1"));
+
+            assertFalse(response.isSuccess());
+            assertEquals(List.of("AVAILABLE", "BOOKED", "HELD"), statuses(response));
+            assertEquals(
+                    List.of(true, false, false),
+                    response.getSeats().stream().map(SeatHoldResult::isSuccess).toList());
+            verifyNoInteractions(seatBroadcastService);
+        }
+
+        @Test
+        @DisplayName("Script error - no seats reported")
+        void holdSeats_ScriptError() {
+            when(seatStateService.holdAll(anyLong(), anyList(), anyString(), anyLong()))
+                    .thenReturn(new SeatStateService.HoldAllResult(false, 0L, 0L, List.of()));
+
+            SeatHoldBatchResponse response =
+                    seatHoldService.holdSeats(new SeatHoldBatchRequest(1L, List.of("A1"), "user-1"));
+
+            assertFalse(response.isSuccess());
+            assertTrue(response.getSeats().isEmpty());
+            verifyNoInteractions(seatBroadcastService);
+        }
+
+        @Test
+        @DisplayName("Unknown seat - whole batch rejected before Redis")
+        void holdSeats_UnknownSeat() {
+            when(seatCatalogService.indexOf("Z:9")).thenReturn(-1);
+
+            SeatHoldBatchResponse response =
+                    seatHoldService.holdSeats(new SeatHoldBatchRequest(1L, List.of("A1", "Z:9"), "user-1"));
+
+            assertFalse(response.isSuccess());
+            assertTrue(response.getMessage().contains("Z:9"));
+            verifyNoInteractions(seatStateService, seatBroadcastService);
+        }
+
+        @Test
+        @DisplayName("Too many seats - rejected before Redis")
+        void holdSeats_TooMany() {
+            List<String> seats = List.of("A1", "A2", "A3", "A4", "A5", "A6", "A7", "A8", "A9", "A10", "A11");
+
+            SeatHoldBatchResponse response =
+                    seatHoldService.holdSeats(new SeatHoldBatchRequest(1L, seats, "user-1"));
+
+            assertFalse(response.isSuccess());
+            verifyNoInteractions(seatStateService);
+        }
+    }
+
+    @Nested
+    @DisplayName("holdSeat")
+    class HoldSeat {
+
+        @BeforeEach
+        void knownSeat() {
+            lenient().when(seatCatalogService.tierOf("A1")).thenReturn(1);
+        }
+
+        @Test
+        @DisplayName("Success - broadcast with version and seat type")
+        void holdSeat_Success() {
+            when(seatStateService.hold(1L, "A1", "user-1", 120))
+                    .thenReturn(new SeatStateService.HoldResult(SeatStateService.SEAT_OK, 5_000L, 3L));
+
+            SeatUpdateSuccess response = seatHoldService.holdSeat(new SeatHoldRequest(1L, "A1", "user-1"));
+
+            assertTrue(response.isSuccess());
+            ArgumentCaptor<SeatUpdateResponse> message = ArgumentCaptor.forClass(SeatUpdateResponse.class);
+            verify(seatBroadcastService).publish(message.capture());
+            assertEquals(3L, message.getValue().getVersion());
+            assertEquals(5_000L, message.getValue().getExpiresAt());
+            assertEquals(1, message.getValue().getSeatType());
+            verifyNoInteractions(seatService);
+        }
+
+        @Test
+        @DisplayName("Unknown seat - rejected before anything is written to Redis")
+        void holdSeat_UnknownSeat() {
+            when(seatCatalogService.tierOf("Z9")).thenReturn(-1);
+
+            AppException ex = assertThrows(
+                    AppException.class, () -> seatHoldService.holdSeat(new SeatHoldRequest(1L, "Z9", "user-1")));
+
+            assertEquals(ErrorCode.SEAT_NOT_EXISTED, ex.getErrorCode());
+            verifyNoInteractions(seatStateService, seatBroadcastService);
+        }
+
+        @Test
+        @DisplayName("Booked - distinct message, no broadcast")
+        void holdSeat_Booked() {
+            when(seatStateService.hold(1L, "A1", "user-1", 120))
+                    .thenReturn(new SeatStateService.HoldResult(SeatStateService.SEAT_BOOKED, 0L, 0L));
+
+            SeatUpdateSuccess response = seatHoldService.holdSeat(new SeatHoldRequest(1L, "A1", "user-1"));
+
+            assertFalse(response.isSuccess());
+            assertEquals("Ghế đã được đặt!", response.getMessage());
+            verifyNoInteractions(seatBroadcastService);
+        }
+
+        @Test
+        @DisplayName("Held by another user - no broadcast")
+        void holdSeat_HeldByOther() {
+            when(seatStateService.hold(1L, "A1", "user-1", 120))
+                    .thenReturn(new SeatStateService.HoldResult(SeatStateService.SEAT_HELD_BY_OTHER, 0L, 0L));
+
+            SeatUpdateSuccess response = seatHoldService.holdSeat(new SeatHoldRequest(1L, "A1", "user-1"));
+
+            assertFalse(response.isSuccess());
+            assertEquals("Ghế đã bị giữ!", response.getMessage());
+            verifyNoInteractions(seatBroadcastService);
+        }
+    }
+
+    private static List<String> statuses(SeatHoldBatchResponse response) {
+        return response.getSeats().stream().map(SeatHoldResult::getStatus).toList();
+    }
+}
@@ -33,6 +33,9 @@ class SeatServiceTest {
     @Mock
     private SeatMapper seatMapper;
 
+    @Mock
+    private SeatCatalogService seatCatalogService;
+
     @InjectMocks
     private SeatService seatService;
 
@@ -61,6 +64,21 @@ class SeatServiceTest {
         }
     }
 
+    @Nested
+    @DisplayName("getSeatCatalog")
+    class GetSeatCatalog {
+        @Test
+        @DisplayName("Success - served from the catalog in index order")
+        void getSeatCatalog_Success() {
+            when(seatCatalogService.seats()).thenReturn(List.of(seatResponse));
+
+            List<SeatResponse> result = seatService.getSeatCatalog();
+
+            assertEquals(List.of(seatResponse), result);
+            verifyNoInteractions(seatRepository);
+        }
+    }
+
     @Nested
     @DisplayName("createSeat")
     class CreateSeat {
@@ -78,6 +96,7 @@ class SeatServiceTest {
             assertNotNull(result);
             assertEquals("A1", result.getSeatNumber());
             verify(seatRepository).save(any(Seat.class));
+            verify(seatCatalogService).rebuildAndBroadcast();
         }
     }
 
@@ -112,18 +131,18 @@ class SeatServiceTest {
         @Test
         @DisplayName("Success")
         void getSeatBySeatNumber_Success() {
-            when(seatRepository.findBySeatNumber("A1")).thenReturn(Optional.of(seat));
-            when(seatMapper.toSeatResponse(seat)).thenReturn(seatResponse);
+            when(seatCatalogService.find("A1")).thenReturn(seatResponse);
 
             SeatResponse result = seatService.getSeatBySeatNumber("A1");
 
             assertEquals("A1", result.getSeatNumber());
+            verifyNoInteractions(seatRepository);
         }
 
         @Test
         @DisplayName("Fail - Not Found")
         void getSeatBySeatNumber_Fail() {
-            when(seatRepository.findBySeatNumber("Z99")).thenReturn(Optional.empty());
+            when(seatCatalogService.find("Z99")).thenReturn(null);
 
             AppException ex = assertThrows(AppException.class, () -> seatService.getSeatBySeatNumber("Z99"));
 
@@ -0,0 +1,432 @@
+package com.longtapcode.identity_service.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.RedisSystemException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import com.longtapcode.identity_service.dto.response.SeatMapResponse;
+import com.longtapcode.identity_service.dto.response.SeatUpdateResponse;
+import com.longtapcode.identity_service.repository.ShowRepository;
+
+@ExtendWith(MockitoExtension.class)
+class SeatStateServiceTest {
+
+    private static final List<String> SHOW_KEYS =
+            List.of("seatstate:1", SeatStateService.HOLD_EXPIRY_KEY, "seatstate:1:version", "seatstate:1:log");
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Mock
+    private ShowRepository showRepository;
+
+    @Mock
+    private HashOperations<String, Object, Object> hashOperations;
+
+    @Mock
+    private ZSetOperations<String, String> zSetOperations;
+
+    @InjectMocks
+    private SeatStateService seatStateService;
+
+    @Captor
+    private ArgumentCaptor<List<String>> keysCaptor;
+
+    @Captor
+    private ArgumentCaptor<RedisScript<?>> scriptCaptor;
+
+    @SuppressWarnings("unchecked")
+    private void givenScriptReturns(Object result, Object... more) {
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class)))
+                .thenReturn(result, more);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<List<String>> capturedKeys(int calls) {
+        verify(redisTemplate, times(calls)).execute(any(RedisScript.class), keysCaptor.capture(), any(Object[].class));
+        return keysCaptor.getAllValues();
+    }
+
+    private static List<String> showKeysWith(String... seatKeys) {
+        List<String> keys = new ArrayList<>(SHOW_KEYS);
+        keys.addAll(List.of(seatKeys));
+        return keys;
+    }
+
+    @Test
+    @DisplayName("Scripts never build key names themselves")
+    void scripts_OnlyTouchDeclaredKeys() throws IllegalAccessException {
+        int scripts = 0;
+        for (Field field : SeatStateService.class.getDeclaredFields()) {
+            if (!Modifier.isStatic(field.getModifiers()) || !RedisScript.class.isAssignableFrom(field.getType())) {
+                continue;
+            }
+            field.setAccessible(true);
+            String body = ((RedisScript<?>) field.get(null)).getScriptAsString();
+            assertFalse(body.contains("\"hold:\""), field.getName());
+            assertFalse(body.contains("\"booked:\""), field.getName());
+            assertFalse(body.contains("\"seatstate:"), field.getName());
+            scripts++;
+        }
+        assertTrue(scripts > 0);
+    }
+
+    @Nested
+    @DisplayName("hold")
+    class Hold {
+
+        @Test
+        @DisplayName("Success - passes the seat keys and decodes the result")
+        void hold_Success() {
+            givenScriptReturns(List.of(0L, 1_700_000_120_000L, 42L));
+
+            SeatStateService.HoldResult result = seatStateService.hold(1L, "A1", "user-1", 120);
+
+            assertTrue(result.held());
+            assertEquals(1_700_000_120_000L, result.expiresAt());
+            assertEquals(42L, result.version());
+            assertEquals(showKeysWith("hold:1:A1", "booked:1:A1"), capturedKeys(1).get(0));
+        }
+
+        @Test
+        @DisplayName("Booked - not held")
+        void hold_Booked() {
+            givenScriptReturns(List.of(1L, 0L, 0L));
+
+            SeatStateService.HoldResult result = seatStateService.hold(1L, "A1", "user-1", 120);
+
+            assertFalse(result.held());
+            assertEquals(SeatStateService.SEAT_BOOKED, result.seatCode());
+        }
+
+        @Test
+        @DisplayName("Unexpected result - null")
+        void hold_UnexpectedResult() {
+            givenScriptReturns(List.of(0L));
+
+            assertNull(seatStateService.hold(1L, "A1", "user-1", 120));
+        }
+    }
+
+    @Nested
+    @DisplayName("holdAll")
+    class HoldAll {
+
+        @Test
+        @DisplayName("Success - keys and codes follow the seat order, state keys expire after the show")
+        void holdAll_Success() {
+            LocalDateTime start = LocalDateTime.of(2030, 1, 1, 20, 0);
+            when(showRepository.findScheduleById(1L)).thenReturn(List.<Object[]>of(new Object[] {start, 120}));
+            givenScriptReturns(List.of(1L, 1_700_000_120_000L, 7L, 0L, 0L));
+
+            SeatStateService.HoldAllResult result =
+                    seatStateService.holdAll(1L, List.of("B2", "A1"), "user-1", 120);
+
+            assertTrue(result.held());
+            assertEquals(7L, result.version());
+            assertEquals(List.of(0L, 0L), result.seatCodes());
+            assertEquals(
+                    showKeysWith("hold:1:B2", "booked:1:B2", "hold:1:A1", "booked:1:A1"),
+                    capturedKeys(1).get(0));
+            // Kết thúc 22:00, key trạng thái hết hạn 23:00
+            String stateExpiresAt = String.valueOf(LocalDateTime.of(2030, 1, 1, 23, 0)
+                    .atZone(ZoneId.systemDefault())
+                    .toInstant()
+                    .toEpochMilli());
+            verify(redisTemplate)
+                    .execute(
+                            any(RedisScript.class),
+                            anyList(),
+                            eq("1"),
+                            eq("user-1"),
+                            eq("120"),
+                            eq(stateExpiresAt),
+                            eq("B2"),
+                            eq("A1"));
+        }
+
+        @Test
+        @DisplayName("Unknown show - state keys keep their TTL")
+        void holdAll_UnknownShow() {
+            when(showRepository.findScheduleById(1L)).thenReturn(List.of());
+            givenScriptReturns(List.of(1L, 1_700_000_120_000L, 7L, 0L));
+
+            seatStateService.holdAll(1L, List.of("A1"), "user-1", 120);
+
+            verify(redisTemplate)
+                    .execute(any(RedisScript.class), anyList(), eq("1"), eq("user-1"), eq("120"), eq("0"), eq("A1"));
+        }
+
+        @Test
+        @DisplayName("One seat taken - nothing held, every seat reported")
+        void holdAll_AllOrNothing() {
+            givenScriptReturns(List.of(0L, 0L, 0L, 0L, 1L, 2L));
+
+            SeatStateService.HoldAllResult result =
+                    seatStateService.holdAll(1L, List.of("A1", "A2", "A3"), "user-1", 120);
+
+            assertFalse(result.held());
+            assertEquals(0L, result.version());
+            assertEquals(
+                    List.of(
+                            SeatStateService.SEAT_OK,
+                            SeatStateService.SEAT_BOOKED,
+                            SeatStateService.SEAT_HELD_BY_OTHER),
+                    result.seatCodes());
+        }
+
+        @Test
+        @DisplayName("Result size mismatch - no seat codes")
+        void holdAll_UnexpectedResult() {
+            givenScriptReturns(List.of(1L, 0L, 0L, 0L));
+
+            SeatStateService.HoldAllResult result =
+                    seatStateService.holdAll(1L, List.of("A1", "A2"), "user-1", 120);
+
+            assertFalse(result.held());
+            assertTrue(result.seatCodes().isEmpty());
+        }
+    }
+
+    @Test
+    @DisplayName("countOccupied - expired holds waiting for the sweeper are not counted")
+    void countOccupied_SkipsExpiredHolds() {
+        long now = System.currentTimeMillis();
+        when(redisTemplate.opsForHash()).thenReturn(hashOperations);
+        when(hashOperations.entries("seatstate:1"))
+                .thenReturn(Map.of(
+                        "A1", "HELD:user-1:" + (now + 60_000),
+                        "A2", "HELD:user-2:" + (now - 60_000),
+                        "A3", "BOOKED:user-3"));
+
+        assertEquals(2, seatStateService.countOccupied(1L));
+    }
+
+    @Nested
+    @DisplayName("commitHolds")
+    class CommitHolds {
+
+        @Test
+        @DisplayName("Success - committed without conflicts")
+        void commitHolds_Success() {
+            givenScriptReturns(List.of(1L, 9L, 0L, 0L));
+
+            SeatStateService.CommitResult result = seatStateService.commitHolds(1L, List.of("A1", "A2"), "user-1");
+
+            assertTrue(result.committed());
+            assertEquals(9L, result.version());
+            assertTrue(result.conflicts().isEmpty());
+            assertEquals(
+                    showKeysWith("hold:1:A1", "booked:1:A1", "hold:1:A2", "booked:1:A2"),
+                    capturedKeys(1).get(0));
+        }
+
+        @Test
+        @DisplayName("Conflicts - each seat mapped to its reason")
+        void commitHolds_Conflicts() {
+            givenScriptReturns(List.of(0L, 0L, 0L, 1L, 2L, 3L));
+
+            SeatStateService.CommitResult result =
+                    seatStateService.commitHolds(1L, List.of("A1", "A2", "A3", "A4"), "user-1");
+
+            assertFalse(result.committed());
+            assertEquals(
+                    Map.of("A2", "BOOKED", "A3", "HELD_BY_OTHER", "A4", "NOT_HELD"), result.conflicts());
+        }
+
+        @Test
+        @DisplayName("Unexpected result - throws")
+        void commitHolds_UnexpectedResult() {
+            givenScriptReturns(List.of(1L, 9L));
+
+            assertThrows(
+                    IllegalStateException.class, () -> seatStateService.commitHolds(1L, List.of("A1"), "user-1"));
+        }
+
+        @Test
+        @DisplayName("No seats - no script call")
+        void commitHolds_Empty() {
+            assertTrue(seatStateService.commitHolds(1L, List.of(), "user-1").committed());
+
+            verifyNoInteractions(redisTemplate);
+        }
+    }
+
+    @Test
+    @DisplayName("release - only the caller's holds, seat keys passed")
+    void release_PassesOwner() {
+        givenScriptReturns(5L);
+
+        assertEquals(5L, seatStateService.release(1L, "A1", "user-1"));
+
+        assertEquals(showKeysWith("hold:1:A1", "booked:1:A1"), capturedKeys(1).get(0));
+        verify(redisTemplate).execute(any(RedisScript.class), anyList(), eq("1"), eq("user-1"), eq("A1"));
+    }
+
+    @Test
+    @DisplayName("releaseBooked - booked keys passed")
+    void releaseBooked_PassesSeatKeys() {
+        givenScriptReturns(6L);
+
+        assertEquals(6L, seatStateService.releaseBooked(1L, List.of("A1")));
+
+        assertEquals(showKeysWith("hold:1:A1", "booked:1:A1"), capturedKeys(1).get(0));
+    }
+
+    @Nested
+    @DisplayName("sweepExpiredHolds")
+    class SweepExpiredHolds {
+
+        @Test
+        @DisplayName("Success - claims due entries, then expires each show with its own keys")
+        void sweep_ExpiresPerShow() {
+            givenScriptReturns(
+                    List.of(3L, 40L, "1:A1", "1:A2", "2:B1"), List.of(11L, 1L, 0L), List.of(4L, 1L));
+
+            SeatStateService.SweepResult result = seatStateService.sweepExpiredHolds(10);
+
+            assertEquals(3, result.due());
+            assertEquals(40L, result.maxLagMillis());
+            assertEquals(
+                    List.of(
+                            new SeatStateService.ExpiredHold(1L, "A1", 11L),
+                            new SeatStateService.ExpiredHold(2L, "B1", 4L)),
+                    result.expired());
+            List<List<String>> keys = capturedKeys(3);
+            assertEquals(List.of(SeatStateService.HOLD_EXPIRY_KEY), keys.get(0));
+            assertEquals(
+                    showKeysWith("hold:1:A1", "booked:1:A1", "hold:1:A2", "booked:1:A2"), keys.get(1));
+            assertEquals(
+                    List.of(
+                            "seatstate:2",
+                            SeatStateService.HOLD_EXPIRY_KEY,
+                            "seatstate:2:version",
+                            "seatstate:2:log",
+                            "hold:2:B1",
+                            "booked:2:B1"),
+                    keys.get(2));
+        }
+
+        @Test
+        @DisplayName("Expire call fails - claimed entries go back to the expiry set, other shows still swept")
+        @SuppressWarnings("unchecked")
+        void sweep_ExpireFails_Requeues() {
+            when(redisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class)))
+                    .thenReturn(List.of(2L, 15L, "1:A1", "2:B1"))
+                    .thenThrow(new RedisSystemException("timeout", new RuntimeException()))
+                    .thenReturn(List.of(4L, 1L));
+            when(redisTemplate.opsForZSet()).thenReturn(zSetOperations);
+
+            SeatStateService.SweepResult result = seatStateService.sweepExpiredHolds(10);
+
+            assertEquals(List.of(new SeatStateService.ExpiredHold(2L, "B1", 4L)), result.expired());
+            ArgumentCaptor<Set<ZSetOperations.TypedTuple<String>>> requeued = ArgumentCaptor.forClass(Set.class);
+            verify(zSetOperations).addIfAbsent(eq(SeatStateService.HOLD_EXPIRY_KEY), requeued.capture());
+            assertEquals(
+                    Set.of("1:A1"),
+                    requeued.getValue().stream()
+                            .map(ZSetOperations.TypedTuple::getValue)
+                            .collect(Collectors.toSet()));
+        }
+
+        @Test
+        @DisplayName("Nothing due - single call")
+        void sweep_NothingDue() {
+            givenScriptReturns(List.of(0L, 0L));
+
+            SeatStateService.SweepResult result = seatStateService.sweepExpiredHolds(10);
+
+            assertEquals(0, result.due());
+            assertTrue(result.expired().isEmpty());
+            capturedKeys(1);
+        }
+    }
+
+    @Nested
+    @DisplayName("getChangesSince")
+    class GetChangesSince {
+
+        @Test
+        @DisplayName("Delta - decodes log entries, no seat keys needed")
+        void changesSince_Delta() {
+            givenScriptReturns(List.of(12L, 0L, "11:A1:HELD:user-1:1700000120000", "12:A1:AVAILABLE::0"));
+
+            SeatMapResponse response = seatStateService.getChangesSince(1L, 10);
+
+            assertFalse(response.isSnapshot());
+            assertEquals(12L, response.getVersion());
+            List<SeatUpdateResponse> seats = response.getSeats();
+            assertEquals(2, seats.size());
+            assertEquals("HELD", seats.get(0).getStatus());
+            assertEquals("user-1", seats.get(0).getUserId());
+            assertEquals(1_700_000_120_000L, seats.get(0).getExpiresAt());
+            assertEquals(12L, seats.get(1).getVersion());
+            assertNull(seats.get(1).getUserId());
+            assertEquals(SHOW_KEYS, capturedKeys(1).get(0));
+        }
+
+        @Test
+        @DisplayName("Behind the log (version wrapped past CHANGE_LOG_SIZE) - snapshot without stale holds")
+        void changesSince_SnapshotAfterWraparound() {
+            long version = 10L + SeatStateService.CHANGE_LOG_SIZE * 2;
+            long future = System.currentTimeMillis() + 60_000;
+            givenScriptReturns(List.of(
+                    version,
+                    1L,
+                    "A1",
+                    "BOOKED:user-2",
+                    "A2",
+                    "HELD:user-1:1",
+                    "A3",
+                    "HELD:user-1:" + future));
+
+            SeatMapResponse response = seatStateService.getChangesSince(1L, 10);
+
+            assertTrue(response.isSnapshot());
+            assertEquals(version, response.getVersion());
+            List<SeatUpdateResponse> seats = response.getSeats();
+            assertEquals(List.of("A1", "A3"), seats.stream().map(SeatUpdateResponse::getSeatNumber).toList());
+            assertTrue(seats.stream().allMatch(seat -> seat.getVersion() == version));
+            verify(redisTemplate).execute(any(RedisScript.class), anyList(), eq("1"), eq("10"));
+        }
+
+        @Test
+        @DisplayName("Change log trimmed to CHANGE_LOG_SIZE on every commit")
+        void commit_TrimsLog() {
+            givenScriptReturns(List.of(0L, 1L, 2L));
+
+            seatStateService.hold(1L, "A1", "user-1", 120);
+
+            verify(redisTemplate).execute(scriptCaptor.capture(), anyList(), any(Object[].class));
+            assertTrue(scriptCaptor
+                    .getValue()
+                    .getScriptAsString()
+                    .contains("redis.call(\"ltrim\", KEYS[4], -" + SeatStateService.CHANGE_LOG_SIZE + ", -1)"));
+        }
+    }
+}
@@ -49,6 +49,9 @@ class ShowServiceTest {
     @Mock
     private BookingRepository bookingRepository;
 
+    @Mock
+    private PricingService pricingService;
+
     @InjectMocks
     private ShowService showService;
 
@@ -223,6 +226,7 @@ class ShowServiceTest {
             assertDoesNotThrow(() -> showService.updateShow(1L, request));
 
             verify(showRepository).save(show);
+            verify(pricingService).invalidate(1L);
         }
 
         @Test
@@ -252,6 +256,7 @@ class ShowServiceTest {
             assertDoesNotThrow(() -> showService.deleteShow(1L));
 
             verify(showRepository).deleteById(1L);
+            verify(pricingService).invalidate(1L);
         }
 
         @Test
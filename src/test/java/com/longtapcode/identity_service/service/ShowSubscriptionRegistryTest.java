@@ -0,0 +1,113 @@
+package com.longtapcode.identity_service.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+
+@ExtendWith(MockitoExtension.class)
+class ShowSubscriptionRegistryTest {
+
+    @Mock
+    private ShowEventFanout showEventFanout;
+
+    @InjectMocks
+    private ShowSubscriptionRegistry registry;
+
+    private static Message<byte[]> frame(StompCommand command, String sessionId, String subId, String destination) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(command);
+        accessor.setSessionId(sessionId);
+        accessor.setSubscriptionId(subId);
+        if (destination != null) accessor.setDestination(destination);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+
+    private void subscribe(String sessionId, String subId, String destination) {
+        registry.onSubscribe(
+                new SessionSubscribeEvent(this, frame(StompCommand.SUBSCRIBE, sessionId, subId, destination)));
+    }
+
+    @Test
+    @DisplayName("Subscribes to the show channel once and leaves after the last subscriber")
+    void subscribeAndLeave() {
+        subscribe("s1", "0", "/topic/show/7");
+        subscribe("s2", "0", "/topic/show/7");
+        subscribe("s2", "1", "/topic/other");
+
+        verify(showEventFanout, times(1)).onLocalSubscribed(7L);
+        assertEquals(2, registry.localSubscribers(7L));
+
+        registry.onUnsubscribe(new SessionUnsubscribeEvent(this, frame(StompCommand.UNSUBSCRIBE, "s1", "0", null)));
+        verify(showEventFanout, never()).onLocalUnsubscribed(7L);
+
+        Message<byte[]> disconnect = frame(StompCommand.DISCONNECT, "s2", null, null);
+        registry.onDisconnect(new SessionDisconnectEvent(this, disconnect, "s2", CloseStatus.NORMAL));
+
+        verify(showEventFanout).onLocalUnsubscribed(7L);
+        assertEquals(0, registry.localSubscribers(7L));
+    }
+
+    @Test
+    @DisplayName("Viewers - counts sessions, not subscriptions")
+    void viewerCounts() {
+        subscribe("s1", "0", "/topic/show/7");
+        subscribe("s1", "1", "/topic/show/7/presence");
+        subscribe("s2", "0", "/topic/show/7/compact");
+
+        assertEquals(3, registry.localSubscribers(7L));
+        assertEquals(Map.of(7L, 2L), registry.localViewerCounts());
+
+        registry.onUnsubscribe(new SessionUnsubscribeEvent(this, frame(StompCommand.UNSUBSCRIBE, "s1", "1", null)));
+        assertEquals(Map.of(7L, 2L), registry.localViewerCounts());
+
+        Message<byte[]> disconnect = frame(StompCommand.DISCONNECT, "s1", null, null);
+        registry.onDisconnect(new SessionDisconnectEvent(this, disconnect, "s1", CloseStatus.NORMAL));
+        assertEquals(Map.of(7L, 1L), registry.localViewerCounts());
+
+        registry.onUnsubscribe(new SessionUnsubscribeEvent(this, frame(StompCommand.UNSUBSCRIBE, "s2", "0", null)));
+        assertTrue(registry.localViewerCounts().isEmpty());
+        assertEquals(Map.of(), registry.localSubscriberCounts());
+    }
+
+    @Test
+    @DisplayName("Fanout callbacks run outside the counter update")
+    void fanoutOutsideCompute() {
+        // Gọi lại registry từ callback: nếu callback chạy trong compute() của cùng key, ConcurrentHashMap ném
+        // IllegalStateException("Recursive update")
+        doAnswer(invocation -> {
+                    subscribe("s2", "0", "/topic/show/7");
+                    return null;
+                })
+                .when(showEventFanout)
+                .onLocalSubscribed(7L);
+
+        subscribe("s1", "0", "/topic/show/7");
+
+        verify(showEventFanout, times(1)).onLocalSubscribed(7L);
+        assertEquals(2, registry.localSubscribers(7L));
+    }
+
+    @Test
+    @DisplayName("showIdOf - parses show topics only")
+    void showIdOf() {
+        assertEquals(5L, ShowSubscriptionRegistry.showIdOf("/topic/show/5"));
+        assertEquals(5L, ShowSubscriptionRegistry.showIdOf("/topic/show/5/compact"));
+        assertNull(ShowSubscriptionRegistry.showIdOf("/topic/show/abc"));
+        assertNull(ShowSubscriptionRegistry.showIdOf("/user/queue/errors"));
+    }
+}
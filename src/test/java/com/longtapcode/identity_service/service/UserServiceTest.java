@@ -25,6 +25,7 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import com.longtapcode.identity_service.dto.request.CreationUserRequest;
 import com.longtapcode.identity_service.dto.request.UpdateUserRequest;
 import com.longtapcode.identity_service.dto.request.admin.AdminUpdateUserRequest;
+import com.longtapcode.identity_service.dto.response.CursorPageResponse;
 import com.longtapcode.identity_service.dto.response.UserResponse;
 import com.longtapcode.identity_service.entity.Movie;
 import com.longtapcode.identity_service.entity.Role;
@@ -267,6 +268,54 @@ class UserServiceTest {
         }
     }
 
+    // ==================== getUsersForAdminByCursor ====================
+    @Nested
+    @DisplayName("getUsersForAdminByCursor")
+    class GetUsersForAdminByCursor {
+
+        private User userWithId(String id) {
+            User u = new User();
+            u.setId(id);
+            return u;
+        }
+
+        @Test
+        @DisplayName("Success - reads one extra row to detect the next page and skips the count")
+        void getUsersForAdminByCursor_FirstPage() {
+            when(userRepository.findUsersAfter(null, PageRequest.of(0, 3)))
+                    .thenReturn(List.of(userWithId("a"), userWithId("b"), userWithId("c")));
+            when(userMapper.toListUserResponse(anyList())).thenReturn(List.of(userResponse, userResponse));
+
+            CursorPageResponse<UserResponse> result = userService.getUsersForAdminByCursor(null, 2, false);
+
+            assertTrue(result.isHasNext());
+            assertNull(result.getTotalElements());
+            verify(userMapper).toListUserResponse(argThat(users -> users.size() == 2));
+            verify(userRepository, never()).count();
+
+            // Trang sau tiếp tục ngay sau khóa cuối của trang trước
+            when(userRepository.findUsersAfter("b", PageRequest.of(0, 3))).thenReturn(List.of(userWithId("c")));
+            when(userRepository.count()).thenReturn(3L);
+
+            CursorPageResponse<UserResponse> next =
+                    userService.getUsersForAdminByCursor(result.getNextCursor(), 2, true);
+
+            assertFalse(next.isHasNext());
+            assertNull(next.getNextCursor());
+            assertEquals(3L, next.getTotalElements());
+        }
+
+        @Test
+        @DisplayName("Fail - tampered cursor")
+        void getUsersForAdminByCursor_InvalidCursor() {
+            AppException ex = assertThrows(
+                    AppException.class, () -> userService.getUsersForAdminByCursor("not-a-cursor", 2, false));
+
+            assertEquals(ErrorCode.INVALID_CURSOR, ex.getErrorCode());
+            verifyNoInteractions(userRepository);
+        }
+    }
+
     // ==================== getUserById ====================
     @Nested
     @DisplayName("getUserById")